@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.time.LocalDateTime;
+
+/**
+ * Appointment assigned to an admin user, with the fields of its event in the calendar feed of the agent. The dates span all the slots of the appointment.
+ */
+public class AgentAppointment
+{
+    private int _nIdAppointment;
+    private int _nIdAdminUser;
+    private String _strReference;
+    private String _strFirstName;
+    private String _strLastName;
+    private LocalDateTime _dateStartingDateTime;
+    private LocalDateTime _dateEndingDateTime;
+    private boolean _bCancelled;
+
+    /**
+     * Get the id of the appointment
+     * 
+     * @return The id of the appointment
+     */
+    public int getIdAppointment( )
+    {
+        return _nIdAppointment;
+    }
+
+    /**
+     * Set the id of the appointment
+     * 
+     * @param nIdAppointment
+     *            The id of the appointment
+     */
+    public void setIdAppointment( int nIdAppointment )
+    {
+        _nIdAppointment = nIdAppointment;
+    }
+
+    /**
+     * Get the id of the admin user the appointment is assigned to
+     * 
+     * @return The id of the admin user the appointment is assigned to
+     */
+    public int getIdAdminUser( )
+    {
+        return _nIdAdminUser;
+    }
+
+    /**
+     * Set the id of the admin user the appointment is assigned to
+     * 
+     * @param nIdAdminUser
+     *            The id of the admin user the appointment is assigned to
+     */
+    public void setIdAdminUser( int nIdAdminUser )
+    {
+        _nIdAdminUser = nIdAdminUser;
+    }
+
+    /**
+     * Get the reference of the appointment
+     * 
+     * @return The reference of the appointment
+     */
+    public String getReference( )
+    {
+        return _strReference;
+    }
+
+    /**
+     * Set the reference of the appointment
+     * 
+     * @param strReference
+     *            The reference of the appointment
+     */
+    public void setReference( String strReference )
+    {
+        _strReference = strReference;
+    }
+
+    /**
+     * Get the first name of the user of the appointment
+     * 
+     * @return The first name of the user of the appointment
+     */
+    public String getFirstName( )
+    {
+        return _strFirstName;
+    }
+
+    /**
+     * Set the first name of the user of the appointment
+     * 
+     * @param strFirstName
+     *            The first name of the user of the appointment
+     */
+    public void setFirstName( String strFirstName )
+    {
+        _strFirstName = strFirstName;
+    }
+
+    /**
+     * Get the last name of the user of the appointment
+     * 
+     * @return The last name of the user of the appointment
+     */
+    public String getLastName( )
+    {
+        return _strLastName;
+    }
+
+    /**
+     * Set the last name of the user of the appointment
+     * 
+     * @param strLastName
+     *            The last name of the user of the appointment
+     */
+    public void setLastName( String strLastName )
+    {
+        _strLastName = strLastName;
+    }
+
+    /**
+     * Get the starting date of the appointment
+     * 
+     * @return The starting date of the appointment
+     */
+    public LocalDateTime getStartingDateTime( )
+    {
+        return _dateStartingDateTime;
+    }
+
+    /**
+     * Set the starting date of the appointment
+     * 
+     * @param dateStartingDateTime
+     *            The starting date of the appointment
+     */
+    public void setStartingDateTime( LocalDateTime dateStartingDateTime )
+    {
+        _dateStartingDateTime = dateStartingDateTime;
+    }
+
+    /**
+     * Get the ending date of the appointment
+     * 
+     * @return The ending date of the appointment
+     */
+    public LocalDateTime getEndingDateTime( )
+    {
+        return _dateEndingDateTime;
+    }
+
+    /**
+     * Set the ending date of the appointment
+     * 
+     * @param dateEndingDateTime
+     *            The ending date of the appointment
+     */
+    public void setEndingDateTime( LocalDateTime dateEndingDateTime )
+    {
+        _dateEndingDateTime = dateEndingDateTime;
+    }
+
+    /**
+     * Get whether the appointment is cancelled
+     * 
+     * @return Whether the appointment is cancelled
+     */
+    public boolean isCancelled( )
+    {
+        return _bCancelled;
+    }
+
+    /**
+     * Set whether the appointment is cancelled
+     * 
+     * @param bCancelled
+     *            Whether the appointment is cancelled
+     */
+    public void setCancelled( boolean bCancelled )
+    {
+        _bCancelled = bCancelled;
+    }
+}
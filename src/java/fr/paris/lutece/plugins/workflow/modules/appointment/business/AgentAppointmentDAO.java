@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * DAO of the appointments assigned to admin users
+ */
+public class AgentAppointmentDAO implements IAgentAppointmentDAO
+{
+    private static final String SQL_QUERY_SELECT = "SELECT a.id_appointment, a.id_admin_user, a.reference, u.first_name, u.last_name, "
+            + " MIN(s.starting_date_time), MAX(s.ending_date_time), a.is_cancelled FROM appointment_appointment a "
+            + " INNER JOIN appointment_user u ON u.id_user = a.id_user "
+            + " INNER JOIN appointment_appointment_slot aps ON aps.id_appointment = a.id_appointment "
+            + " INNER JOIN appointment_slot s ON s.id_slot = aps.id_slot ";
+    private static final String SQL_GROUP_BY = " GROUP BY a.id_appointment, a.id_admin_user, a.reference, u.first_name, u.last_name, a.is_cancelled ";
+    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = SQL_QUERY_SELECT + " WHERE a.id_appointment = ? " + SQL_GROUP_BY;
+    private static final String SQL_QUERY_FIND_UPCOMING_APPOINTMENTS = SQL_QUERY_SELECT + " WHERE a.id_admin_user = ? AND a.is_cancelled = 0 "
+            + SQL_GROUP_BY + " HAVING MAX(s.ending_date_time) >= ?";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AgentAppointment load( int nIdAppointment, Plugin plugin )
+    {
+        AgentAppointment appointment = null;
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_BY_PRIMARY_KEY, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdAppointment );
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                appointment = dataToObject( daoUtil );
+            }
+        }
+
+        return appointment;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AgentAppointment> findUpcomingAppointments( int nIdAdminUser, LocalDateTime dateFrom, Plugin plugin )
+    {
+        List<AgentAppointment> listAppointments = new ArrayList<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_UPCOMING_APPOINTMENTS, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdAdminUser );
+            daoUtil.setTimestamp( 2, Timestamp.valueOf( dateFrom ) );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listAppointments.add( dataToObject( daoUtil ) );
+            }
+        }
+
+        return listAppointments;
+    }
+
+    /**
+     * Build an appointment from the current row of a query
+     * 
+     * @param daoUtil
+     *            The DAOUtil positioned on the row
+     * @return The appointment
+     */
+    private static AgentAppointment dataToObject( DAOUtil daoUtil )
+    {
+        int nIndex = 1;
+        AgentAppointment appointment = new AgentAppointment( );
+        appointment.setIdAppointment( daoUtil.getInt( nIndex++ ) );
+        appointment.setIdAdminUser( daoUtil.getInt( nIndex++ ) );
+        appointment.setReference( daoUtil.getString( nIndex++ ) );
+        appointment.setFirstName( daoUtil.getString( nIndex++ ) );
+        appointment.setLastName( daoUtil.getString( nIndex++ ) );
+        appointment.setStartingDateTime( daoUtil.getTimestamp( nIndex++ ).toLocalDateTime( ) );
+        appointment.setEndingDateTime( daoUtil.getTimestamp( nIndex++ ).toLocalDateTime( ) );
+        appointment.setCancelled( daoUtil.getBoolean( nIndex ) );
+
+        return appointment;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * DAO of the phone numbers given in the responses of appointments
+ */
+public class AppointmentPhoneDAO implements IAppointmentPhoneDAO
+{
+    private static final String SQL_QUERY_FIND_PHONE_NUMBERS = "SELECT r.id_entry, r.response_value FROM genatt_response r "
+            + " INNER JOIN appointment_appointment_response ar ON ar.id_response = r.id_response WHERE ar.id_appointment = ? AND r.id_entry IN ( ";
+    private static final String SQL_ORDER_BY = " ) ORDER BY r.id_response";
+    private static final String CONSTANT_PARAMETER = "?";
+    private static final String CONSTANT_COMMA = ",";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, String> findPhoneNumbers( int nIdAppointment, List<Integer> listIdPhoneEntries, Plugin plugin )
+    {
+        Map<Integer, String> mapPhoneNumbers = new HashMap<>( );
+
+        if ( listIdPhoneEntries.isEmpty( ) )
+        {
+            return mapPhoneNumbers;
+        }
+
+        StringBuilder sbQuery = new StringBuilder( SQL_QUERY_FIND_PHONE_NUMBERS );
+        for ( int i = 0; i < listIdPhoneEntries.size( ); i++ )
+        {
+            if ( i > 0 )
+            {
+                sbQuery.append( CONSTANT_COMMA );
+            }
+            sbQuery.append( CONSTANT_PARAMETER );
+        }
+        sbQuery.append( SQL_ORDER_BY );
+
+        try ( DAOUtil daoUtil = new DAOUtil( sbQuery.toString( ), plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, nIdAppointment );
+            for ( Integer nIdEntry : listIdPhoneEntries )
+            {
+                daoUtil.setInt( nIndex++, nIdEntry );
+            }
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                String strPhoneNumber = daoUtil.getString( 2 );
+                if ( StringUtils.isNotBlank( strPhoneNumber ) )
+                {
+                    mapPhoneNumbers.putIfAbsent( daoUtil.getInt( 1 ), strPhoneNumber );
+                }
+            }
+        }
+
+        return mapPhoneNumbers;
+    }
+}
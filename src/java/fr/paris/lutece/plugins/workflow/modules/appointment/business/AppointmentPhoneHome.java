@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * Home for the phone numbers given in the responses of appointments. Responses are stored by the appointment plugin, so its connection pool is used.
+ */
+public final class AppointmentPhoneHome
+{
+    private static IAppointmentPhoneDAO _dao = SpringContextService.getBean( "workflow-appointment.appointmentPhoneDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( AppointmentPlugin.PLUGIN_NAME );
+
+    /**
+     * Private default constructor
+     */
+    private AppointmentPhoneHome( )
+    {
+        // Nothing to do
+    }
+
+    /**
+     * Get the phone number given by the user of an appointment. If several phone entries were answered, the answer to the first entry of the list is
+     * returned.
+     * 
+     * @param nIdAppointment
+     *            The id of the appointment
+     * @param listIdPhoneEntries
+     *            The ids of the phone entries of the form of the appointment, in the order of the form
+     * @return The phone number, or null if no phone number was found
+     */
+    public static String findPhoneNumber( int nIdAppointment, List<Integer> listIdPhoneEntries )
+    {
+        Map<Integer, String> mapPhoneNumbers = _dao.findPhoneNumbers( nIdAppointment, listIdPhoneEntries, _plugin );
+
+        for ( Integer nIdEntry : listIdPhoneEntries )
+        {
+            String strPhoneNumber = mapPhoneNumbers.get( nIdEntry );
+            if ( strPhoneNumber != null )
+            {
+                return strPhoneNumber;
+            }
+        }
+
+        return null;
+    }
+}
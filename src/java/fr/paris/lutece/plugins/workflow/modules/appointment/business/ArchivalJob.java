@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+
+/**
+ * Job of archival of appointments. The job records the id of the last resource archived at each checkpoint, so that a run interrupted by a crash can resume
+ * from the checkpoint.
+ */
+public class ArchivalJob implements Serializable
+{
+    /**
+     * Status of a job in progress or interrupted
+     */
+    public static final int STATUS_RUNNING = 0;
+
+    /**
+     * Status of a completed job
+     */
+    public static final int STATUS_COMPLETED = 1;
+
+    private static final long serialVersionUID = 1L;
+
+    private int _nIdJob;
+    private String _strJobCode;
+    private String _strArchivalType;
+    private int _nStatus;
+    private int _nLastIdResource;
+    private int _nNbResources;
+    private int _nNbProcessed;
+    private int _nNbSkipped;
+    private int _nNbFailed;
+    private long _lProcessingTime;
+    private Timestamp _dateStart;
+    private Timestamp _dateCheckpoint;
+    private Timestamp _dateEnd;
+    private String _strLastError;
+
+    /**
+     * Get the id of the job
+     * 
+     * @return The id of the job
+     */
+    public int getIdJob( )
+    {
+        return _nIdJob;
+    }
+
+    /**
+     * Set the id of the job
+     * 
+     * @param nIdJob
+     *            The id of the job
+     */
+    public void setIdJob( int nIdJob )
+    {
+        _nIdJob = nIdJob;
+    }
+
+    /**
+     * Get the code of the job
+     * 
+     * @return The code of the job
+     */
+    public String getJobCode( )
+    {
+        return _strJobCode;
+    }
+
+    /**
+     * Set the code of the job
+     * 
+     * @param strJobCode
+     *            The code of the job
+     */
+    public void setJobCode( String strJobCode )
+    {
+        _strJobCode = strJobCode;
+    }
+
+    /**
+     * Get the archival type
+     * 
+     * @return The archival type
+     */
+    public String getArchivalType( )
+    {
+        return _strArchivalType;
+    }
+
+    /**
+     * Set the archival type
+     * 
+     * @param strArchivalType
+     *            The archival type
+     */
+    public void setArchivalType( String strArchivalType )
+    {
+        _strArchivalType = strArchivalType;
+    }
+
+    /**
+     * Get the status of the job
+     * 
+     * @return The status of the job
+     */
+    public int getStatus( )
+    {
+        return _nStatus;
+    }
+
+    /**
+     * Set the status of the job
+     * 
+     * @param nStatus
+     *            The status of the job
+     */
+    public void setStatus( int nStatus )
+    {
+        _nStatus = nStatus;
+    }
+
+    /**
+     * Get the id of the last resource processed before the checkpoint
+     * 
+     * @return The id of the last resource processed before the checkpoint
+     */
+    public int getLastIdResource( )
+    {
+        return _nLastIdResource;
+    }
+
+    /**
+     * Set the id of the last resource processed before the checkpoint
+     * 
+     * @param nLastIdResource
+     *            The id of the last resource processed before the checkpoint
+     */
+    public void setLastIdResource( int nLastIdResource )
+    {
+        _nLastIdResource = nLastIdResource;
+    }
+
+    /**
+     * Get the number of resources of the job
+     * 
+     * @return The number of resources of the job
+     */
+    public int getNbResources( )
+    {
+        return _nNbResources;
+    }
+
+    /**
+     * Set the number of resources of the job
+     * 
+     * @param nNbResources
+     *            The number of resources of the job
+     */
+    public void setNbResources( int nNbResources )
+    {
+        _nNbResources = nNbResources;
+    }
+
+    /**
+     * Get the number of resources processed, archived, skipped or failed
+     * 
+     * @return The number of resources processed, archived, skipped or failed
+     */
+    public int getNbProcessed( )
+    {
+        return _nNbProcessed;
+    }
+
+    /**
+     * Set the number of resources processed, archived, skipped or failed
+     * 
+     * @param nNbProcessed
+     *            The number of resources processed, archived, skipped or failed
+     */
+    public void setNbProcessed( int nNbProcessed )
+    {
+        _nNbProcessed = nNbProcessed;
+    }
+
+    /**
+     * Get the number of resources skipped because they were already archived
+     * 
+     * @return The number of resources skipped because they were already archived
+     */
+    public int getNbSkipped( )
+    {
+        return _nNbSkipped;
+    }
+
+    /**
+     * Set the number of resources skipped because they were already archived
+     * 
+     * @param nNbSkipped
+     *            The number of resources skipped because they were already archived
+     */
+    public void setNbSkipped( int nNbSkipped )
+    {
+        _nNbSkipped = nNbSkipped;
+    }
+
+    /**
+     * Get the number of resources that could not be archived
+     * 
+     * @return The number of resources that could not be archived
+     */
+    public int getNbFailed( )
+    {
+        return _nNbFailed;
+    }
+
+    /**
+     * Set the number of resources that could not be archived
+     * 
+     * @param nNbFailed
+     *            The number of resources that could not be archived
+     */
+    public void setNbFailed( int nNbFailed )
+    {
+        _nNbFailed = nNbFailed;
+    }
+
+    /**
+     * Get the time spent processing the job, in milliseconds
+     * 
+     * @return The time spent processing the job, in milliseconds
+     */
+    public long getProcessingTime( )
+    {
+        return _lProcessingTime;
+    }
+
+    /**
+     * Set the time spent processing the job, in milliseconds
+     * 
+     * @param lProcessingTime
+     *            The time spent processing the job, in milliseconds
+     */
+    public void setProcessingTime( long lProcessingTime )
+    {
+        _lProcessingTime = lProcessingTime;
+    }
+
+    /**
+     * Get the date at which the job started
+     * 
+     * @return The date at which the job started
+     */
+    public Timestamp getDateStart( )
+    {
+        return _dateStart;
+    }
+
+    /**
+     * Set the date at which the job started
+     * 
+     * @param dateStart
+     *            The date at which the job started
+     */
+    public void setDateStart( Timestamp dateStart )
+    {
+        _dateStart = dateStart;
+    }
+
+    /**
+     * Get the date of the last checkpoint
+     * 
+     * @return The date of the last checkpoint
+     */
+    public Timestamp getDateCheckpoint( )
+    {
+        return _dateCheckpoint;
+    }
+
+    /**
+     * Set the date of the last checkpoint
+     * 
+     * @param dateCheckpoint
+     *            The date of the last checkpoint
+     */
+    public void setDateCheckpoint( Timestamp dateCheckpoint )
+    {
+        _dateCheckpoint = dateCheckpoint;
+    }
+
+    /**
+     * Get the date at which the job completed
+     * 
+     * @return The date at which the job completed
+     */
+    public Timestamp getDateEnd( )
+    {
+        return _dateEnd;
+    }
+
+    /**
+     * Set the date at which the job completed
+     * 
+     * @param dateEnd
+     *            The date at which the job completed
+     */
+    public void setDateEnd( Timestamp dateEnd )
+    {
+        _dateEnd = dateEnd;
+    }
+
+    /**
+     * Get the last error of the job
+     * 
+     * @return The last error of the job
+     */
+    public String getLastError( )
+    {
+        return _strLastError;
+    }
+
+    /**
+     * Set the last error of the job
+     * 
+     * @param strLastError
+     *            The last error of the job
+     */
+    public void setLastError( String strLastError )
+    {
+        _strLastError = strLastError;
+    }
+
+    /**
+     * Get the throughput of the job
+     * 
+     * @return The number of resources processed per second, or 0 if the job has not processed any resource yet
+     */
+    public double getThroughput( )
+    {
+        if ( _lProcessingTime <= 0 )
+        {
+            return 0;
+        }
+
+        return _nNbProcessed * 1000d / _lProcessingTime;
+    }
+
+    /**
+     * Get the estimated time remaining before the job completes
+     * 
+     * @return The estimated time, in seconds, or -1 if it can not be estimated
+     */
+    public long getRemainingTime( )
+    {
+        if ( _nStatus == STATUS_COMPLETED )
+        {
+            return 0;
+        }
+
+        double dThroughput = getThroughput( );
+        if ( dThroughput <= 0 )
+        {
+            return -1;
+        }
+
+        return (long) Math.ceil( Math.max( 0, _nNbResources - _nNbProcessed ) / dThroughput );
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * DAO of the archival jobs
+ */
+public class ArchivalJobDAO implements IArchivalJobDAO
+{
+    private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_job,job_code,archival_type,status,last_id_resource,nb_resources,nb_processed,nb_skipped,"
+            + "nb_failed,processing_time,date_start,date_checkpoint,date_end,last_error FROM workflow_appointment_archival_job ";
+    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = SQL_QUERY_SELECT_COLUMNS + " WHERE id_job = ?";
+    private static final String SQL_QUERY_FIND_RUNNING_JOB = SQL_QUERY_SELECT_COLUMNS + " WHERE job_code = ? AND archival_type = ? AND status = ? "
+            + " ORDER BY id_job DESC";
+    private static final String SQL_QUERY_FIND_LAST_JOBS = SQL_QUERY_SELECT_COLUMNS + " ORDER BY id_job DESC";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO workflow_appointment_archival_job( "
+            + "job_code,archival_type,status,last_id_resource,nb_resources,nb_processed,nb_skipped,nb_failed,processing_time,date_start,date_checkpoint,"
+            + "date_end,last_error) VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?)";
+    private static final String SQL_QUERY_UPDATE = "UPDATE workflow_appointment_archival_job SET status = ?, last_id_resource = ?, nb_resources = ?, "
+            + "nb_processed = ?, nb_skipped = ?, nb_failed = ?, processing_time = ?, date_checkpoint = ?, date_end = ?, last_error = ? WHERE id_job = ? ";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM workflow_appointment_archival_job WHERE id_job = ? ";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insert( ArchivalJob job, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setString( nIndex++, job.getJobCode( ) );
+            daoUtil.setString( nIndex++, job.getArchivalType( ) );
+            daoUtil.setInt( nIndex++, job.getStatus( ) );
+            daoUtil.setInt( nIndex++, job.getLastIdResource( ) );
+            daoUtil.setInt( nIndex++, job.getNbResources( ) );
+            daoUtil.setInt( nIndex++, job.getNbProcessed( ) );
+            daoUtil.setInt( nIndex++, job.getNbSkipped( ) );
+            daoUtil.setInt( nIndex++, job.getNbFailed( ) );
+            daoUtil.setLong( nIndex++, job.getProcessingTime( ) );
+            daoUtil.setTimestamp( nIndex++, job.getDateStart( ) );
+            daoUtil.setTimestamp( nIndex++, job.getDateCheckpoint( ) );
+            daoUtil.setTimestamp( nIndex++, job.getDateEnd( ) );
+            daoUtil.setString( nIndex, job.getLastError( ) );
+            daoUtil.executeUpdate( );
+
+            if ( daoUtil.nextGeneratedKey( ) )
+            {
+                job.setIdJob( daoUtil.getGeneratedKeyInt( 1 ) );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void store( ArchivalJob job, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, job.getStatus( ) );
+            daoUtil.setInt( nIndex++, job.getLastIdResource( ) );
+            daoUtil.setInt( nIndex++, job.getNbResources( ) );
+            daoUtil.setInt( nIndex++, job.getNbProcessed( ) );
+            daoUtil.setInt( nIndex++, job.getNbSkipped( ) );
+            daoUtil.setInt( nIndex++, job.getNbFailed( ) );
+            daoUtil.setLong( nIndex++, job.getProcessingTime( ) );
+            daoUtil.setTimestamp( nIndex++, job.getDateCheckpoint( ) );
+            daoUtil.setTimestamp( nIndex++, job.getDateEnd( ) );
+            daoUtil.setString( nIndex++, job.getLastError( ) );
+            daoUtil.setInt( nIndex, job.getIdJob( ) );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ArchivalJob load( int nIdJob, Plugin plugin )
+    {
+        ArchivalJob job = null;
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_BY_PRIMARY_KEY, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdJob );
+            daoUtil.executeQuery( );
+
+            if ( daoUtil.next( ) )
+            {
+                job = dataToObject( daoUtil );
+            }
+        }
+        return job;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ArchivalJob findRunningJob( String strJobCode, String strArchivalType, Plugin plugin )
+    {
+        ArchivalJob job = null;
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_RUNNING_JOB, plugin ) )
+        {
+            daoUtil.setString( 1, strJobCode );
+            daoUtil.setString( 2, strArchivalType );
+            daoUtil.setInt( 3, ArchivalJob.STATUS_RUNNING );
+            daoUtil.executeQuery( );
+
+            if ( daoUtil.next( ) )
+            {
+                job = dataToObject( daoUtil );
+            }
+        }
+        return job;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ArchivalJob> findLastJobs( int nMaxResults, Plugin plugin )
+    {
+        List<ArchivalJob> listJobs = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_LAST_JOBS, plugin ) )
+        {
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) && listJobs.size( ) < nMaxResults )
+            {
+                listJobs.add( dataToObject( daoUtil ) );
+            }
+        }
+        return listJobs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete( int nIdJob, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdJob );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * Build a job from the current row of a query
+     * 
+     * @param daoUtil
+     *            The DAOUtil positioned on the row
+     * @return The job
+     */
+    private ArchivalJob dataToObject( DAOUtil daoUtil )
+    {
+        int nIndex = 1;
+        ArchivalJob job = new ArchivalJob( );
+        job.setIdJob( daoUtil.getInt( nIndex++ ) );
+        job.setJobCode( daoUtil.getString( nIndex++ ) );
+        job.setArchivalType( daoUtil.getString( nIndex++ ) );
+        job.setStatus( daoUtil.getInt( nIndex++ ) );
+        job.setLastIdResource( daoUtil.getInt( nIndex++ ) );
+        job.setNbResources( daoUtil.getInt( nIndex++ ) );
+        job.setNbProcessed( daoUtil.getInt( nIndex++ ) );
+        job.setNbSkipped( daoUtil.getInt( nIndex++ ) );
+        job.setNbFailed( daoUtil.getInt( nIndex++ ) );
+        job.setProcessingTime( daoUtil.getLong( nIndex++ ) );
+        job.setDateStart( daoUtil.getTimestamp( nIndex++ ) );
+        job.setDateCheckpoint( daoUtil.getTimestamp( nIndex++ ) );
+        job.setDateEnd( daoUtil.getTimestamp( nIndex++ ) );
+        job.setLastError( daoUtil.getString( nIndex ) );
+
+        return job;
+    }
+}
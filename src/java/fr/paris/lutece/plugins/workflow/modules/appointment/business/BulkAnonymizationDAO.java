@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import fr.paris.lutece.plugins.appointment.business.user.User;
+import fr.paris.lutece.plugins.genericattributes.business.Entry;
+import fr.paris.lutece.plugins.genericattributes.business.Response;
+import fr.paris.lutece.portal.business.file.File;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * DAO used to anonymize appointments in bulk. Appointments, users and responses are read and written with set based queries and JDBC batches instead of one
+ * query per object.
+ */
+public class BulkAnonymizationDAO implements IBulkAnonymizationDAO
+{
+    private static final String SQL_QUERY_FIND_APPOINTMENTS = "SELECT a.id_appointment, a.id_user, MIN(s.id_form) FROM appointment_appointment a "
+            + " INNER JOIN appointment_appointment_slot aps ON aps.id_appointment = a.id_appointment "
+            + " INNER JOIN appointment_slot s ON s.id_slot = aps.id_slot WHERE a.id_appointment IN ( %s ) GROUP BY a.id_appointment, a.id_user";
+    private static final String SQL_QUERY_FIND_ENDED_APPOINTMENTS = "SELECT a.id_appointment FROM appointment_appointment a "
+            + " INNER JOIN appointment_appointment_slot aps ON aps.id_appointment = a.id_appointment "
+            + " INNER JOIN appointment_slot s ON s.id_slot = aps.id_slot INNER JOIN appointment_form f ON f.id_form = s.id_form %s "
+            + " WHERE f.id_workflow = ? %s GROUP BY a.id_appointment HAVING MAX(s.ending_date_time) < ? ORDER BY a.id_appointment LIMIT ?";
+    private static final String SQL_JOIN_ANONYMIZED = " LEFT JOIN workflow_appointment_anonymized an ON an.id_appointment = a.id_appointment ";
+    private static final String SQL_FILTER_NOT_ANONYMIZED = " AND an.id_appointment IS NULL ";
+    private static final String SQL_QUERY_FIND_RESPONSES = "SELECT ar.id_appointment, r.id_response, r.response_value, r.id_entry, r.iteration_number, r.id_file "
+            + " FROM appointment_appointment_response ar INNER JOIN genatt_response r ON r.id_response = ar.id_response "
+            + " WHERE ar.id_appointment IN ( %s ) ORDER BY ar.id_appointment, r.id_response";
+    private static final String SQL_QUERY_UPDATE_USER = "UPDATE appointment_user SET first_name = ?, last_name = ?, email = ? WHERE id_user = ?";
+    private static final String SQL_QUERY_UPDATE_RESPONSE_VALUE = "UPDATE genatt_response SET response_value = ? WHERE id_response = ?";
+    private static final String SQL_QUERY_FIND_ANONYMIZED = "SELECT id_appointment FROM workflow_appointment_anonymized WHERE id_appointment IN ( %s )";
+    private static final String SQL_QUERY_INSERT_ANONYMIZED = "INSERT INTO workflow_appointment_anonymized( id_appointment, date_anonymized ) VALUES ( ?, ? )";
+    private static final String SQL_QUERY_DELETE_ANONYMIZED = "DELETE FROM workflow_appointment_anonymized WHERE id_appointment = ?";
+    private static final String CONSTANT_PARAMETER = "?";
+    private static final String CONSTANT_SEPARATOR = ",";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AnonymizableAppointment> findAppointments( Collection<Integer> listIdAppointments, Plugin plugin )
+    {
+        List<AnonymizableAppointment> listAppointments = new ArrayList<>( listIdAppointments.size( ) );
+        if ( listIdAppointments.isEmpty( ) )
+        {
+            return listAppointments;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( String.format( SQL_QUERY_FIND_APPOINTMENTS, getParameters( listIdAppointments.size( ) ) ), plugin ) )
+        {
+            setIds( daoUtil, listIdAppointments );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                int nIndex = 1;
+                AnonymizableAppointment appointment = new AnonymizableAppointment( );
+                appointment.setIdAppointment( daoUtil.getInt( nIndex++ ) );
+                appointment.setIdUser( daoUtil.getInt( nIndex++ ) );
+                appointment.setIdForm( daoUtil.getInt( nIndex ) );
+                listAppointments.add( appointment );
+            }
+        }
+
+        return listAppointments;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Integer> findEndedAppointments( int nIdWorkflow, Timestamp dateEnd, boolean bNotAnonymized, int nMaxResults, Plugin plugin )
+    {
+        List<Integer> listIdAppointments = new ArrayList<>( );
+        String strQuery = String.format( SQL_QUERY_FIND_ENDED_APPOINTMENTS, bNotAnonymized ? SQL_JOIN_ANONYMIZED : "",
+                bNotAnonymized ? SQL_FILTER_NOT_ANONYMIZED : "" );
+        try ( DAOUtil daoUtil = new DAOUtil( strQuery, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, nIdWorkflow );
+            daoUtil.setTimestamp( nIndex++, dateEnd );
+            daoUtil.setInt( nIndex, nMaxResults );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listIdAppointments.add( daoUtil.getInt( 1 ) );
+            }
+        }
+
+        return listIdAppointments;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, List<Response>> findResponses( Collection<Integer> listIdAppointments, Plugin plugin )
+    {
+        Map<Integer, List<Response>> mapResponses = new HashMap<>( );
+        if ( listIdAppointments.isEmpty( ) )
+        {
+            return mapResponses;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( String.format( SQL_QUERY_FIND_RESPONSES, getParameters( listIdAppointments.size( ) ) ), plugin ) )
+        {
+            setIds( daoUtil, listIdAppointments );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                int nIndex = 1;
+                int nIdAppointment = daoUtil.getInt( nIndex++ );
+                Response response = new Response( );
+                response.setIdResponse( daoUtil.getInt( nIndex++ ) );
+                response.setResponseValue( daoUtil.getString( nIndex++ ) );
+                Entry entry = new Entry( );
+                entry.setIdEntry( daoUtil.getInt( nIndex++ ) );
+                response.setEntry( entry );
+                response.setIterationNumber( daoUtil.getInt( nIndex++ ) );
+                if ( daoUtil.getInt( nIndex ) > 0 )
+                {
+                    // Only the id of the file is needed to know that the response holds a file
+                    File file = new File( );
+                    file.setIdFile( daoUtil.getInt( nIndex ) );
+                    response.setFile( file );
+                }
+                mapResponses.computeIfAbsent( nIdAppointment, nId -> new ArrayList<>( ) ).add( response );
+            }
+        }
+
+        return mapResponses;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateUsers( List<User> listUsers, Plugin plugin )
+    {
+        if ( listUsers.isEmpty( ) )
+        {
+            return;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_USER, plugin ) )
+        {
+            for ( User user : listUsers )
+            {
+                int nIndex = 1;
+                daoUtil.setString( nIndex++, user.getFirstName( ) );
+                daoUtil.setString( nIndex++, user.getLastName( ) );
+                daoUtil.setString( nIndex++, user.getEmail( ) );
+                daoUtil.setInt( nIndex, user.getIdUser( ) );
+                daoUtil.addBatch( );
+            }
+            daoUtil.executeBatch( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateResponseValues( List<Response> listResponses, Plugin plugin )
+    {
+        if ( listResponses.isEmpty( ) )
+        {
+            return;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_RESPONSE_VALUE, plugin ) )
+        {
+            for ( Response response : listResponses )
+            {
+                daoUtil.setString( 1, response.getResponseValue( ) );
+                daoUtil.setInt( 2, response.getIdResponse( ) );
+                daoUtil.addBatch( );
+            }
+            daoUtil.executeBatch( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Integer> findAnonymizedAppointments( Collection<Integer> listIdAppointments, Plugin plugin )
+    {
+        Set<Integer> setIdAppointments = new HashSet<>( );
+        if ( listIdAppointments.isEmpty( ) )
+        {
+            return setIdAppointments;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( String.format( SQL_QUERY_FIND_ANONYMIZED, getParameters( listIdAppointments.size( ) ) ), plugin ) )
+        {
+            setIds( daoUtil, listIdAppointments );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                setIdAppointments.add( daoUtil.getInt( 1 ) );
+            }
+        }
+
+        return setIdAppointments;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insertAnonymizedAppointments( Collection<Integer> listIdAppointments, Timestamp dateAnonymized, Plugin plugin )
+    {
+        if ( listIdAppointments.isEmpty( ) )
+        {
+            return;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT_ANONYMIZED, plugin ) )
+        {
+            for ( Integer nIdAppointment : listIdAppointments )
+            {
+                daoUtil.setInt( 1, nIdAppointment );
+                daoUtil.setTimestamp( 2, dateAnonymized );
+                daoUtil.addBatch( );
+            }
+            daoUtil.executeBatch( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteAnonymizedAppointment( int nIdAppointment, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_ANONYMIZED, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdAppointment );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * Get the parameters of an IN clause
+     * 
+     * @param nNbParameters
+     *            The number of parameters
+     * @return The parameters, separated by commas
+     */
+    private static String getParameters( int nNbParameters )
+    {
+        StringBuilder sbParameters = new StringBuilder( nNbParameters * 2 );
+        for ( int i = 0; i < nNbParameters; i++ )
+        {
+            if ( i > 0 )
+            {
+                sbParameters.append( CONSTANT_SEPARATOR );
+            }
+            sbParameters.append( CONSTANT_PARAMETER );
+        }
+
+        return sbParameters.toString( );
+    }
+
+    /**
+     * Set the ids of an IN clause
+     * 
+     * @param daoUtil
+     *            The DAOUtil
+     * @param listIds
+     *            The ids
+     */
+    private static void setIds( DAOUtil daoUtil, Collection<Integer> listIds )
+    {
+        int nIndex = 1;
+        for ( Integer nId : listIds )
+        {
+            daoUtil.setInt( nIndex++, nId );
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import fr.paris.lutece.plugins.appointment.business.user.User;
+import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
+import fr.paris.lutece.plugins.genericattributes.business.Response;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * Home used to anonymize appointments in bulk. Appointments and their responses are stored by the appointment plugin, so its connection pool is used. The
+ * anonymization marks are stored with the same pool, so that they are written in the transaction of the anonymization : their table is created on that
+ * pool by sql/plugins/appointment/plugin/create_db_workflow_appointment_anonymized.sql, not by the scripts of the module.
+ */
+public final class BulkAnonymizationHome
+{
+    private static IBulkAnonymizationDAO _dao = SpringContextService.getBean( "workflow-appointment.bulkAnonymizationDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( AppointmentPlugin.PLUGIN_NAME );
+
+    /**
+     * Private default constructor
+     */
+    private BulkAnonymizationHome( )
+    {
+        // Nothing to do
+    }
+
+    /**
+     * Get the plugin whose connection pool is used. Transactions of bulk anonymizations must be opened on this plugin.
+     * 
+     * @return The plugin
+     */
+    public static Plugin getPlugin( )
+    {
+        return _plugin;
+    }
+
+    /**
+     * Get the appointments to anonymize
+     * 
+     * @param listIdAppointments
+     *            The ids of the appointments
+     * @return The appointments that were found
+     */
+    public static List<AnonymizableAppointment> findAppointments( Collection<Integer> listIdAppointments )
+    {
+        return _dao.findAppointments( listIdAppointments, _plugin );
+    }
+
+    /**
+     * Get the appointments of the forms of a workflow whose last slot ended before a date, by increasing id
+     * 
+     * @param nIdWorkflow
+     *            The id of the workflow
+     * @param dateEnd
+     *            The date
+     * @param bNotAnonymized
+     *            true to exclude the appointments already anonymized
+     * @param nMaxResults
+     *            The maximum number of appointments returned
+     * @return The ids of the appointments
+     */
+    public static List<Integer> findEndedAppointments( int nIdWorkflow, Timestamp dateEnd, boolean bNotAnonymized, int nMaxResults )
+    {
+        return _dao.findEndedAppointments( nIdWorkflow, dateEnd, bNotAnonymized, nMaxResults, _plugin );
+    }
+
+    /**
+     * Get the responses of appointments. The entry of the responses only holds its id.
+     * 
+     * @param listIdAppointments
+     *            The ids of the appointments
+     * @return The responses by id of appointment
+     */
+    public static Map<Integer, List<Response>> findResponses( Collection<Integer> listIdAppointments )
+    {
+        return _dao.findResponses( listIdAppointments, _plugin );
+    }
+
+    /**
+     * Update the names and the email of users in a single batch
+     * 
+     * @param listUsers
+     *            The users
+     */
+    public static void updateUsers( List<User> listUsers )
+    {
+        _dao.updateUsers( listUsers, _plugin );
+    }
+
+    /**
+     * Update the values of responses in a single batch
+     * 
+     * @param listResponses
+     *            The responses
+     */
+    public static void updateResponseValues( List<Response> listResponses )
+    {
+        _dao.updateResponseValues( listResponses, _plugin );
+    }
+
+    /**
+     * Get the appointments already anonymized
+     * 
+     * @param listIdAppointments
+     *            The ids of the appointments
+     * @return The ids of the appointments already anonymized
+     */
+    public static Set<Integer> findAnonymizedAppointments( Collection<Integer> listIdAppointments )
+    {
+        return _dao.findAnonymizedAppointments( listIdAppointments, _plugin );
+    }
+
+    /**
+     * Mark appointments as anonymized in a single batch
+     * 
+     * @param listIdAppointments
+     *            The ids of the appointments
+     * @param dateAnonymized
+     *            The date of the anonymization
+     */
+    public static void createAnonymizedAppointments( Collection<Integer> listIdAppointments, Timestamp dateAnonymized )
+    {
+        _dao.insertAnonymizedAppointments( listIdAppointments, dateAnonymized, _plugin );
+    }
+
+    /**
+     * Remove the anonymization mark of an appointment
+     * 
+     * @param nIdAppointment
+     *            The id of the appointment
+     */
+    public static void removeAnonymizedAppointment( int nIdAppointment )
+    {
+        _dao.deleteAnonymizedAppointment( nIdAppointment, _plugin );
+    }
+}
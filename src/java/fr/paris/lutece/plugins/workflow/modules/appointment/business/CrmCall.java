@@ -0,0 +1,432 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.sql.Timestamp;
+
+/**
+ * Call to the CRM waiting in the queue: creation of a demand, followed by a notification of this demand
+ */
+public class CrmCall
+{
+    /**
+     * Status of a call waiting to be processed
+     */
+    public static final int STATUS_PENDING = 0;
+
+    /**
+     * Status of a call being processed by a worker
+     */
+    public static final int STATUS_IN_PROGRESS = 1;
+
+    /**
+     * Status of a call that could not be processed after the maximum number of attempts
+     */
+    public static final int STATUS_FAILED = 2;
+
+    private int _nIdCall;
+    private int _nIdAppointment;
+    private String _strUserGuid;
+    private String _strDemandType;
+    private String _strIdStatusCrm;
+    private String _strStatusText;
+    private String _strData;
+    private String _strIdDemand;
+    private String _strNotifyObject;
+    private String _strNotifyMessage;
+    private String _strNotifySender;
+    private int _nStatus;
+    private int _nNbAttempts;
+    private Timestamp _dateCreation;
+    private Timestamp _dateNextAttempt;
+    private String _strClaimToken;
+    private Timestamp _dateClaim;
+
+    /**
+     * Get the id of the call
+     * 
+     * @return The id of the call
+     */
+    public int getIdCall( )
+    {
+        return _nIdCall;
+    }
+
+    /**
+     * Set the id of the call
+     * 
+     * @param nIdCall
+     *            The id of the call
+     */
+    public void setIdCall( int nIdCall )
+    {
+        _nIdCall = nIdCall;
+    }
+
+    /**
+     * Get the id of the appointment
+     * 
+     * @return The id of the appointment
+     */
+    public int getIdAppointment( )
+    {
+        return _nIdAppointment;
+    }
+
+    /**
+     * Set the id of the appointment
+     * 
+     * @param nIdAppointment
+     *            The id of the appointment
+     */
+    public void setIdAppointment( int nIdAppointment )
+    {
+        _nIdAppointment = nIdAppointment;
+    }
+
+    /**
+     * Get the guid of the user of the demand
+     * 
+     * @return The guid of the user of the demand
+     */
+    public String getUserGuid( )
+    {
+        return _strUserGuid;
+    }
+
+    /**
+     * Set the guid of the user of the demand
+     * 
+     * @param strUserGuid
+     *            The guid of the user of the demand
+     */
+    public void setUserGuid( String strUserGuid )
+    {
+        _strUserGuid = strUserGuid;
+    }
+
+    /**
+     * Get the type of the demand
+     * 
+     * @return The type of the demand
+     */
+    public String getDemandType( )
+    {
+        return _strDemandType;
+    }
+
+    /**
+     * Set the type of the demand
+     * 
+     * @param strDemandType
+     *            The type of the demand
+     */
+    public void setDemandType( String strDemandType )
+    {
+        _strDemandType = strDemandType;
+    }
+
+    /**
+     * Get the id of the CRM status of the demand
+     * 
+     * @return The id of the CRM status of the demand
+     */
+    public String getIdStatusCrm( )
+    {
+        return _strIdStatusCrm;
+    }
+
+    /**
+     * Set the id of the CRM status of the demand
+     * 
+     * @param strIdStatusCrm
+     *            The id of the CRM status of the demand
+     */
+    public void setIdStatusCrm( String strIdStatusCrm )
+    {
+        _strIdStatusCrm = strIdStatusCrm;
+    }
+
+    /**
+     * Get the status text of the demand
+     * 
+     * @return The status text of the demand
+     */
+    public String getStatusText( )
+    {
+        return _strStatusText;
+    }
+
+    /**
+     * Set the status text of the demand
+     * 
+     * @param strStatusText
+     *            The status text of the demand
+     */
+    public void setStatusText( String strStatusText )
+    {
+        _strStatusText = strStatusText;
+    }
+
+    /**
+     * Get the data of the demand
+     * 
+     * @return The data of the demand
+     */
+    public String getData( )
+    {
+        return _strData;
+    }
+
+    /**
+     * Set the data of the demand
+     * 
+     * @param strData
+     *            The data of the demand
+     */
+    public void setData( String strData )
+    {
+        _strData = strData;
+    }
+
+    /**
+     * Get the id of the demand, once created
+     * 
+     * @return The id of the demand, once created
+     */
+    public String getIdDemand( )
+    {
+        return _strIdDemand;
+    }
+
+    /**
+     * Set the id of the demand, once created
+     * 
+     * @param strIdDemand
+     *            The id of the demand, once created
+     */
+    public void setIdDemand( String strIdDemand )
+    {
+        _strIdDemand = strIdDemand;
+    }
+
+    /**
+     * Get the object of the notification
+     * 
+     * @return The object of the notification
+     */
+    public String getNotifyObject( )
+    {
+        return _strNotifyObject;
+    }
+
+    /**
+     * Set the object of the notification
+     * 
+     * @param strNotifyObject
+     *            The object of the notification
+     */
+    public void setNotifyObject( String strNotifyObject )
+    {
+        _strNotifyObject = strNotifyObject;
+    }
+
+    /**
+     * Get the message of the notification
+     * 
+     * @return The message of the notification
+     */
+    public String getNotifyMessage( )
+    {
+        return _strNotifyMessage;
+    }
+
+    /**
+     * Set the message of the notification
+     * 
+     * @param strNotifyMessage
+     *            The message of the notification
+     */
+    public void setNotifyMessage( String strNotifyMessage )
+    {
+        _strNotifyMessage = strNotifyMessage;
+    }
+
+    /**
+     * Get the sender of the notification
+     * 
+     * @return The sender of the notification
+     */
+    public String getNotifySender( )
+    {
+        return _strNotifySender;
+    }
+
+    /**
+     * Set the sender of the notification
+     * 
+     * @param strNotifySender
+     *            The sender of the notification
+     */
+    public void setNotifySender( String strNotifySender )
+    {
+        _strNotifySender = strNotifySender;
+    }
+
+    /**
+     * Get the status of the call
+     * 
+     * @return The status of the call
+     */
+    public int getStatus( )
+    {
+        return _nStatus;
+    }
+
+    /**
+     * Set the status of the call
+     * 
+     * @param nStatus
+     *            The status of the call
+     */
+    public void setStatus( int nStatus )
+    {
+        _nStatus = nStatus;
+    }
+
+    /**
+     * Get the number of attempts
+     * 
+     * @return The number of attempts
+     */
+    public int getNbAttempts( )
+    {
+        return _nNbAttempts;
+    }
+
+    /**
+     * Set the number of attempts
+     * 
+     * @param nNbAttempts
+     *            The number of attempts
+     */
+    public void setNbAttempts( int nNbAttempts )
+    {
+        _nNbAttempts = nNbAttempts;
+    }
+
+    /**
+     * Get the creation date of the call
+     * 
+     * @return The creation date of the call
+     */
+    public Timestamp getDateCreation( )
+    {
+        return _dateCreation;
+    }
+
+    /**
+     * Set the creation date of the call
+     * 
+     * @param dateCreation
+     *            The creation date of the call
+     */
+    public void setDateCreation( Timestamp dateCreation )
+    {
+        _dateCreation = dateCreation;
+    }
+
+    /**
+     * Get the date of the next attempt
+     * 
+     * @return The date of the next attempt
+     */
+    public Timestamp getDateNextAttempt( )
+    {
+        return _dateNextAttempt;
+    }
+
+    /**
+     * Set the date of the next attempt
+     * 
+     * @param dateNextAttempt
+     *            The date of the next attempt
+     */
+    public void setDateNextAttempt( Timestamp dateNextAttempt )
+    {
+        _dateNextAttempt = dateNextAttempt;
+    }
+
+    /**
+     * Get the token of the worker processing the call
+     * 
+     * @return The token of the worker processing the call
+     */
+    public String getClaimToken( )
+    {
+        return _strClaimToken;
+    }
+
+    /**
+     * Set the token of the worker processing the call
+     * 
+     * @param strClaimToken
+     *            The token of the worker processing the call
+     */
+    public void setClaimToken( String strClaimToken )
+    {
+        _strClaimToken = strClaimToken;
+    }
+
+    /**
+     * Get the date of the claim of the call
+     * 
+     * @return The date of the claim of the call
+     */
+    public Timestamp getDateClaim( )
+    {
+        return _dateClaim;
+    }
+
+    /**
+     * Set the date of the claim of the call
+     * 
+     * @param dateClaim
+     *            The date of the claim of the call
+     */
+    public void setDateClaim( Timestamp dateClaim )
+    {
+        _dateClaim = dateClaim;
+    }
+}
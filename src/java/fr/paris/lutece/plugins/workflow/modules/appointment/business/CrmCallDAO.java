@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * DAO of the queue of CRM calls
+ */
+public class CrmCallDAO implements ICrmCallDAO
+{
+    private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_call,id_appointment,user_guid,demand_type,id_status_crm,status_text,data,id_demand,"
+            + "notify_object,notify_message,notify_sender,status,nb_attempts,date_creation,date_next_attempt,claim_token,date_claim FROM workflow_appointment_crm_queue ";
+    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = SQL_QUERY_SELECT_COLUMNS + " WHERE id_call = ?";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO workflow_appointment_crm_queue( "
+            + "id_appointment,user_guid,demand_type,id_status_crm,status_text,data,id_demand,notify_object,notify_message,notify_sender,"
+            + "status,nb_attempts,date_creation,date_next_attempt) VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+    private static final String SQL_QUERY_CLAIM = "UPDATE workflow_appointment_crm_queue SET status = ?, claim_token = ?, date_claim = ? "
+            + " WHERE id_call = ? AND status = ? AND date_next_attempt <= ? ";
+    private static final String SQL_QUERY_STORE_ATTEMPT = "UPDATE workflow_appointment_crm_queue SET status = ?, nb_attempts = ?, date_next_attempt = ?, id_demand = ?, claim_token = NULL, date_claim = NULL "
+            + " WHERE id_call = ? ";
+    private static final String SQL_FILTER_EARLIER_CALLS = " SELECT 1 FROM workflow_appointment_crm_queue e WHERE e.user_guid = q.user_guid "
+            + " AND e.id_call < q.id_call AND e.status IN ( ?, ? ) ";
+    private static final String SQL_QUERY_FIND_CALLS_TO_PROCESS = SQL_QUERY_SELECT_COLUMNS + " q WHERE q.status = ? AND q.date_next_attempt <= ? "
+            + " AND NOT EXISTS ( " + SQL_FILTER_EARLIER_CALLS + " ) ORDER BY q.id_call LIMIT ?";
+    private static final String SQL_QUERY_HAS_EARLIER_CALL = "SELECT q.id_call FROM workflow_appointment_crm_queue q WHERE q.id_call = ? "
+            + " AND EXISTS ( " + SQL_FILTER_EARLIER_CALLS + " )";
+    private static final String SQL_QUERY_COUNT_PENDING = "SELECT COUNT(*) FROM workflow_appointment_crm_queue WHERE status = ? ";
+    private static final String SQL_QUERY_RELEASE_CLAIMS = "UPDATE workflow_appointment_crm_queue SET status = ?, claim_token = NULL, date_claim = NULL "
+            + " WHERE status = ? AND date_claim < ? ";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM workflow_appointment_crm_queue WHERE id_call = ? ";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insert( CrmCall call, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, call.getIdAppointment( ) );
+            daoUtil.setString( nIndex++, call.getUserGuid( ) );
+            daoUtil.setString( nIndex++, call.getDemandType( ) );
+            daoUtil.setString( nIndex++, call.getIdStatusCrm( ) );
+            daoUtil.setString( nIndex++, call.getStatusText( ) );
+            daoUtil.setString( nIndex++, call.getData( ) );
+            daoUtil.setString( nIndex++, call.getIdDemand( ) );
+            daoUtil.setString( nIndex++, call.getNotifyObject( ) );
+            daoUtil.setString( nIndex++, call.getNotifyMessage( ) );
+            daoUtil.setString( nIndex++, call.getNotifySender( ) );
+            daoUtil.setInt( nIndex++, call.getStatus( ) );
+            daoUtil.setInt( nIndex++, call.getNbAttempts( ) );
+            daoUtil.setTimestamp( nIndex++, call.getDateCreation( ) );
+            daoUtil.setTimestamp( nIndex, call.getDateNextAttempt( ) );
+            daoUtil.executeUpdate( );
+
+            if ( daoUtil.nextGeneratedKey( ) )
+            {
+                call.setIdCall( daoUtil.getGeneratedKeyInt( 1 ) );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CrmCall load( int nIdCall, Plugin plugin )
+    {
+        CrmCall call = null;
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_BY_PRIMARY_KEY, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdCall );
+            daoUtil.executeQuery( );
+
+            if ( daoUtil.next( ) )
+            {
+                call = dataToObject( daoUtil );
+            }
+        }
+        return call;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void claim( int nIdCall, String strClaimToken, Timestamp dateClaim, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_CLAIM, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, CrmCall.STATUS_IN_PROGRESS );
+            daoUtil.setString( nIndex++, strClaimToken );
+            daoUtil.setTimestamp( nIndex++, dateClaim );
+            daoUtil.setInt( nIndex++, nIdCall );
+            daoUtil.setInt( nIndex++, CrmCall.STATUS_PENDING );
+            daoUtil.setTimestamp( nIndex, dateClaim );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeAttempt( CrmCall call, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_STORE_ATTEMPT, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, call.getStatus( ) );
+            daoUtil.setInt( nIndex++, call.getNbAttempts( ) );
+            daoUtil.setTimestamp( nIndex++, call.getDateNextAttempt( ) );
+            daoUtil.setString( nIndex++, call.getIdDemand( ) );
+            daoUtil.setInt( nIndex, call.getIdCall( ) );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<CrmCall> findCallsToProcess( Timestamp dateNow, int nMaxResults, Plugin plugin )
+    {
+        List<CrmCall> listCalls = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_CALLS_TO_PROCESS, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, CrmCall.STATUS_PENDING );
+            daoUtil.setTimestamp( nIndex++, dateNow );
+            daoUtil.setInt( nIndex++, CrmCall.STATUS_PENDING );
+            daoUtil.setInt( nIndex++, CrmCall.STATUS_IN_PROGRESS );
+            daoUtil.setInt( nIndex, nMaxResults );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listCalls.add( dataToObject( daoUtil ) );
+            }
+        }
+        return listCalls;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasEarlierCall( int nIdCall, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_HAS_EARLIER_CALL, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, nIdCall );
+            daoUtil.setInt( nIndex++, CrmCall.STATUS_PENDING );
+            daoUtil.setInt( nIndex, CrmCall.STATUS_IN_PROGRESS );
+            daoUtil.executeQuery( );
+
+            return daoUtil.next( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int countPending( Plugin plugin )
+    {
+        int nCount = 0;
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_COUNT_PENDING, plugin ) )
+        {
+            daoUtil.setInt( 1, CrmCall.STATUS_PENDING );
+            daoUtil.executeQuery( );
+
+            if ( daoUtil.next( ) )
+            {
+                nCount = daoUtil.getInt( 1 );
+            }
+        }
+        return nCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void releaseClaimsBefore( Timestamp dateLimit, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_RELEASE_CLAIMS, plugin ) )
+        {
+            daoUtil.setInt( 1, CrmCall.STATUS_PENDING );
+            daoUtil.setInt( 2, CrmCall.STATUS_IN_PROGRESS );
+            daoUtil.setTimestamp( 3, dateLimit );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete( int nIdCall, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdCall );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * Build a call from the current row of a query
+     * 
+     * @param daoUtil
+     *            The DAOUtil positioned on the row
+     * @return The call
+     */
+    private CrmCall dataToObject( DAOUtil daoUtil )
+    {
+        int nIndex = 1;
+        CrmCall call = new CrmCall( );
+        call.setIdCall( daoUtil.getInt( nIndex++ ) );
+        call.setIdAppointment( daoUtil.getInt( nIndex++ ) );
+        call.setUserGuid( daoUtil.getString( nIndex++ ) );
+        call.setDemandType( daoUtil.getString( nIndex++ ) );
+        call.setIdStatusCrm( daoUtil.getString( nIndex++ ) );
+        call.setStatusText( daoUtil.getString( nIndex++ ) );
+        call.setData( daoUtil.getString( nIndex++ ) );
+        call.setIdDemand( daoUtil.getString( nIndex++ ) );
+        call.setNotifyObject( daoUtil.getString( nIndex++ ) );
+        call.setNotifyMessage( daoUtil.getString( nIndex++ ) );
+        call.setNotifySender( daoUtil.getString( nIndex++ ) );
+        call.setStatus( daoUtil.getInt( nIndex++ ) );
+        call.setNbAttempts( daoUtil.getInt( nIndex++ ) );
+        call.setDateCreation( daoUtil.getTimestamp( nIndex++ ) );
+        call.setDateNextAttempt( daoUtil.getTimestamp( nIndex++ ) );
+        call.setClaimToken( daoUtil.getString( nIndex++ ) );
+        call.setDateClaim( daoUtil.getTimestamp( nIndex ) );
+
+        return call;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import fr.paris.lutece.plugins.workflow.modules.appointment.service.WorkflowAppointmentPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * Home for the queue of CRM calls
+ */
+public final class CrmCallHome
+{
+    private static ICrmCallDAO _dao = SpringContextService.getBean( "workflow-appointment.crmCallDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( WorkflowAppointmentPlugin.PLUGIN_NAME );
+
+    /**
+     * Private default constructor
+     */
+    private CrmCallHome( )
+    {
+        // Nothing to do
+    }
+
+    /**
+     * Insert a new call into the queue
+     * 
+     * @param call
+     *            The call to insert
+     */
+    public static void create( CrmCall call )
+    {
+        _dao.insert( call, _plugin );
+    }
+
+    /**
+     * Get a call from its primary key
+     * 
+     * @param nIdCall
+     *            The id of the call
+     * @return The call, or null if it was not found
+     */
+    public static CrmCall findByPrimaryKey( int nIdCall )
+    {
+        return _dao.load( nIdCall, _plugin );
+    }
+
+    /**
+     * Claim a pending call for a worker. The call is only claimed if it is still pending, and if its next attempt is due at the date of the claim.
+     * 
+     * @param nIdCall
+     *            The id of the call
+     * @param strClaimToken
+     *            The token of the worker
+     * @param dateClaim
+     *            The date of the claim
+     */
+    public static void claim( int nIdCall, String strClaimToken, Timestamp dateClaim )
+    {
+        _dao.claim( nIdCall, strClaimToken, dateClaim, _plugin );
+    }
+
+    /**
+     * Store the result of a failed attempt to process a call
+     * 
+     * @param call
+     *            The call
+     */
+    public static void storeAttempt( CrmCall call )
+    {
+        _dao.storeAttempt( call, _plugin );
+    }
+
+    /**
+     * Get a batch of pending calls that can be processed now. A call is not returned while an earlier call of its user is pending or in progress.
+     * 
+     * @param nMaxResults
+     *            The maximum number of calls to return
+     * @return The calls
+     */
+    public static List<CrmCall> findCallsToProcess( int nMaxResults )
+    {
+        return _dao.findCallsToProcess( new Timestamp( System.currentTimeMillis( ) ), nMaxResults, _plugin );
+    }
+
+    /**
+     * Check if an earlier call of the user of a call is pending or in progress
+     * 
+     * @param nIdCall
+     *            The id of the call
+     * @return True if an earlier call of the user must be processed first
+     */
+    public static boolean hasEarlierCall( int nIdCall )
+    {
+        return _dao.hasEarlierCall( nIdCall, _plugin );
+    }
+
+    /**
+     * Count the pending calls
+     * 
+     * @return The number of pending calls
+     */
+    public static int countPending( )
+    {
+        return _dao.countPending( _plugin );
+    }
+
+    /**
+     * Release the claims made before a given date
+     * 
+     * @param dateLimit
+     *            The date limit
+     */
+    public static void releaseClaimsBefore( Timestamp dateLimit )
+    {
+        _dao.releaseClaimsBefore( dateLimit, _plugin );
+    }
+
+    /**
+     * Remove a call from the queue
+     * 
+     * @param nIdCall
+     *            The id of the call
+     */
+    public static void remove( int nIdCall )
+    {
+        _dao.delete( nIdCall, _plugin );
+    }
+}
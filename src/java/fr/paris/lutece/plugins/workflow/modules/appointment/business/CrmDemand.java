@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.io.Serializable;
+
+/**
+ * Demand created in the CRM for an appointment and a type of demand
+ */
+public class CrmDemand implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private int _nIdAppointment;
+    private String _strDemandType;
+    private String _strIdDemand;
+
+    /**
+     * Get the id of the appointment
+     * 
+     * @return The id of the appointment
+     */
+    public int getIdAppointment( )
+    {
+        return _nIdAppointment;
+    }
+
+    /**
+     * Set the id of the appointment
+     * 
+     * @param nIdAppointment
+     *            The id of the appointment
+     */
+    public void setIdAppointment( int nIdAppointment )
+    {
+        _nIdAppointment = nIdAppointment;
+    }
+
+    /**
+     * Get the type of the demand
+     * 
+     * @return The type of the demand
+     */
+    public String getDemandType( )
+    {
+        return _strDemandType;
+    }
+
+    /**
+     * Set the type of the demand
+     * 
+     * @param strDemandType
+     *            The type of the demand
+     */
+    public void setDemandType( String strDemandType )
+    {
+        _strDemandType = strDemandType;
+    }
+
+    /**
+     * Get the id of the demand in the CRM
+     * 
+     * @return The id of the demand in the CRM
+     */
+    public String getIdDemand( )
+    {
+        return _strIdDemand;
+    }
+
+    /**
+     * Set the id of the demand in the CRM
+     * 
+     * @param strIdDemand
+     *            The id of the demand in the CRM
+     */
+    public void setIdDemand( String strIdDemand )
+    {
+        _strIdDemand = strIdDemand;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import fr.paris.lutece.plugins.workflow.modules.appointment.service.WorkflowAppointmentPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * Home for the demands created in the CRM for the appointments
+ */
+public final class CrmDemandHome
+{
+    private static ICrmDemandDAO _dao = SpringContextService.getBean( "workflow-appointment.crmDemandDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( WorkflowAppointmentPlugin.PLUGIN_NAME );
+
+    /**
+     * Private default constructor
+     */
+    private CrmDemandHome( )
+    {
+        // Nothing to do
+    }
+
+    /**
+     * Insert a new demand
+     * 
+     * @param demand
+     *            The demand to insert
+     */
+    public static void create( CrmDemand demand )
+    {
+        _dao.insert( demand, _plugin );
+    }
+
+    /**
+     * Get the demand of an appointment for a type of demand
+     * 
+     * @param nIdAppointment
+     *            The id of the appointment
+     * @param strDemandType
+     *            The type of the demand
+     * @return The demand, or null if no demand was created for this appointment and type of demand
+     */
+    public static CrmDemand find( int nIdAppointment, String strDemandType )
+    {
+        return _dao.load( nIdAppointment, strDemandType, _plugin );
+    }
+
+    /**
+     * Remove the demands of an appointment
+     * 
+     * @param nIdAppointment
+     *            The id of the appointment
+     */
+    public static void removeByIdAppointment( int nIdAppointment )
+    {
+        _dao.deleteByIdAppointment( nIdAppointment, _plugin );
+    }
+}
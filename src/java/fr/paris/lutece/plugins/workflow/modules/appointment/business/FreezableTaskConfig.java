@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import fr.paris.lutece.plugins.workflowcore.business.config.TaskConfig;
+
+/**
+ * Task config that can be frozen. Once frozen, a config can not be modified anymore and can be shared between threads : setters of subclasses must call
+ * {@link #checkNotFrozen()}. A modifiable copy of a frozen config can be obtained with {@link #mutableCopy()}.
+ */
+public abstract class FreezableTaskConfig extends TaskConfig implements Cloneable
+{
+    private static final String MESSAGE_FROZEN = "The configuration of the task is frozen and can not be modified : ";
+
+    private volatile boolean _bFrozen;
+
+    /**
+     * Freeze this config
+     */
+    public void freeze( )
+    {
+        _bFrozen = true;
+    }
+
+    /**
+     * Check if this config is frozen
+     * 
+     * @return true if this config is frozen, false otherwise
+     */
+    public boolean isFrozen( )
+    {
+        return _bFrozen;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @throws IllegalStateException
+     *             If this config is frozen
+     */
+    @Override
+    public void setIdTask( int nIdTask )
+    {
+        checkNotFrozen( );
+        super.setIdTask( nIdTask );
+    }
+
+    /**
+     * Get a modifiable copy of this config
+     * 
+     * @param <T>
+     *            The type of the config
+     * @return The copy of this config, not frozen
+     */
+    @SuppressWarnings( "unchecked" )
+    public <T extends FreezableTaskConfig> T mutableCopy( )
+    {
+        try
+        {
+            FreezableTaskConfig config = (FreezableTaskConfig) clone( );
+            config._bFrozen = false;
+
+            return (T) config;
+        }
+        catch( CloneNotSupportedException e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * Check that this config is not frozen before a modification
+     * 
+     * @throws IllegalStateException
+     *             If this config is frozen
+     */
+    protected void checkNotFrozen( )
+    {
+        if ( _bFrozen )
+        {
+            throw new IllegalStateException( MESSAGE_FROZEN + getIdTask( ) );
+        }
+    }
+}
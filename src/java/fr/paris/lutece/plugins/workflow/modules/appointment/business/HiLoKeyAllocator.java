@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * Hi-lo allocator of primary keys. Keys are taken from blocks of {@link #BLOCK_SIZE} keys reserved in the database : the keys of the block number N are the
+ * keys from B + N * {@link #BLOCK_SIZE} to B + (N + 1) * {@link #BLOCK_SIZE} - 1, where B is the base key of the sequence. Keys of a block are allocated
+ * without any lock, and the database is only called when a block is exhausted. Since block numbers are generated by the database and reserved outside of the
+ * transaction of the caller, two nodes never allocate the same key.
+ */
+public class HiLoKeyAllocator implements IKeyAllocator
+{
+    /**
+     * The number of keys of a block. It must not be changed once keys have been allocated, or blocks could overlap.
+     */
+    public static final int BLOCK_SIZE = 100;
+
+    private final String _strSequenceName;
+    private final Object _lock = new Object( );
+    private IKeyBlockDAO _keyBlockDAO;
+    private volatile KeyBlock _keyBlock;
+    private Integer _nBaseKey;
+
+    /**
+     * Constructor
+     * 
+     * @param strSequenceName
+     *            The name of the sequence, usually the name of the table
+     */
+    public HiLoKeyAllocator( String strSequenceName )
+    {
+        _strSequenceName = strSequenceName;
+    }
+
+    /**
+     * Set the DAO of the blocks of keys
+     * 
+     * @param keyBlockDAO
+     *            The DAO of the blocks of keys
+     */
+    public void setKeyBlockDAO( IKeyBlockDAO keyBlockDAO )
+    {
+        _keyBlockDAO = keyBlockDAO;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int newKey( Plugin plugin )
+    {
+        while ( true )
+        {
+            KeyBlock keyBlock = _keyBlock;
+
+            if ( keyBlock != null )
+            {
+                int nKey = keyBlock.nextKey( );
+                if ( nKey >= 0 )
+                {
+                    return nKey;
+                }
+            }
+
+            synchronized( _lock )
+            {
+                // Another thread may already have reserved a new block
+                if ( _keyBlock == keyBlock )
+                {
+                    if ( _nBaseKey == null )
+                    {
+                        _nBaseKey = _keyBlockDAO.findBaseKey( _strSequenceName, plugin );
+                    }
+                    _keyBlock = new KeyBlock( _nBaseKey + _keyBlockDAO.reserveBlock( _strSequenceName, plugin ) * BLOCK_SIZE );
+                }
+            }
+        }
+    }
+
+    /**
+     * Block of keys
+     */
+    private static final class KeyBlock
+    {
+        private final AtomicInteger _nNextKey;
+        private final int _nLimit;
+
+        /**
+         * Constructor
+         * 
+         * @param nFirstKey
+         *            The first key of the block
+         */
+        KeyBlock( int nFirstKey )
+        {
+            _nNextKey = new AtomicInteger( nFirstKey );
+            _nLimit = nFirstKey + BLOCK_SIZE;
+        }
+
+        /**
+         * Get the next key of the block
+         * 
+         * @return The next key, or -1 if the block is exhausted
+         */
+        int nextKey( )
+        {
+            int nKey = _nNextKey.getAndIncrement( );
+
+            return ( nKey < _nLimit ) ? nKey : -1;
+        }
+    }
+}
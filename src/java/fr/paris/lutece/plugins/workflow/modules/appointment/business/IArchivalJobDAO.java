@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * Interface of the DAO of the archival jobs
+ */
+public interface IArchivalJobDAO
+{
+    /**
+     * Insert a new job
+     * 
+     * @param job
+     *            The job to insert
+     * @param plugin
+     *            The plugin
+     */
+    void insert( ArchivalJob job, Plugin plugin );
+
+    /**
+     * Update the progress of a job
+     * 
+     * @param job
+     *            The job to update
+     * @param plugin
+     *            The plugin
+     */
+    void store( ArchivalJob job, Plugin plugin );
+
+    /**
+     * Get a job from its primary key
+     * 
+     * @param nIdJob
+     *            The id of the job
+     * @param plugin
+     *            The plugin
+     * @return The job, or null if it was not found
+     */
+    ArchivalJob load( int nIdJob, Plugin plugin );
+
+    /**
+     * Get the last job of a code and an archival type that did not complete
+     * 
+     * @param strJobCode
+     *            The code of the job
+     * @param strArchivalType
+     *            The archival type
+     * @param plugin
+     *            The plugin
+     * @return The job, or null if every job of the code and the archival type completed
+     */
+    ArchivalJob findRunningJob( String strJobCode, String strArchivalType, Plugin plugin );
+
+    /**
+     * Get the last jobs, the most recent first
+     * 
+     * @param nMaxResults
+     *            The maximum number of jobs
+     * @param plugin
+     *            The plugin
+     * @return The jobs
+     */
+    List<ArchivalJob> findLastJobs( int nMaxResults, Plugin plugin );
+
+    /**
+     * Delete a job
+     * 
+     * @param nIdJob
+     *            The id of the job
+     * @param plugin
+     *            The plugin
+     */
+    void delete( int nIdJob, Plugin plugin );
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import fr.paris.lutece.plugins.appointment.business.user.User;
+import fr.paris.lutece.plugins.genericattributes.business.Response;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * Interface for the DAO used to anonymize appointments in bulk
+ */
+public interface IBulkAnonymizationDAO
+{
+    /**
+     * Get the appointments to anonymize
+     * 
+     * @param listIdAppointments
+     *            The ids of the appointments
+     * @param plugin
+     *            The plugin
+     * @return The appointments that were found
+     */
+    List<AnonymizableAppointment> findAppointments( Collection<Integer> listIdAppointments, Plugin plugin );
+
+    /**
+     * Get the appointments of the forms of a workflow whose last slot ended before a date, by increasing id
+     * 
+     * @param nIdWorkflow
+     *            The id of the workflow
+     * @param dateEnd
+     *            The date
+     * @param bNotAnonymized
+     *            true to exclude the appointments already anonymized
+     * @param nMaxResults
+     *            The maximum number of appointments returned
+     * @param plugin
+     *            The plugin
+     * @return The ids of the appointments
+     */
+    List<Integer> findEndedAppointments( int nIdWorkflow, Timestamp dateEnd, boolean bNotAnonymized, int nMaxResults, Plugin plugin );
+
+    /**
+     * Get the responses of appointments. The entry of the responses only holds its id.
+     * 
+     * @param listIdAppointments
+     *            The ids of the appointments
+     * @param plugin
+     *            The plugin
+     * @return The responses by id of appointment
+     */
+    Map<Integer, List<Response>> findResponses( Collection<Integer> listIdAppointments, Plugin plugin );
+
+    /**
+     * Update the names and the email of users in a single batch
+     * 
+     * @param listUsers
+     *            The users
+     * @param plugin
+     *            The plugin
+     */
+    void updateUsers( List<User> listUsers, Plugin plugin );
+
+    /**
+     * Update the values of responses in a single batch
+     * 
+     * @param listResponses
+     *            The responses
+     * @param plugin
+     *            The plugin
+     */
+    void updateResponseValues( List<Response> listResponses, Plugin plugin );
+
+    /**
+     * Get the appointments already anonymized
+     * 
+     * @param listIdAppointments
+     *            The ids of the appointments
+     * @param plugin
+     *            The plugin
+     * @return The ids of the appointments already anonymized
+     */
+    Set<Integer> findAnonymizedAppointments( Collection<Integer> listIdAppointments, Plugin plugin );
+
+    /**
+     * Mark appointments as anonymized in a single batch
+     * 
+     * @param listIdAppointments
+     *            The ids of the appointments
+     * @param dateAnonymized
+     *            The date of the anonymization
+     * @param plugin
+     *            The plugin
+     */
+    void insertAnonymizedAppointments( Collection<Integer> listIdAppointments, Timestamp dateAnonymized, Plugin plugin );
+
+    /**
+     * Remove the anonymization mark of an appointment
+     * 
+     * @param nIdAppointment
+     *            The id of the appointment
+     * @param plugin
+     *            The plugin
+     */
+    void deleteAnonymizedAppointment( int nIdAppointment, Plugin plugin );
+}
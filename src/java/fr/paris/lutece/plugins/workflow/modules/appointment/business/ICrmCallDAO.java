@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * Interface for the DAO of the queue of CRM calls
+ */
+public interface ICrmCallDAO
+{
+    /**
+     * Insert a new call into the queue. The id of the call is set by this method.
+     * 
+     * @param call
+     *            The call to insert
+     * @param plugin
+     *            The plugin
+     */
+    void insert( CrmCall call, Plugin plugin );
+
+    /**
+     * Get a call from its primary key
+     * 
+     * @param nIdCall
+     *            The id of the call
+     * @param plugin
+     *            The plugin
+     * @return The call, or null if it was not found
+     */
+    CrmCall load( int nIdCall, Plugin plugin );
+
+    /**
+     * Claim a pending call for a worker. The call is only claimed if it is still pending, and if its next attempt is due at the date of the claim.
+     * 
+     * @param nIdCall
+     *            The id of the call
+     * @param strClaimToken
+     *            The token of the worker
+     * @param dateClaim
+     *            The date of the claim
+     * @param plugin
+     *            The plugin
+     */
+    void claim( int nIdCall, String strClaimToken, Timestamp dateClaim, Plugin plugin );
+
+    /**
+     * Store the result of a failed attempt to process a call, and release its claim. The id of the demand is stored, so that a demand that was already
+     * created is not created again by the next attempt.
+     * 
+     * @param call
+     *            The call
+     * @param plugin
+     *            The plugin
+     */
+    void storeAttempt( CrmCall call, Plugin plugin );
+
+    /**
+     * Get a batch of pending calls that can be processed, ordered by id. A call is not returned while an earlier call of its user is pending or in
+     * progress.
+     * 
+     * @param dateNow
+     *            The current date
+     * @param nMaxResults
+     *            The maximum number of calls to return
+     * @param plugin
+     *            The plugin
+     * @return The calls
+     */
+    List<CrmCall> findCallsToProcess( Timestamp dateNow, int nMaxResults, Plugin plugin );
+
+    /**
+     * Check if an earlier call of the user of a call is pending or in progress
+     * 
+     * @param nIdCall
+     *            The id of the call
+     * @param plugin
+     *            The plugin
+     * @return True if an earlier call of the user must be processed first
+     */
+    boolean hasEarlierCall( int nIdCall, Plugin plugin );
+
+    /**
+     * Count the pending calls
+     * 
+     * @param plugin
+     *            The plugin
+     * @return The number of pending calls
+     */
+    int countPending( Plugin plugin );
+
+    /**
+     * Release the claims made before a given date, so that the calls can be processed again
+     * 
+     * @param dateLimit
+     *            The date limit
+     * @param plugin
+     *            The plugin
+     */
+    void releaseClaimsBefore( Timestamp dateLimit, Plugin plugin );
+
+    /**
+     * Delete a call from the queue
+     * 
+     * @param nIdCall
+     *            The id of the call
+     * @param plugin
+     *            The plugin
+     */
+    void delete( int nIdCall, Plugin plugin );
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * Interface for the DAO of the notification outbox
+ */
+public interface INotificationOutboxDAO
+{
+    /**
+     * Insert a new notification into the outbox. The id of the notification is set by this method.
+     * 
+     * @param item
+     *            The notification to insert
+     * @param plugin
+     *            The plugin
+     */
+    void insert( NotificationOutboxItem item, Plugin plugin );
+
+    /**
+     * Get a notification from its primary key
+     * 
+     * @param nIdNotification
+     *            The id of the notification
+     * @param plugin
+     *            The plugin
+     * @return The notification, or null if it was not found
+     */
+    NotificationOutboxItem load( int nIdNotification, Plugin plugin );
+
+    /**
+     * Claim a pending notification for a worker. The claim only succeeds if the notification is still pending.
+     * 
+     * @param nIdNotification
+     *            The id of the notification
+     * @param strClaimToken
+     *            The token of the worker
+     * @param dateClaim
+     *            The date of the claim
+     * @param plugin
+     *            The plugin
+     */
+    void claim( int nIdNotification, String strClaimToken, Timestamp dateClaim, Plugin plugin );
+
+    /**
+     * Update the status, the number of attempts and the date of the next attempt of a notification, and release its claim
+     * 
+     * @param item
+     *            The notification
+     * @param plugin
+     *            The plugin
+     */
+    void storeAttempt( NotificationOutboxItem item, Plugin plugin );
+
+    /**
+     * Get the ids of the pending notifications that can be sent at a given date, ordered by creation
+     * 
+     * @param dateNow
+     *            The date
+     * @param nMaxResults
+     *            The maximum number of ids to return
+     * @param plugin
+     *            The plugin
+     * @return The list of ids
+     */
+    List<Integer> findIdsToSend( Timestamp dateNow, int nMaxResults, Plugin plugin );
+
+    /**
+     * Release the claims made before a given date, so that notifications claimed by a worker that stopped can be sent again
+     * 
+     * @param dateLimit
+     *            The date
+     * @param plugin
+     *            The plugin
+     */
+    void releaseClaimsBefore( Timestamp dateLimit, Plugin plugin );
+
+    /**
+     * Remove a notification from the outbox
+     * 
+     * @param nIdNotification
+     *            The id of the notification
+     * @param plugin
+     *            The plugin
+     */
+    void delete( int nIdNotification, Plugin plugin );
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import fr.paris.lutece.portal.service.database.PluginConnectionService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * DAO of the blocks of primary keys
+ */
+public class KeyBlockDAO implements IKeyBlockDAO
+{
+    private static final String SQL_QUERY_INSERT = "INSERT INTO workflow_appointment_key_block( sequence_name ) VALUES ( ? )";
+    private static final String SQL_QUERY_FIND_BASE_KEY = "SELECT base_key FROM workflow_appointment_key_base WHERE sequence_name = ?";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int reserveBlock( String strSequenceName, Plugin plugin )
+    {
+        // A connection of the pool is used instead of the connection of the current transaction
+        PluginConnectionService connectionService = plugin.getConnectionService( );
+        Connection connection = connectionService.getConnection( );
+
+        try
+        {
+            boolean bAutoCommit = connection.getAutoCommit( );
+            connection.setAutoCommit( true );
+
+            try ( PreparedStatement statement = connection.prepareStatement( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS ) )
+            {
+                statement.setString( 1, strSequenceName );
+                statement.executeUpdate( );
+
+                try ( ResultSet generatedKeys = statement.getGeneratedKeys( ) )
+                {
+                    if ( generatedKeys.next( ) )
+                    {
+                        return generatedKeys.getInt( 1 );
+                    }
+                }
+            }
+            finally
+            {
+                connection.setAutoCommit( bAutoCommit );
+            }
+        }
+        catch( SQLException e )
+        {
+            throw new AppException( "Unable to reserve a block of keys for the sequence " + strSequenceName + " : " + e.getMessage( ), e );
+        }
+        finally
+        {
+            connectionService.freeConnection( connection );
+        }
+
+        throw new IllegalStateException( "Unable to reserve a block of keys for the sequence " + strSequenceName );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int findBaseKey( String strSequenceName, Plugin plugin )
+    {
+        int nBaseKey = 0;
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_BASE_KEY, plugin ) )
+        {
+            daoUtil.setString( 1, strSequenceName );
+            daoUtil.executeQuery( );
+
+            if ( daoUtil.next( ) )
+            {
+                nBaseKey = daoUtil.getInt( 1 );
+            }
+        }
+        return nBaseKey;
+    }
+}
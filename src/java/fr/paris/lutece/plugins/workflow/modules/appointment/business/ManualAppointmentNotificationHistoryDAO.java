@@ -52,36 +52,27 @@ public class ManualAppointmentNotificationHistoryDAO implements IManualAppointme
             + "VALUES (?,?,?,?,?,?)";
     private static final String SQL_QUERY_DELETE = "DELETE FROM workflow_task_manual_app_notify WHERE id_notif = ? ";
     private static final String SQL_QUERY_DELETE_BY_ID_APPOINTMENT = "DELETE FROM workflow_task_manual_app_notify WHERE id_appointment = ? ";
-    private static final String SQL_QUEERY_NEW_PRIMARY_KEY = "SELECT MAX(id_notif) FROM workflow_task_manual_app_notify";
+
+    private IKeyAllocator _keyAllocator;
 
     /**
-     * Get a new primary key
+     * Set the allocator of the primary keys
      * 
-     * @param plugin
-     *            The plugin
-     * @return The new value of the primary key
+     * @param keyAllocator
+     *            The allocator of the primary keys
      */
-    private int newPrimaryKey( Plugin plugin )
+    public void setKeyAllocator( IKeyAllocator keyAllocator )
     {
-        int nRes = 1;
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUEERY_NEW_PRIMARY_KEY, plugin ) )
-        {
-            daoUtil.executeQuery( );
-            if ( daoUtil.next( ) )
-            {
-                nRes = daoUtil.getInt( 1 ) + 1;
-            }
-        }
-        return nRes;
+        _keyAllocator = keyAllocator;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public synchronized void create( ManualAppointmentNotificationHistory history, Plugin plugin )
+    public void create( ManualAppointmentNotificationHistory history, Plugin plugin )
     {
-        history.setIdManualNotif( newPrimaryKey( plugin ) );
+        history.setIdManualNotif( _keyAllocator.newKey( plugin ) );
 
         try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin ) )
         {
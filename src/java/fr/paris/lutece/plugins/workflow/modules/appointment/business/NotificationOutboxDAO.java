@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * DAO of the notification outbox
+ */
+public class NotificationOutboxDAO implements INotificationOutboxDAO
+{
+    private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_notification,id_appointment,recipient_to,recipients_cc,recipients_bcc,sender_name,sender_email,subject,content,"
+            + "ical_notification,create_notif,ical_content,status,nb_attempts,date_creation,date_next_attempt,claim_token,date_claim FROM workflow_appointment_notify_outbox ";
+    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = SQL_QUERY_SELECT_COLUMNS + " WHERE id_notification = ?";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO workflow_appointment_notify_outbox( "
+            + "id_appointment,recipient_to,recipients_cc,recipients_bcc,sender_name,sender_email,subject,content,"
+            + "ical_notification,create_notif,ical_content,status,nb_attempts,date_creation,date_next_attempt) VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+    private static final String SQL_QUERY_CLAIM = "UPDATE workflow_appointment_notify_outbox SET status = ?, claim_token = ?, date_claim = ? "
+            + " WHERE id_notification = ? AND status = ? ";
+    private static final String SQL_QUERY_STORE_ATTEMPT = "UPDATE workflow_appointment_notify_outbox SET status = ?, nb_attempts = ?, date_next_attempt = ?, claim_token = NULL, date_claim = NULL "
+            + " WHERE id_notification = ? ";
+    private static final String SQL_QUERY_FIND_IDS_TO_SEND = "SELECT id_notification FROM workflow_appointment_notify_outbox WHERE status = ? AND date_next_attempt <= ? ORDER BY id_notification LIMIT ?";
+    private static final String SQL_QUERY_RELEASE_CLAIMS = "UPDATE workflow_appointment_notify_outbox SET status = ?, claim_token = NULL, date_claim = NULL "
+            + " WHERE status = ? AND date_claim < ? ";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM workflow_appointment_notify_outbox WHERE id_notification = ? ";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insert( NotificationOutboxItem item, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, item.getIdAppointment( ) );
+            daoUtil.setString( nIndex++, item.getRecipientTo( ) );
+            daoUtil.setString( nIndex++, item.getRecipientsCc( ) );
+            daoUtil.setString( nIndex++, item.getRecipientsBcc( ) );
+            daoUtil.setString( nIndex++, item.getSenderName( ) );
+            daoUtil.setString( nIndex++, item.getSenderEmail( ) );
+            daoUtil.setString( nIndex++, item.getSubject( ) );
+            daoUtil.setString( nIndex++, item.getContent( ) );
+            daoUtil.setBoolean( nIndex++, item.getSendICalNotif( ) );
+            daoUtil.setBoolean( nIndex++, item.getCreateNotif( ) );
+            daoUtil.setString( nIndex++, item.getICalContent( ) );
+            daoUtil.setInt( nIndex++, item.getStatus( ) );
+            daoUtil.setInt( nIndex++, item.getNbAttempts( ) );
+            daoUtil.setTimestamp( nIndex++, item.getDateCreation( ) );
+            daoUtil.setTimestamp( nIndex, item.getDateNextAttempt( ) );
+            daoUtil.executeUpdate( );
+
+            if ( daoUtil.nextGeneratedKey( ) )
+            {
+                item.setIdNotification( daoUtil.getGeneratedKeyInt( 1 ) );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public NotificationOutboxItem load( int nIdNotification, Plugin plugin )
+    {
+        NotificationOutboxItem item = null;
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_BY_PRIMARY_KEY, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdNotification );
+            daoUtil.executeQuery( );
+
+            if ( daoUtil.next( ) )
+            {
+                int nIndex = 1;
+                item = new NotificationOutboxItem( );
+                item.setIdNotification( daoUtil.getInt( nIndex++ ) );
+                item.setIdAppointment( daoUtil.getInt( nIndex++ ) );
+                item.setRecipientTo( daoUtil.getString( nIndex++ ) );
+                item.setRecipientsCc( daoUtil.getString( nIndex++ ) );
+                item.setRecipientsBcc( daoUtil.getString( nIndex++ ) );
+                item.setSenderName( daoUtil.getString( nIndex++ ) );
+                item.setSenderEmail( daoUtil.getString( nIndex++ ) );
+                item.setSubject( daoUtil.getString( nIndex++ ) );
+                item.setContent( daoUtil.getString( nIndex++ ) );
+                item.setSendICalNotif( daoUtil.getBoolean( nIndex++ ) );
+                item.setCreateNotif( daoUtil.getBoolean( nIndex++ ) );
+                item.setICalContent( daoUtil.getString( nIndex++ ) );
+                item.setStatus( daoUtil.getInt( nIndex++ ) );
+                item.setNbAttempts( daoUtil.getInt( nIndex++ ) );
+                item.setDateCreation( daoUtil.getTimestamp( nIndex++ ) );
+                item.setDateNextAttempt( daoUtil.getTimestamp( nIndex++ ) );
+                item.setClaimToken( daoUtil.getString( nIndex++ ) );
+                item.setDateClaim( daoUtil.getTimestamp( nIndex ) );
+            }
+        }
+        return item;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void claim( int nIdNotification, String strClaimToken, Timestamp dateClaim, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_CLAIM, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, NotificationOutboxItem.STATUS_IN_PROGRESS );
+            daoUtil.setString( nIndex++, strClaimToken );
+            daoUtil.setTimestamp( nIndex++, dateClaim );
+            daoUtil.setInt( nIndex++, nIdNotification );
+            daoUtil.setInt( nIndex, NotificationOutboxItem.STATUS_PENDING );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeAttempt( NotificationOutboxItem item, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_STORE_ATTEMPT, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, item.getStatus( ) );
+            daoUtil.setInt( nIndex++, item.getNbAttempts( ) );
+            daoUtil.setTimestamp( nIndex++, item.getDateNextAttempt( ) );
+            daoUtil.setInt( nIndex, item.getIdNotification( ) );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Integer> findIdsToSend( Timestamp dateNow, int nMaxResults, Plugin plugin )
+    {
+        List<Integer> listIds = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_IDS_TO_SEND, plugin ) )
+        {
+            daoUtil.setInt( 1, NotificationOutboxItem.STATUS_PENDING );
+            daoUtil.setTimestamp( 2, dateNow );
+            daoUtil.setInt( 3, nMaxResults );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listIds.add( daoUtil.getInt( 1 ) );
+            }
+        }
+        return listIds;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void releaseClaimsBefore( Timestamp dateLimit, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_RELEASE_CLAIMS, plugin ) )
+        {
+            daoUtil.setInt( 1, NotificationOutboxItem.STATUS_PENDING );
+            daoUtil.setInt( 2, NotificationOutboxItem.STATUS_IN_PROGRESS );
+            daoUtil.setTimestamp( 3, dateLimit );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete( int nIdNotification, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdNotification );
+            daoUtil.executeUpdate( );
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import fr.paris.lutece.plugins.workflow.modules.appointment.service.WorkflowAppointmentPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * Home for the notification outbox
+ */
+public final class NotificationOutboxHome
+{
+    private static INotificationOutboxDAO _dao = SpringContextService.getBean( "workflow-appointment.notificationOutboxDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( WorkflowAppointmentPlugin.PLUGIN_NAME );
+
+    /**
+     * Private default constructor
+     */
+    private NotificationOutboxHome( )
+    {
+        // Nothing to do
+    }
+
+    /**
+     * Insert a new notification into the outbox
+     * 
+     * @param item
+     *            The notification to insert
+     */
+    public static void create( NotificationOutboxItem item )
+    {
+        _dao.insert( item, _plugin );
+    }
+
+    /**
+     * Get a notification from its primary key
+     * 
+     * @param nIdNotification
+     *            The id of the notification
+     * @return The notification, or null if it was not found
+     */
+    public static NotificationOutboxItem findByPrimaryKey( int nIdNotification )
+    {
+        return _dao.load( nIdNotification, _plugin );
+    }
+
+    /**
+     * Claim a pending notification for a worker
+     * 
+     * @param nIdNotification
+     *            The id of the notification
+     * @param strClaimToken
+     *            The token of the worker
+     * @param dateClaim
+     *            The date of the claim
+     */
+    public static void claim( int nIdNotification, String strClaimToken, Timestamp dateClaim )
+    {
+        _dao.claim( nIdNotification, strClaimToken, dateClaim, _plugin );
+    }
+
+    /**
+     * Store the result of an attempt to send a notification
+     * 
+     * @param item
+     *            The notification
+     */
+    public static void storeAttempt( NotificationOutboxItem item )
+    {
+        _dao.storeAttempt( item, _plugin );
+    }
+
+    /**
+     * Get the ids of the pending notifications that can be sent now
+     * 
+     * @param nMaxResults
+     *            The maximum number of ids to return
+     * @return The list of ids
+     */
+    public static List<Integer> findIdsToSend( int nMaxResults )
+    {
+        return _dao.findIdsToSend( new Timestamp( System.currentTimeMillis( ) ), nMaxResults, _plugin );
+    }
+
+    /**
+     * Release the claims made before a given date
+     * 
+     * @param dateLimit
+     *            The date
+     */
+    public static void releaseClaimsBefore( Timestamp dateLimit )
+    {
+        _dao.releaseClaimsBefore( dateLimit, _plugin );
+    }
+
+    /**
+     * Remove a notification from the outbox
+     * 
+     * @param nIdNotification
+     *            The id of the notification
+     */
+    public static void remove( int nIdNotification )
+    {
+        _dao.delete( nIdNotification, _plugin );
+    }
+}
@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.sql.Timestamp;
+
+/**
+ * Rendered notification waiting in the outbox to be sent
+ */
+public class NotificationOutboxItem
+{
+    /**
+     * Status of a notification waiting to be sent
+     */
+    public static final int STATUS_PENDING = 0;
+
+    /**
+     * Status of a notification being sent by a worker
+     */
+    public static final int STATUS_IN_PROGRESS = 1;
+
+    /**
+     * Status of a notification that could not be sent after the maximum number of attempts
+     */
+    public static final int STATUS_FAILED = 2;
+
+    private int _nIdNotification;
+    private int _nIdAppointment;
+    private String _strRecipientTo;
+    private String _strRecipientsCc;
+    private String _strRecipientsBcc;
+    private String _strSenderName;
+    private String _strSenderEmail;
+    private String _strSubject;
+    private String _strContent;
+    private boolean _bSendICalNotif;
+    private boolean _bCreateNotif;
+    private String _strICalContent;
+    private int _nStatus;
+    private int _nNbAttempts;
+    private Timestamp _dateCreation;
+    private Timestamp _dateNextAttempt;
+    private String _strClaimToken;
+    private Timestamp _dateClaim;
+
+    /**
+     * Get the id of the notification
+     * 
+     * @return The id of the notification
+     */
+    public int getIdNotification( )
+    {
+        return _nIdNotification;
+    }
+
+    /**
+     * Set the id of the notification
+     * 
+     * @param nIdNotification
+     *            The id of the notification
+     */
+    public void setIdNotification( int nIdNotification )
+    {
+        _nIdNotification = nIdNotification;
+    }
+
+    /**
+     * Get the id of the appointment the notification is about
+     * 
+     * @return The id of the appointment the notification is about
+     */
+    public int getIdAppointment( )
+    {
+        return _nIdAppointment;
+    }
+
+    /**
+     * Set the id of the appointment the notification is about
+     * 
+     * @param nIdAppointment
+     *            The id of the appointment the notification is about
+     */
+    public void setIdAppointment( int nIdAppointment )
+    {
+        _nIdAppointment = nIdAppointment;
+    }
+
+    /**
+     * Get the address to send the notification to
+     * 
+     * @return The address to send the notification to
+     */
+    public String getRecipientTo( )
+    {
+        return _strRecipientTo;
+    }
+
+    /**
+     * Set the address to send the notification to
+     * 
+     * @param strRecipientTo
+     *            The address to send the notification to
+     */
+    public void setRecipientTo( String strRecipientTo )
+    {
+        _strRecipientTo = strRecipientTo;
+    }
+
+    /**
+     * Get the carbon copies recipients
+     * 
+     * @return The carbon copies recipients
+     */
+    public String getRecipientsCc( )
+    {
+        return _strRecipientsCc;
+    }
+
+    /**
+     * Set the carbon copies recipients
+     * 
+     * @param strRecipientsCc
+     *            The carbon copies recipients
+     */
+    public void setRecipientsCc( String strRecipientsCc )
+    {
+        _strRecipientsCc = strRecipientsCc;
+    }
+
+    /**
+     * Get the blind carbon copies recipients
+     * 
+     * @return The blind carbon copies recipients
+     */
+    public String getRecipientsBcc( )
+    {
+        return _strRecipientsBcc;
+    }
+
+    /**
+     * Set the blind carbon copies recipients
+     * 
+     * @param strRecipientsBcc
+     *            The blind carbon copies recipients
+     */
+    public void setRecipientsBcc( String strRecipientsBcc )
+    {
+        _strRecipientsBcc = strRecipientsBcc;
+    }
+
+    /**
+     * Get the name of the sender
+     * 
+     * @return The name of the sender
+     */
+    public String getSenderName( )
+    {
+        return _strSenderName;
+    }
+
+    /**
+     * Set the name of the sender
+     * 
+     * @param strSenderName
+     *            The name of the sender
+     */
+    public void setSenderName( String strSenderName )
+    {
+        _strSenderName = strSenderName;
+    }
+
+    /**
+     * Get the email of the sender
+     * 
+     * @return The email of the sender
+     */
+    public String getSenderEmail( )
+    {
+        return _strSenderEmail;
+    }
+
+    /**
+     * Set the email of the sender
+     * 
+     * @param strSenderEmail
+     *            The email of the sender
+     */
+    public void setSenderEmail( String strSenderEmail )
+    {
+        _strSenderEmail = strSenderEmail;
+    }
+
+    /**
+     * Get the rendered subject of the notification
+     * 
+     * @return The rendered subject of the notification
+     */
+    public String getSubject( )
+    {
+        return _strSubject;
+    }
+
+    /**
+     * Set the rendered subject of the notification
+     * 
+     * @param strSubject
+     *            The rendered subject of the notification
+     */
+    public void setSubject( String strSubject )
+    {
+        _strSubject = strSubject;
+    }
+
+    /**
+     * Get the rendered content of the notification
+     * 
+     * @return The rendered content of the notification
+     */
+    public String getContent( )
+    {
+        return _strContent;
+    }
+
+    /**
+     * Set the rendered content of the notification
+     * 
+     * @param strContent
+     *            The rendered content of the notification
+     */
+    public void setContent( String strContent )
+    {
+        _strContent = strContent;
+    }
+
+    /**
+     * Get whether the notification is sent as an iCal invitation
+     * 
+     * @return Whether the notification is sent as an iCal invitation
+     */
+    public boolean getSendICalNotif( )
+    {
+        return _bSendICalNotif;
+    }
+
+    /**
+     * Set whether the notification is sent as an iCal invitation
+     * 
+     * @param bSendICalNotif
+     *            Whether the notification is sent as an iCal invitation
+     */
+    public void setSendICalNotif( boolean bSendICalNotif )
+    {
+        _bSendICalNotif = bSendICalNotif;
+    }
+
+    /**
+     * Get whether the iCal invitation creates or removes the appointment
+     * 
+     * @return Whether the iCal invitation creates or removes the appointment
+     */
+    public boolean getCreateNotif( )
+    {
+        return _bCreateNotif;
+    }
+
+    /**
+     * Set whether the iCal invitation creates or removes the appointment
+     * 
+     * @param bCreateNotif
+     *            Whether the iCal invitation creates or removes the appointment
+     */
+    public void setCreateNotif( boolean bCreateNotif )
+    {
+        _bCreateNotif = bCreateNotif;
+    }
+
+    /**
+     * Get the iCal content of the invitation
+     * 
+     * @return The iCal content of the invitation
+     */
+    public String getICalContent( )
+    {
+        return _strICalContent;
+    }
+
+    /**
+     * Set the iCal content of the invitation
+     * 
+     * @param strICalContent
+     *            The iCal content of the invitation
+     */
+    public void setICalContent( String strICalContent )
+    {
+        _strICalContent = strICalContent;
+    }
+
+    /**
+     * Get the status of the notification
+     * 
+     * @return The status of the notification
+     */
+    public int getStatus( )
+    {
+        return _nStatus;
+    }
+
+    /**
+     * Set the status of the notification
+     * 
+     * @param nStatus
+     *            The status of the notification
+     */
+    public void setStatus( int nStatus )
+    {
+        _nStatus = nStatus;
+    }
+
+    /**
+     * Get the number of failed attempts to send the notification
+     * 
+     * @return The number of failed attempts to send the notification
+     */
+    public int getNbAttempts( )
+    {
+        return _nNbAttempts;
+    }
+
+    /**
+     * Set the number of failed attempts to send the notification
+     * 
+     * @param nNbAttempts
+     *            The number of failed attempts to send the notification
+     */
+    public void setNbAttempts( int nNbAttempts )
+    {
+        _nNbAttempts = nNbAttempts;
+    }
+
+    /**
+     * Get the creation date of the notification
+     * 
+     * @return The creation date of the notification
+     */
+    public Timestamp getDateCreation( )
+    {
+        return _dateCreation;
+    }
+
+    /**
+     * Set the creation date of the notification
+     * 
+     * @param dateCreation
+     *            The creation date of the notification
+     */
+    public void setDateCreation( Timestamp dateCreation )
+    {
+        _dateCreation = dateCreation;
+    }
+
+    /**
+     * Get the date before which the notification must not be sent
+     * 
+     * @return The date before which the notification must not be sent
+     */
+    public Timestamp getDateNextAttempt( )
+    {
+        return _dateNextAttempt;
+    }
+
+    /**
+     * Set the date before which the notification must not be sent
+     * 
+     * @param dateNextAttempt
+     *            The date before which the notification must not be sent
+     */
+    public void setDateNextAttempt( Timestamp dateNextAttempt )
+    {
+        _dateNextAttempt = dateNextAttempt;
+    }
+
+    /**
+     * Get the token of the worker processing the notification
+     * 
+     * @return The token of the worker processing the notification
+     */
+    public String getClaimToken( )
+    {
+        return _strClaimToken;
+    }
+
+    /**
+     * Set the token of the worker processing the notification
+     * 
+     * @param strClaimToken
+     *            The token of the worker processing the notification
+     */
+    public void setClaimToken( String strClaimToken )
+    {
+        _strClaimToken = strClaimToken;
+    }
+
+    /**
+     * Get the date the notification was claimed by a worker
+     * 
+     * @return The date the notification was claimed by a worker
+     */
+    public Timestamp getDateClaim( )
+    {
+        return _dateClaim;
+    }
+
+    /**
+     * Set the date the notification was claimed by a worker
+     * 
+     * @param dateClaim
+     *            The date the notification was claimed by a worker
+     */
+    public void setDateClaim( Timestamp dateClaim )
+    {
+        _dateClaim = dateClaim;
+    }
+}
@@ -33,12 +33,10 @@
  */
 package fr.paris.lutece.plugins.workflow.modules.appointment.business;
 
-import fr.paris.lutece.plugins.workflowcore.business.config.TaskConfig;
-
 /**
- * DTO to send email. This class extends TaskConfig to allow task config to use this class (because Java does not allow several extends)
+ * DTO to send email. This class extends FreezableTaskConfig to allow task config to use this class (because Java does not allow several extends)
  */
-public class NotifyAppointmentDTO extends TaskConfig
+public class NotifyAppointmentDTO extends FreezableTaskConfig
 {
     private String _strSubject;
     private String _strMessage;
@@ -49,19 +47,9 @@ public class NotifyAppointmentDTO extends TaskConfig
     private boolean _bSendICalNotif;
     private boolean _bCreateNotif;
     private String _strLocation;
-    private String _strCancelMotif;
+    private String _strTimeZoneId;
     private boolean _bIsSms;
 
-    public String getCancelMotif( )
-    {
-        return _strCancelMotif;
-    }
-
-    public void setCancelMotif( String strCancelMotif )
-    {
-        this._strCancelMotif = strCancelMotif;
-    }
-
     /**
      * Get the subject
      * 
@@ -80,6 +68,7 @@ public class NotifyAppointmentDTO extends TaskConfig
      */
     public void setSubject( String strSubject )
     {
+        checkNotFrozen( );
         _strSubject = strSubject;
     }
 
@@ -101,6 +90,7 @@ public class NotifyAppointmentDTO extends TaskConfig
      */
     public void setMessage( String strMessage )
     {
+        checkNotFrozen( );
         _strMessage = strMessage;
     }
 
@@ -122,6 +112,7 @@ public class NotifyAppointmentDTO extends TaskConfig
      */
     public void setSenderName( String strSenderName )
     {
+        checkNotFrozen( );
         _strSenderName = strSenderName;
     }
 
@@ -143,6 +134,7 @@ public class NotifyAppointmentDTO extends TaskConfig
      */
     public void setSenderEmail( String strSenderEmail )
     {
+        checkNotFrozen( );
         _strSenderEmail = strSenderEmail;
     }
 
@@ -164,6 +156,7 @@ public class NotifyAppointmentDTO extends TaskConfig
      */
     public void setRecipientsCc( String strRecipient )
     {
+        checkNotFrozen( );
         _strRecipientsCc = strRecipient;
     }
 
@@ -185,6 +178,7 @@ public class NotifyAppointmentDTO extends TaskConfig
      */
     public void setRecipientsBcc( String strRecipient )
     {
+        checkNotFrozen( );
         _strRecipientsBcc = strRecipient;
     }
 
@@ -206,6 +200,7 @@ public class NotifyAppointmentDTO extends TaskConfig
      */
     public void setSendICalNotif( boolean bSendICalNotif )
     {
+        checkNotFrozen( );
         this._bSendICalNotif = bSendICalNotif;
     }
 
@@ -227,6 +222,7 @@ public class NotifyAppointmentDTO extends TaskConfig
      */
     public void setCreateNotif( boolean bCreateNotif )
     {
+        checkNotFrozen( );
         this._bCreateNotif = bCreateNotif;
     }
 
@@ -248,9 +244,32 @@ public class NotifyAppointmentDTO extends TaskConfig
      */
     public void setLocation( String strLocation )
     {
+        checkNotFrozen( );
         this._strLocation = strLocation;
     }
 
+    /**
+     * Get the id of the time zone of the appointment
+     * 
+     * @return The id of the time zone of the appointment, or null to use the time zone of the server
+     */
+    public String getTimeZoneId( )
+    {
+        return _strTimeZoneId;
+    }
+
+    /**
+     * Set the id of the time zone of the appointment
+     * 
+     * @param strTimeZoneId
+     *            The id of the time zone of the appointment, or null to use the time zone of the server
+     */
+    public void setTimeZoneId( String strTimeZoneId )
+    {
+        checkNotFrozen( );
+        this._strTimeZoneId = strTimeZoneId;
+    }
+
     /**
      * Check if the notification is an SMS notification or an email notification
      * 
@@ -269,6 +288,7 @@ public class NotifyAppointmentDTO extends TaskConfig
      */
     public void setIsSms( boolean bIsSms )
     {
+        checkNotFrozen( );
         this._bIsSms = bIsSms;
     }
 }
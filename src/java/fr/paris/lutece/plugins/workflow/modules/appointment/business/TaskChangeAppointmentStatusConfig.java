@@ -33,14 +33,12 @@
  */
 package fr.paris.lutece.plugins.workflow.modules.appointment.business;
 
-import fr.paris.lutece.plugins.workflowcore.business.config.TaskConfig;
-
 /**
  *
  * TaskChangeAppointmentStatusConfig
  *
  */
-public class TaskChangeAppointmentStatusConfig extends TaskConfig
+public class TaskChangeAppointmentStatusConfig extends FreezableTaskConfig
 {
     private int _nAppointmentStatus;
 
@@ -62,6 +60,7 @@ public class TaskChangeAppointmentStatusConfig extends TaskConfig
      */
     public void setAppointmentStatus( int nAppointmentStatus )
     {
+        checkNotFrozen( );
         _nAppointmentStatus = nAppointmentStatus;
     }
 }
@@ -61,6 +61,7 @@ public class TaskNotifyAdminAppointmentConfig extends TaskNotifyAppointmentConfi
      */
     public void setIdAdminUser( int nIdAdminUser )
     {
+        checkNotFrozen( );
         this._nIdAdminUser = nIdAdminUser;
     }
 
@@ -82,6 +83,7 @@ public class TaskNotifyAdminAppointmentConfig extends TaskNotifyAppointmentConfi
      */
     public void setIdActionValidate( int nIdActionValidate )
     {
+        checkNotFrozen( );
         this._nIdActionValidate = nIdActionValidate;
     }
 }
@@ -44,12 +44,12 @@ import fr.paris.lutece.util.sql.DAOUtil;
  */
 public class TaskNotifyAdminAppointmentConfigDAO implements ITaskConfigDAO<TaskNotifyAdminAppointmentConfig>
 {
-    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = "SELECT id_task,id_admin_user,sender_name,sender_email,subject,message,recipients_cc,recipients_bcc,id_action_cancel,id_action_validate,ical_notification,create_notif,location FROM workflow_task_notify_admin_appointment_cf WHERE id_task=?";
+    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = "SELECT id_task,id_admin_user,sender_name,sender_email,subject,message,recipients_cc,recipients_bcc,id_action_cancel,id_action_validate,ical_notification,create_notif,location,time_zone_id FROM workflow_task_notify_admin_appointment_cf WHERE id_task=?";
     private static final String SQL_QUERY_INSERT = "INSERT INTO workflow_task_notify_admin_appointment_cf( "
-            + "id_task,id_admin_user,sender_name,sender_email,subject,message,recipients_cc,recipients_bcc,id_action_cancel,id_action_validate,ical_notification, create_notif, location) "
-            + "VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?)";
+            + "id_task,id_admin_user,sender_name,sender_email,subject,message,recipients_cc,recipients_bcc,id_action_cancel,id_action_validate,ical_notification, create_notif, location, time_zone_id) "
+            + "VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
     private static final String SQL_QUERY_UPDATE = "UPDATE workflow_task_notify_admin_appointment_cf "
-            + " SET id_admin_user = ?, sender_name = ?, sender_email = ?, subject = ?, message = ?, recipients_cc = ?, recipients_bcc = ?, id_action_cancel = ?, id_action_validate = ?, ical_notification = ?, create_notif = ?, location = ? WHERE id_task = ? ";
+            + " SET id_admin_user = ?, sender_name = ?, sender_email = ?, subject = ?, message = ?, recipients_cc = ?, recipients_bcc = ?, id_action_cancel = ?, id_action_validate = ?, ical_notification = ?, create_notif = ?, location = ?, time_zone_id = ? WHERE id_task = ? ";
     private static final String SQL_QUERY_DELETE = "DELETE FROM workflow_task_notify_admin_appointment_cf WHERE id_task = ? ";
 
     /**
@@ -74,7 +74,8 @@ public class TaskNotifyAdminAppointmentConfigDAO implements ITaskConfigDAO<TaskN
             daoUtil.setInt( nIndex++, config.getIdActionValidate( ) );
             daoUtil.setBoolean( nIndex++, config.getSendICalNotif( ) );
             daoUtil.setBoolean( nIndex++, config.getCreateNotif( ) );
-            daoUtil.setString( nIndex, config.getLocation( ) );
+            daoUtil.setString( nIndex++, config.getLocation( ) );
+            daoUtil.setString( nIndex, config.getTimeZoneId( ) );
 
             daoUtil.executeUpdate( );
         }
@@ -101,6 +102,7 @@ public class TaskNotifyAdminAppointmentConfigDAO implements ITaskConfigDAO<TaskN
             daoUtil.setBoolean( nIndex++, config.getSendICalNotif( ) );
             daoUtil.setBoolean( nIndex++, config.getCreateNotif( ) );
             daoUtil.setString( nIndex++, config.getLocation( ) );
+            daoUtil.setString( nIndex++, config.getTimeZoneId( ) );
 
             daoUtil.setInt( nIndex, config.getIdTask( ) );
             daoUtil.executeUpdate( );
@@ -135,7 +137,8 @@ public class TaskNotifyAdminAppointmentConfigDAO implements ITaskConfigDAO<TaskN
                 config.setIdActionValidate( daoUtil.getInt( nIndex++ ) );
                 config.setSendICalNotif( daoUtil.getBoolean( nIndex++ ) );
                 config.setCreateNotif( daoUtil.getBoolean( nIndex++ ) );
-                config.setLocation( daoUtil.getString( nIndex ) );
+                config.setLocation( daoUtil.getString( nIndex++ ) );
+                config.setTimeZoneId( daoUtil.getString( nIndex ) );
             }
         }
         return config;
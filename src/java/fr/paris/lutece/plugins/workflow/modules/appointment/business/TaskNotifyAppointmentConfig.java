@@ -58,6 +58,7 @@ public class TaskNotifyAppointmentConfig extends NotifyAppointmentDTO
      */
     public void setIdActionCancel( int nIdActionCancel )
     {
+        checkNotFrozen( );
         this._nIdActionCancel = nIdActionCancel;
     }
 }
@@ -33,9 +33,7 @@
  */
 package fr.paris.lutece.plugins.workflow.modules.appointment.business;
 
-import fr.paris.lutece.plugins.workflowcore.business.config.TaskConfig;
-
-public class TaskNotifyCrmConfig extends TaskConfig
+public class TaskNotifyCrmConfig extends FreezableTaskConfig
 {
 
     private String _strDemandeType;
@@ -53,6 +51,7 @@ public class TaskNotifyCrmConfig extends TaskConfig
 
     public void setDemandeType( String strDemandeType )
     {
+        checkNotFrozen( );
         _strDemandeType = strDemandeType;
     }
 
@@ -63,6 +62,7 @@ public class TaskNotifyCrmConfig extends TaskConfig
 
     public void setData( String strData )
     {
+        checkNotFrozen( );
         _strData = strData;
     }
 
@@ -73,6 +73,7 @@ public class TaskNotifyCrmConfig extends TaskConfig
 
     public void setIdStatusCRM( String strIdStatusCRM )
     {
+        checkNotFrozen( );
         _strIdStatusCRM = strIdStatusCRM;
     }
 
@@ -83,6 +84,7 @@ public class TaskNotifyCrmConfig extends TaskConfig
 
     public void setStatusText( String strStatusText )
     {
+        checkNotFrozen( );
         _strStatusText = strStatusText;
     }
 
@@ -93,6 +95,7 @@ public class TaskNotifyCrmConfig extends TaskConfig
 
     public void setObject( String strObject )
     {
+        checkNotFrozen( );
         _strObject = strObject;
     }
 
@@ -103,6 +106,7 @@ public class TaskNotifyCrmConfig extends TaskConfig
 
     public void setMessage( String strMessage )
     {
+        checkNotFrozen( );
         _strMessage = strMessage;
     }
 
@@ -113,6 +117,7 @@ public class TaskNotifyCrmConfig extends TaskConfig
 
     public void setSender( String strSender )
     {
+        checkNotFrozen( );
         _strSender = strSender;
     }
 
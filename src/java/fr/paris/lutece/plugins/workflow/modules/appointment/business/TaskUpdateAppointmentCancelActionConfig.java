@@ -33,12 +33,10 @@
  */
 package fr.paris.lutece.plugins.workflow.modules.appointment.business;
 
-import fr.paris.lutece.plugins.workflowcore.business.config.TaskConfig;
-
 /**
  * TaskUpdateAppointmentCancelActionConfig
  */
-public class TaskUpdateAppointmentCancelActionConfig extends TaskConfig
+public class TaskUpdateAppointmentCancelActionConfig extends FreezableTaskConfig
 {
     private int _nIdActionCancel;
     private int _nIdActionReport;
@@ -61,6 +59,7 @@ public class TaskUpdateAppointmentCancelActionConfig extends TaskConfig
      */
     public void setIdActionCancel( int nIdActionCancel )
     {
+        checkNotFrozen( );
         this._nIdActionCancel = nIdActionCancel;
     }
 
@@ -82,6 +81,7 @@ public class TaskUpdateAppointmentCancelActionConfig extends TaskConfig
      */
     public void setIdActionReport( int nIdActionReport )
     {
+        checkNotFrozen( );
         this._nIdActionReport = nIdActionReport;
     }
 }
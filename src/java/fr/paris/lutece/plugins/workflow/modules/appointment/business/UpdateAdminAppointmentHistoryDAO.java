@@ -49,36 +49,27 @@ public class UpdateAdminAppointmentHistoryDAO implements IUpdateAdminAppointment
     private static final String SQL_QUERY_INSERT = "INSERT INTO workflow_task_update_admin_appointment(id_update,id_history,id_appointment,id_admin_user) VALUES (?,?,?,?)";
     private static final String SQL_QUERY_DELETE = "DELETE FROM workflow_task_update_admin_appointment WHERE id_update = ? ";
     private static final String SQL_QUERY_DELETE_BY_ID_APPOINTMENT = "DELETE FROM workflow_task_update_admin_appointment WHERE id_appointment = ? ";
-    private static final String SQL_QUEERY_NEW_PRIMARY_KEY = "SELECT MAX(id_update) FROM workflow_task_update_admin_appointment";
+
+    private IKeyAllocator _keyAllocator;
 
     /**
-     * Get a new primary key
+     * Set the allocator of the primary keys
      * 
-     * @param plugin
-     *            The plugin
-     * @return The new value of the primary key
+     * @param keyAllocator
+     *            The allocator of the primary keys
      */
-    private int newPrimaryKey( Plugin plugin )
+    public void setKeyAllocator( IKeyAllocator keyAllocator )
     {
-        int nRes = 1;
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUEERY_NEW_PRIMARY_KEY, plugin ) )
-        {
-            daoUtil.executeQuery( );
-            if ( daoUtil.next( ) )
-            {
-                nRes = daoUtil.getInt( 1 ) + 1;
-            }
-        }
-        return nRes;
+        _keyAllocator = keyAllocator;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public synchronized void create( UpdateAdminAppointmentHistory history, Plugin plugin )
+    public void create( UpdateAdminAppointmentHistory history, Plugin plugin )
     {
-        history.setIdUpdate( newPrimaryKey( plugin ) );
+        history.setIdUpdate( _keyAllocator.newKey( plugin ) );
         try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin ) )
         {
             int nIndex = 1;
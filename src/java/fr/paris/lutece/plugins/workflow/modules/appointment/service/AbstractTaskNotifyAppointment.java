@@ -38,7 +38,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -48,18 +48,14 @@ import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
 import fr.paris.lutece.plugins.appointment.business.user.User;
 import fr.paris.lutece.plugins.appointment.service.AppointmentResponseService;
 import fr.paris.lutece.plugins.appointment.service.UserService;
-import fr.paris.lutece.plugins.appointment.service.entrytype.EntryTypePhone;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
-import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
 import fr.paris.lutece.plugins.appointment.web.dto.ResponseRecapDTO;
-import fr.paris.lutece.plugins.genericattributes.business.Entry;
-import fr.paris.lutece.plugins.genericattributes.business.EntryFilter;
-import fr.paris.lutece.plugins.genericattributes.business.EntryHome;
 import fr.paris.lutece.plugins.genericattributes.business.Response;
-import fr.paris.lutece.plugins.genericattributes.business.ResponseHome;
 import fr.paris.lutece.plugins.genericattributes.service.entrytype.EntryTypeServiceManager;
 import fr.paris.lutece.plugins.genericattributes.service.entrytype.IEntryTypeService;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.AppointmentPhoneHome;
 import fr.paris.lutece.plugins.workflow.modules.appointment.business.EmailDTO;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.NotificationOutboxItem;
 import fr.paris.lutece.plugins.workflow.modules.appointment.business.NotifyAppointmentDTO;
 import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceHistory;
 import fr.paris.lutece.plugins.workflowcore.service.task.SimpleTask;
@@ -86,6 +82,9 @@ public abstract class AbstractTaskNotifyAppointment<T extends NotifyAppointmentD
     private static final String TEMPLATE_TASK_NOTIFY_MAIL = "admin/plugins/workflow/modules/appointment/task_notify_appointment_mail.html";
     private static final String TEMPLATE_TASK_NOTIFY_SMS = "admin/plugins/workflow/modules/appointment/task_notify_appointment_sms.html";
     private static final String TEMPLATE_TASK_NOTIFY_APPOINTMENT_RECAP = "admin/plugins/workflow/modules/appointment/task_notify_appointment_recap.html";
+    private static final String TEMPLATE_PART_SUBJECT = "subject";
+    private static final String TEMPLATE_PART_CONTENT = "content";
+    private static final String TEMPLATE_PART_CONTENT_OVERRIDE = "content.override";
 
     // MARKS
     private static final String MARK_MESSAGE = "message";
@@ -110,16 +109,14 @@ public abstract class AbstractTaskNotifyAppointment<T extends NotifyAppointmentD
      *            The resource history
      * @param request
      *            The request
-     * @param locale
-     *            The locale
      * @param notifyAppointmentDTO
      *            The DTO with data of the email
-     * @param strEmail
-     *            The address to send the email to
+     * @param context
+     *            The context of the notification, with the address to send the email to
      * @return The content sent, or null if no email was sent
      */
-    public EmailDTO sendEmail( AppointmentDTO appointment, ResourceHistory resourceHistory, HttpServletRequest request, Locale locale, T notifyAppointmentDTO,
-            String strEmail )
+    public EmailDTO sendEmail( AppointmentDTO appointment, ResourceHistory resourceHistory, HttpServletRequest request, T notifyAppointmentDTO,
+            NotificationContext context )
     {
         if ( notifyAppointmentDTO == null || resourceHistory == null || appointment == null
                 || !Appointment.APPOINTMENT_RESOURCE_TYPE.equals( resourceHistory.getResourceType( ) ) )
@@ -127,37 +124,49 @@ public abstract class AbstractTaskNotifyAppointment<T extends NotifyAppointmentD
             return null;
         }
 
-        if ( StringUtils.isEmpty( notifyAppointmentDTO.getSenderEmail( ) ) || !StringUtil.checkEmail( notifyAppointmentDTO.getSenderEmail( ) ) )
+        String strSenderEmail = notifyAppointmentDTO.getSenderEmail( );
+        if ( StringUtils.isEmpty( strSenderEmail ) || !StringUtil.checkEmail( strSenderEmail ) )
         {
-            notifyAppointmentDTO.setSenderEmail( MailService.getNoReplyEmail( ) );
+            strSenderEmail = MailService.getNoReplyEmail( );
         }
-        if ( StringUtils.isBlank( notifyAppointmentDTO.getSenderName( ) ) )
+        String strSenderName = notifyAppointmentDTO.getSenderName( );
+        if ( StringUtils.isBlank( strSenderName ) )
         {
-            notifyAppointmentDTO.setSenderName( notifyAppointmentDTO.getSenderEmail( ) );
+            strSenderName = strSenderEmail;
         }
-        Map<String, Object> model = fillModel( request, notifyAppointmentDTO, appointment, locale );
-        String strSubject = AppTemplateService.getTemplateFromStringFtl( notifyAppointmentDTO.getSubject( ), locale, model ).getHtml( );
-        boolean bHasRecipients = ( StringUtils.isNotBlank( notifyAppointmentDTO.getRecipientsBcc( ) )
-                || StringUtils.isNotBlank( notifyAppointmentDTO.getRecipientsCc( ) ) );
-        String strContent = AppTemplateService.getTemplateFromStringFtl( AppTemplateService
-                .getTemplate( notifyAppointmentDTO.getIsSms( ) ? TEMPLATE_TASK_NOTIFY_SMS : TEMPLATE_TASK_NOTIFY_MAIL, locale, model ).getHtml( ), locale,
-                model ).getHtml( );
+        String strEmail = context.getRecipient( );
+        Locale locale = context.getLocale( );
+        NotificationModel model = fillModel( request, notifyAppointmentDTO, appointment, context );
+        NotificationTemplateCacheService templateCacheService = NotificationTemplateCacheService.getInstance( );
+        String strSubject = templateCacheService.render( notifyAppointmentDTO.getIdTask( ), TEMPLATE_PART_SUBJECT, notifyAppointmentDTO.getSubject( ), locale,
+                model );
+        String strContent = templateCacheService.renderInWrapper( notifyAppointmentDTO.getIdTask( ),
+                ( context.getMessage( ) != null ) ? TEMPLATE_PART_CONTENT_OVERRIDE : TEMPLATE_PART_CONTENT,
+                notifyAppointmentDTO.getIsSms( ) ? TEMPLATE_TASK_NOTIFY_SMS : TEMPLATE_TASK_NOTIFY_MAIL, getMessage( notifyAppointmentDTO, context ), locale,
+                model );
+        NotificationOutboxItem item = new NotificationOutboxItem( );
+        item.setIdAppointment( appointment.getIdAppointment( ) );
+        item.setRecipientTo( strEmail );
+        item.setSenderName( strSenderName );
+        item.setSenderEmail( strSenderEmail );
+        item.setSubject( strSubject );
+        item.setContent( strContent );
+        item.setRecipientsCc( notifyAppointmentDTO.getRecipientsCc( ) );
         if ( notifyAppointmentDTO.getSendICalNotif( ) )
         {
-            getICalService( ).sendAppointment( strEmail, notifyAppointmentDTO.getRecipientsCc( ), strSubject, strContent, notifyAppointmentDTO.getLocation( ),
-                    notifyAppointmentDTO.getSenderName( ), notifyAppointmentDTO.getSenderEmail( ), appointment, notifyAppointmentDTO.getCreateNotif( ) );
+            item.setSendICalNotif( true );
+            item.setCreateNotif( notifyAppointmentDTO.getCreateNotif( ) );
+            item.setICalContent( getICalService( ).getAppointmentCalendar( strEmail, notifyAppointmentDTO.getRecipientsCc( ), strSubject, strContent,
+                    notifyAppointmentDTO.getLocation( ), strSenderName, strSenderEmail, appointment, notifyAppointmentDTO.getCreateNotif( ),
+                    notifyAppointmentDTO.getTimeZoneId( ) ) );
         }
         else
         {
-            if ( bHasRecipients )
-            {
-                MailService.sendMailHtml( strEmail, notifyAppointmentDTO.getRecipientsCc( ), notifyAppointmentDTO.getRecipientsBcc( ),
-                        notifyAppointmentDTO.getSenderName( ), notifyAppointmentDTO.getSenderEmail( ), strSubject, strContent );
-            }
-            else
-            {
-                MailService.sendMailHtml( strEmail, notifyAppointmentDTO.getSenderName( ), notifyAppointmentDTO.getSenderEmail( ), strSubject, strContent );
-            }
+            item.setRecipientsBcc( notifyAppointmentDTO.getRecipientsBcc( ) );
+        }
+        if ( !item.getSendICalNotif( ) || item.getICalContent( ) != null )
+        {
+            NotificationOutboxService.getInstance( ).enqueue( item );
         }
         return new EmailDTO( strSubject, strContent );
     }
@@ -171,25 +180,61 @@ public abstract class AbstractTaskNotifyAppointment<T extends NotifyAppointmentD
      *            The configuration of the task.
      * @param appointment
      *            The appointment to get data from
-     * @param appointmentSlot
-     *            The slot associated with the appointment
-     * @param locale
-     *            The locale
+     * @param context
+     *            The context of the notification
      * @return The model with data
      */
-    public Map<String, Object> fillModel( HttpServletRequest request, T notifyAppointmentDTO, AppointmentDTO appointment, Locale locale )
+    public NotificationModel fillModel( HttpServletRequest request, T notifyAppointmentDTO, AppointmentDTO appointment, NotificationContext context )
     {
-        Map<String, Object> model = new HashMap<>( );
-        User user = UserService.findUserById( appointment.getIdUser( ) );
-        model.put( MARK_FIRSTNAME, user.getFirstName( ) );
-        model.put( MARK_LASTNAME, user.getLastName( ) );
-        model.put( MARK_EMAIL, user.getEmail( ) );
+        Locale locale = context.getLocale( );
+        NotificationModel model = new NotificationModel( );
+        Supplier<User> user = NotificationModel.memoize( ( ) -> UserService.findUserById( appointment.getIdUser( ) ) );
+        model.putLazy( MARK_FIRSTNAME, ( ) -> user.get( ).getFirstName( ) );
+        model.putLazy( MARK_LASTNAME, ( ) -> user.get( ).getLastName( ) );
+        model.putLazy( MARK_EMAIL, ( ) -> user.get( ).getEmail( ) );
         model.put( MARK_REFERENCE, appointment.getReference( ) );
         model.put( MARK_DATE_APPOINTMENT, appointment.getDateOfTheAppointment( ) );
-        model.put( MARK_CANCEL_MOTIF, notifyAppointmentDTO.getCancelMotif( ) );
+        model.put( MARK_CANCEL_MOTIF, context.getCancelMotif( ) );
         model.put( MARK_TIME_APPOINTMENT, appointment.getStartingTime( ) );
         model.put( MARK_END_TIME_APPOINTMENT, appointment.getEndingTime( ) );
-        model.put( MARK_MESSAGE, notifyAppointmentDTO.getMessage( ) );
+        model.put( MARK_MESSAGE, getMessage( notifyAppointmentDTO, context ) );
+        model.putLazy( MARK_LIST_RESPONSE, ( ) -> getListResponseRecap( request, appointment, locale ) );
+        model.putLazy( MARK_RECAP, ( ) -> {
+            Map<String, Object> modelRecap = new HashMap<>( );
+            modelRecap.put( MARK_LIST_RESPONSE, model.getValue( MARK_LIST_RESPONSE ) );
+            HtmlTemplate template = AppTemplateService.getTemplate( TEMPLATE_TASK_NOTIFY_APPOINTMENT_RECAP, locale, modelRecap );
+            return template.getHtml( );
+        } );
+        return model;
+    }
+
+    /**
+     * Get the message of a notification
+     * 
+     * @param notifyAppointmentDTO
+     *            The configuration of the task
+     * @param context
+     *            The context of the notification
+     * @return The message of the context if it overrides the message of the configuration, the message of the configuration otherwise
+     */
+    private String getMessage( T notifyAppointmentDTO, NotificationContext context )
+    {
+        return ( context.getMessage( ) != null ) ? context.getMessage( ) : notifyAppointmentDTO.getMessage( );
+    }
+
+    /**
+     * Get the responses of an appointment with their value for the recap
+     * 
+     * @param request
+     *            The request
+     * @param appointment
+     *            The appointment
+     * @param locale
+     *            The locale
+     * @return The list of responses with their value for the recap
+     */
+    private List<ResponseRecapDTO> getListResponseRecap( HttpServletRequest request, AppointmentDTO appointment, Locale locale )
+    {
         List<Response> listResponse = AppointmentResponseService.findListResponse( appointment.getIdAppointment( ) );
         List<ResponseRecapDTO> listResponseRecapDTO = new ArrayList<>( listResponse.size( ) );
         for ( Response response : listResponse )
@@ -198,10 +243,7 @@ public abstract class AbstractTaskNotifyAppointment<T extends NotifyAppointmentD
             listResponseRecapDTO
                     .add( new ResponseRecapDTO( response, entryTypeService.getResponseValueForRecap( response.getEntry( ), request, response, locale ) ) );
         }
-        model.put( MARK_LIST_RESPONSE, listResponseRecapDTO );
-        HtmlTemplate template = AppTemplateService.getTemplate( TEMPLATE_TASK_NOTIFY_APPOINTMENT_RECAP, locale, model );
-        model.put( MARK_RECAP, template.getHtml( ) );
-        return model;
+        return listResponseRecapDTO;
     }
 
     /**
@@ -213,34 +255,8 @@ public abstract class AbstractTaskNotifyAppointment<T extends NotifyAppointmentD
      */
     protected String getEmailForSmsFromAppointment( AppointmentDTO appointment )
     {
-        String strPhoneNumber = null;
-        EntryFilter entryFilter = new EntryFilter( );
-        entryFilter.setIdResource( appointment.getIdForm( ) );
-        entryFilter.setResourceType( AppointmentFormDTO.RESOURCE_TYPE );
-        entryFilter.setFieldDependNull( EntryFilter.FILTER_TRUE );
-        List<Integer> listIdResponse = AppointmentResponseService.findListIdResponse( appointment.getIdAppointment( ) );
-
-        List<Response> listResponses = listIdResponse.stream( ).map( ResponseHome::findByPrimaryKey ).collect( Collectors.toList( ) );
-        List<Entry> listEntries = EntryHome.getEntryList( entryFilter );
-        for ( Entry entry : listEntries )
-        {
-            IEntryTypeService entryTypeService = EntryTypeServiceManager.getEntryTypeService( entry );
-            if ( entryTypeService instanceof EntryTypePhone )
-            {
-                for ( Response response : listResponses )
-                {
-                    if ( ( response.getEntry( ).getIdEntry( ) == entry.getIdEntry( ) ) && StringUtils.isNotBlank( response.getResponseValue( ) ) )
-                    {
-                        strPhoneNumber = response.getResponseValue( );
-                        break;
-                    }
-                }
-                if ( StringUtils.isNotEmpty( strPhoneNumber ) )
-                {
-                    break;
-                }
-            }
-        }
+        String strPhoneNumber = AppointmentPhoneHome.findPhoneNumber( appointment.getIdAppointment( ),
+                PhoneEntryIndexService.getInstance( ).getListIdPhoneEntries( appointment.getIdForm( ) ) );
         if ( StringUtils.isNotBlank( strPhoneNumber ) )
         {
             strPhoneNumber = strPhoneNumber + AppPropertiesService.getProperty( PROPERTY_SMS_SERVER );
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+/**
+ * VEVENT of an appointment in an {@link AgentCalendarFeed}, with the date at which the appointment ends. Instances are never modified once built.
+ */
+public final class AgentCalendarEvent
+{
+    private final String _strContent;
+    private final long _lDateEnd;
+
+    /**
+     * Constructor
+     * 
+     * @param strContent
+     *            The VEVENT of the appointment
+     * @param lDateEnd
+     *            The date at which the appointment ends, in milliseconds
+     */
+    public AgentCalendarEvent( String strContent, long lDateEnd )
+    {
+        _strContent = strContent;
+        _lDateEnd = lDateEnd;
+    }
+
+    /**
+     * Get the VEVENT of the appointment
+     * 
+     * @return The VEVENT
+     */
+    public String getContent( )
+    {
+        return _strContent;
+    }
+
+    /**
+     * Get the date at which the appointment ends
+     * 
+     * @return The date, in milliseconds
+     */
+    public long getDateEnd( )
+    {
+        return _lDateEnd;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * iCalendar feed of the appointments of an agent, kept in cache by the {@link AgentCalendarFeedService}. The VEVENT of each appointment is kept, so that a
+ * change of an appointment only regenerates its own event. The feed keeps the date its events were read from the database, so that it can be read again once
+ * too old to miss the changes made by other nodes. Instances are never modified once built, and can be shared between threads.
+ */
+public final class AgentCalendarFeed
+{
+    // constants
+    private static final String CRLF = "\r\n";
+    private static final String HEADER = "BEGIN:VCALENDAR" + CRLF + "METHOD:PUBLISH" + CRLF + "VERSION:2.0" + CRLF + "CALSCALE:GREGORIAN" + CRLF;
+    private static final String PRODID = "PRODID:";
+    private static final String FOOTER = "END:VCALENDAR" + CRLF;
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final int ETAG_LENGTH = 16;
+    private static final char [ ] HEX_DIGITS = "0123456789abcdef".toCharArray( );
+    // The DTSTAMP of an event is the date it was generated, not a change of the appointment : it is left out of the entity tag
+    private static final Pattern PATTERN_DTSTAMP = Pattern.compile( "^DTSTAMP:[^\r\n]*\r\n", Pattern.MULTILINE );
+
+    private final String _strProdId;
+    private final Map<Integer, AgentCalendarEvent> _mapEvents;
+    private final long _lDateFirstEnd;
+    private final long _lDateLoad;
+    private final byte [ ] _content;
+    private final String _strETag;
+
+    /**
+     * Constructor
+     * 
+     * @param strProdId
+     *            The product identifier of the feed
+     * @param mapEvents
+     *            The event of each appointment, mapped by id of appointment
+     * @param lDateLoad
+     *            The date the events were read from the database, in milliseconds
+     */
+    public AgentCalendarFeed( String strProdId, Map<Integer, AgentCalendarEvent> mapEvents, long lDateLoad )
+    {
+        _strProdId = strProdId;
+        _lDateLoad = lDateLoad;
+        _mapEvents = Collections.unmodifiableMap( new HashMap<>( mapEvents ) );
+        _lDateFirstEnd = mapEvents.values( ).stream( ).mapToLong( AgentCalendarEvent::getDateEnd ).min( ).orElse( Long.MAX_VALUE );
+
+        StringBuilder sbFeed = new StringBuilder( HEADER.length( ) + mapEvents.size( ) * 512 );
+        sbFeed.append( HEADER ).append( PRODID );
+        ICalInvitationWriter.appendText( sbFeed, strProdId );
+        sbFeed.append( CRLF );
+        // Events are sorted by id of appointment so that the same events always give the same content and ETag
+        mapEvents.entrySet( ).stream( ).sorted( Map.Entry.comparingByKey( ) ).forEach( event -> sbFeed.append( event.getValue( ).getContent( ) ) );
+        sbFeed.append( FOOTER );
+
+        String strFeed = sbFeed.toString( );
+        _content = strFeed.getBytes( StandardCharsets.UTF_8 );
+        _strETag = computeETag( PATTERN_DTSTAMP.matcher( strFeed ).replaceAll( "" ).getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    /**
+     * Get the event of each appointment of the feed
+     * 
+     * @return The events, mapped by id of appointment
+     */
+    public Map<Integer, AgentCalendarEvent> getEvents( )
+    {
+        return _mapEvents;
+    }
+
+    /**
+     * Get the date the events of the feed were read from the database
+     * 
+     * @return The date, in milliseconds
+     */
+    public long getDateLoad( )
+    {
+        return _lDateLoad;
+    }
+
+    /**
+     * Check if the events of the feed were read from the database too long ago
+     * 
+     * @param lNow
+     *            The current date, in milliseconds
+     * @param lMaxAge
+     *            The maximum age of the feed, in milliseconds
+     * @return True if the feed must be read again from the database
+     */
+    public boolean isExpired( long lNow, long lMaxAge )
+    {
+        return lNow - _lDateLoad > lMaxAge;
+    }
+
+    /**
+     * Check if some appointments of the feed ended before a date
+     * 
+     * @param lDate
+     *            The date, in milliseconds
+     * @return True if at least one appointment ended before the date
+     */
+    public boolean hasEventsEndedBefore( long lDate )
+    {
+        return _lDateFirstEnd < lDate;
+    }
+
+    /**
+     * Get the feed without the events of the appointments ended before a date
+     * 
+     * @param lDate
+     *            The date, in milliseconds
+     * @return This feed if none of its appointments ended before the date, or a new feed without them
+     */
+    public AgentCalendarFeed withoutEventsEndedBefore( long lDate )
+    {
+        if ( !hasEventsEndedBefore( lDate ) )
+        {
+            return this;
+        }
+
+        Map<Integer, AgentCalendarEvent> mapEvents = new HashMap<>( _mapEvents );
+        mapEvents.values( ).removeIf( event -> event.getDateEnd( ) < lDate );
+
+        return new AgentCalendarFeed( _strProdId, mapEvents, _lDateLoad );
+    }
+
+    /**
+     * Get the content of the feed, encoded in UTF-8. The returned array must not be modified.
+     * 
+     * @return The content of the feed
+     */
+    public byte [ ] getContent( )
+    {
+        return _content;
+    }
+
+    /**
+     * Get the entity tag of the feed, to answer conditional requests
+     * 
+     * @return The quoted entity tag
+     */
+    public String getETag( )
+    {
+        return _strETag;
+    }
+
+    /**
+     * Compute the entity tag of a content, without its DTSTAMP
+     * 
+     * @param content
+     *            The content
+     * @return The quoted entity tag
+     */
+    private static String computeETag( byte [ ] content )
+    {
+        byte [ ] hash;
+        try
+        {
+            hash = MessageDigest.getInstance( DIGEST_ALGORITHM ).digest( content );
+        }
+        catch( NoSuchAlgorithmException e )
+        {
+            // Every JVM supports SHA-256
+            throw new IllegalStateException( e );
+        }
+
+        StringBuilder sbETag = new StringBuilder( ETAG_LENGTH + 2 ).append( '"' );
+        for ( int i = 0; i < ETAG_LENGTH / 2; i++ )
+        {
+            sbETag.append( HEX_DIGITS [( hash [i] >> 4 ) & 0xF] ).append( HEX_DIGITS [hash [i] & 0xF] );
+        }
+
+        return sbETag.append( '"' ).toString( );
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.AgentAppointment;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.AgentAppointmentHome;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Cache of the iCalendar feeds of the upcoming appointments of agents. A feed is built from the database on its first request only, with a single query.
+ * When an appointment is created, updated or removed on this node, only its own event is regenerated in the feeds in cache that contain it or should contain
+ * it. The
+ * events of the appointments that are over are dropped when the feed is served. As the appointments can be changed on other nodes, a feed is read again
+ * from the database once older than its maximum age. Each feed has its own lock, so that building or updating the feed of an agent does not block the feeds
+ * of the other agents.
+ */
+public final class AgentCalendarFeedService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "workflow-appointment.agentCalendarFeedService";
+
+    // properties
+    private static final String PROPERTY_ICAL_PRODID = "workflow-appointment.ical.prodid";
+    private static final String PROPERTY_FEED_MAX_AGE = "workflow-appointment.agentCalendar.feedMaxAge";
+
+    // constants
+    private static final String CRLF = "\r\n";
+    private static final String BEGIN_VEVENT = "BEGIN:VEVENT";
+    private static final String END_VEVENT = "END:VEVENT";
+    private static final String PROPERTY_DTSTAMP = "DTSTAMP:";
+    private static final String PROPERTY_DTSTART = "DTSTART:";
+    private static final String PROPERTY_DTEND = "DTEND:";
+    private static final String PROPERTY_SUMMARY = "SUMMARY:";
+    private static final String PROPERTY_UID = "UID:";
+    private static final String PROPERTY_DESCRIPTION = "DESCRIPTION:";
+    private static final String PROPERTY_STATUS_CONFIRMED = "STATUS:CONFIRMED";
+    private static final char CONSTANT_UTC = 'Z';
+    private static final String CONSTANT_SPACE = " ";
+    private static final int CONSTANT_NO_ADMIN_USER = -1;
+    private static final int DEFAULT_FEED_MAX_AGE = 300;
+    private static final long MILLISECONDS_PER_SECOND = 1000L;
+
+    private static AgentCalendarFeedService _instance = new AgentCalendarFeedService( );
+
+    private final Map<Integer, Object> _mapLocks = new ConcurrentHashMap<>( );
+
+    /**
+     * Private constructor
+     */
+    private AgentCalendarFeedService( )
+    {
+        initCache( );
+    }
+
+    /**
+     * Get the instance of the service
+     * 
+     * @return The instance of the service
+     */
+    public static AgentCalendarFeedService getInstance( )
+    {
+        return _instance;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Get the feed of the upcoming appointments of an agent
+     * 
+     * @param nIdAdminUser
+     *            The id of the admin user of the agent
+     * @return The feed
+     */
+    public AgentCalendarFeed getFeed( int nIdAdminUser )
+    {
+        String strKey = String.valueOf( nIdAdminUser );
+        long lNow = System.currentTimeMillis( );
+        long lMaxAge = AppPropertiesService.getPropertyInt( PROPERTY_FEED_MAX_AGE, DEFAULT_FEED_MAX_AGE ) * MILLISECONDS_PER_SECOND;
+        AgentCalendarFeed feed = (AgentCalendarFeed) getFromCache( strKey );
+
+        if ( feed != null && !feed.isExpired( lNow, lMaxAge ) && !feed.hasEventsEndedBefore( lNow ) )
+        {
+            return feed;
+        }
+
+        synchronized( getLock( nIdAdminUser ) )
+        {
+            // Another thread may have built or updated the feed while we were waiting
+            feed = (AgentCalendarFeed) getFromCache( strKey );
+            if ( feed == null || feed.isExpired( lNow, lMaxAge ) )
+            {
+                Map<Integer, AgentCalendarEvent> mapEvents = new HashMap<>( );
+                for ( AgentAppointment appointment : AgentAppointmentHome.findUpcomingAppointments( nIdAdminUser ) )
+                {
+                    mapEvents.put( appointment.getIdAppointment( ), buildEvent( appointment ) );
+                }
+                feed = new AgentCalendarFeed( AppPropertiesService.getProperty( PROPERTY_ICAL_PRODID ), mapEvents, lNow );
+                putInCache( strKey, feed );
+            }
+            else
+            {
+                AgentCalendarFeed upcomingFeed = feed.withoutEventsEndedBefore( lNow );
+                if ( upcomingFeed != feed )
+                {
+                    feed = upcomingFeed;
+                    putInCache( strKey, feed );
+                }
+            }
+        }
+
+        return feed;
+    }
+
+    /**
+     * Update the feeds in cache after the creation or the modification of an appointment
+     * 
+     * @param nIdAppointment
+     *            The id of the appointment
+     */
+    public void appointmentChanged( int nIdAppointment )
+    {
+        if ( getKeys( ).isEmpty( ) )
+        {
+            return;
+        }
+
+        AgentAppointment appointment = AgentAppointmentHome.findByPrimaryKey( nIdAppointment );
+        AgentCalendarEvent event = ( appointment != null && isUpcoming( appointment ) ) ? buildEvent( appointment ) : null;
+        updateFeeds( nIdAppointment, event, ( event != null ) ? appointment.getIdAdminUser( ) : CONSTANT_NO_ADMIN_USER );
+    }
+
+    /**
+     * Update the feeds in cache after the removal of an appointment
+     * 
+     * @param nIdAppointment
+     *            The id of the appointment
+     */
+    public void appointmentRemoved( int nIdAppointment )
+    {
+        updateFeeds( nIdAppointment, null, CONSTANT_NO_ADMIN_USER );
+    }
+
+    /**
+     * Put the event of an appointment in the feed of its agent, and remove it from the other feeds in cache. Only the feeds concerned are locked.
+     * 
+     * @param nIdAppointment
+     *            The id of the appointment
+     * @param event
+     *            The event of the appointment, or null if it must not be in any feed
+     * @param nIdAdminUser
+     *            The id of the admin user of the agent whose feed must contain the event
+     */
+    private void updateFeeds( int nIdAppointment, AgentCalendarEvent event, int nIdAdminUser )
+    {
+        for ( String strKey : getKeys( ) )
+        {
+            int nIdFeedAdminUser = Integer.parseInt( strKey );
+            boolean bInFeed = event != null && nIdFeedAdminUser == nIdAdminUser;
+            AgentCalendarFeed feed = (AgentCalendarFeed) getFromCache( strKey );
+            if ( feed == null || ( !bInFeed && !feed.getEvents( ).containsKey( nIdAppointment ) ) )
+            {
+                continue;
+            }
+
+            synchronized( getLock( nIdFeedAdminUser ) )
+            {
+                feed = (AgentCalendarFeed) getFromCache( strKey );
+                if ( feed != null )
+                {
+                    Map<Integer, AgentCalendarEvent> mapEvents = new HashMap<>( feed.getEvents( ) );
+                    if ( bInFeed )
+                    {
+                        mapEvents.put( nIdAppointment, event );
+                    }
+                    else
+                    {
+                        mapEvents.remove( nIdAppointment );
+                    }
+                    putInCache( strKey, new AgentCalendarFeed( AppPropertiesService.getProperty( PROPERTY_ICAL_PRODID ), mapEvents, feed.getDateLoad( ) ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the lock of the feed of an agent
+     * 
+     * @param nIdAdminUser
+     *            The id of the admin user of the agent
+     * @return The lock
+     */
+    private Object getLock( int nIdAdminUser )
+    {
+        return _mapLocks.computeIfAbsent( nIdAdminUser, nId -> new Object( ) );
+    }
+
+    /**
+     * Check if an appointment is upcoming, and so must be in the feed of its agent
+     * 
+     * @param appointment
+     *            The appointment
+     * @return True if the appointment is not cancelled and not over yet
+     */
+    private static boolean isUpcoming( AgentAppointment appointment )
+    {
+        return !appointment.isCancelled( ) && appointment.getIdAdminUser( ) > 0 && appointment.getEndingDateTime( ) != null
+                && !appointment.getEndingDateTime( ).isBefore( LocalDateTime.now( ) );
+    }
+
+    /**
+     * Build the event of an appointment. Dates are written in UTC, so that the feed does not need any VTIMEZONE.
+     * 
+     * @param appointment
+     *            The appointment
+     * @return The event of the appointment
+     */
+    private static AgentCalendarEvent buildEvent( AgentAppointment appointment )
+    {
+        StringBuilder sbEvent = new StringBuilder( 512 );
+        sbEvent.append( BEGIN_VEVENT ).append( CRLF );
+        sbEvent.append( PROPERTY_DTSTAMP );
+        ICalInvitationWriter.appendDateTime( sbEvent, System.currentTimeMillis( ), 0 );
+        sbEvent.append( CONSTANT_UTC ).append( CRLF );
+        sbEvent.append( PROPERTY_DTSTART );
+        appendUtcDateTime( sbEvent, appointment.getStartingDateTime( ) );
+        sbEvent.append( PROPERTY_DTEND );
+        appendUtcDateTime( sbEvent, appointment.getEndingDateTime( ) );
+        sbEvent.append( PROPERTY_SUMMARY );
+        ICalInvitationWriter.appendText( sbEvent, appointment.getLastName( ) + CONSTANT_SPACE + appointment.getFirstName( ) );
+        sbEvent.append( CRLF );
+        sbEvent.append( PROPERTY_UID ).append( Appointment.APPOINTMENT_RESOURCE_TYPE ).append( appointment.getIdAppointment( ) ).append( CRLF );
+        sbEvent.append( PROPERTY_DESCRIPTION );
+        ICalInvitationWriter.appendText( sbEvent, appointment.getReference( ) );
+        sbEvent.append( CRLF );
+        sbEvent.append( PROPERTY_STATUS_CONFIRMED ).append( CRLF );
+        sbEvent.append( END_VEVENT ).append( CRLF );
+
+        return new AgentCalendarEvent( sbEvent.toString( ), toEpochMilli( appointment.getEndingDateTime( ) ) );
+    }
+
+    /**
+     * Convert a local date time of the server to milliseconds
+     * 
+     * @param dateTime
+     *            The local date time
+     * @return The date, in milliseconds
+     */
+    private static long toEpochMilli( LocalDateTime dateTime )
+    {
+        return dateTime.atZone( ZoneId.systemDefault( ) ).toInstant( ).toEpochMilli( );
+    }
+
+    /**
+     * Append a local date time of the server in UTC, followed by a line break
+     * 
+     * @param sbEvent
+     *            The buffer
+     * @param dateTime
+     *            The local date time
+     */
+    private static void appendUtcDateTime( StringBuilder sbEvent, LocalDateTime dateTime )
+    {
+        ICalInvitationWriter.appendDateTime( sbEvent, toEpochMilli( dateTime ), 0 );
+        sbEvent.append( CONSTANT_UTC ).append( CRLF );
+    }
+}
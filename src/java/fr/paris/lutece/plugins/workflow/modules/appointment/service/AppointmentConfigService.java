@@ -33,18 +33,44 @@
  */
 package fr.paris.lutece.plugins.workflow.modules.appointment.service;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.FreezableTaskConfig;
 import fr.paris.lutece.plugins.workflowcore.business.config.ITaskConfig;
 import fr.paris.lutece.plugins.workflowcore.service.config.TaskConfigService;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
 
 /**
- * Default implementation of the config service of tasks of module workflow appointment.
+ * Default implementation of the config service of tasks of module workflow appointment. Configs are kept in a cache, and are served as frozen snapshots that
+ * can be shared between threads : callers that need to modify a config must work on a {@link FreezableTaskConfig#mutableCopy()}. The cache of a config is
+ * cleared when the config is created, updated or removed, and again when the transaction completes.
  */
 @Service
-public class AppointmentConfigService extends TaskConfigService
+public class AppointmentConfigService extends TaskConfigService implements BeanNameAware
 {
+    private static final String DEFAULT_CACHE_NAME = "workflow-appointment.appointmentConfigService";
+
+    private final AtomicLong _nCacheHits = new AtomicLong( );
+    private final AtomicLong _nCacheMisses = new AtomicLong( );
+    private final AtomicLong _nGeneration = new AtomicLong( );
+    private final Object _lock = new Object( );
+    private TaskConfigCache _cache;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setBeanName( String strBeanName )
+    {
+        _cache = new TaskConfigCache( strBeanName );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -53,6 +79,7 @@ public class AppointmentConfigService extends TaskConfigService
     public void create( ITaskConfig config )
     {
         super.create( config );
+        invalidate( config.getIdTask( ) );
     }
 
     /**
@@ -63,6 +90,7 @@ public class AppointmentConfigService extends TaskConfigService
     public void update( ITaskConfig config )
     {
         super.update( config );
+        invalidate( config.getIdTask( ) );
     }
 
     /**
@@ -73,5 +101,157 @@ public class AppointmentConfigService extends TaskConfigService
     public void remove( int nIdTask )
     {
         super.remove( nIdTask );
+        invalidate( nIdTask );
+    }
+
+    /**
+     * Get the config of a task. The config is served from the cache as a frozen snapshot.
+     * 
+     * @param <T>
+     *            The type of the config
+     * @param nIdTask
+     *            The id of the task
+     * @return The frozen config, or null if the task has no config
+     */
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public <T> T findByPrimaryKey( int nIdTask )
+    {
+        TaskConfigCache cache = getCache( );
+        String strKey = String.valueOf( nIdTask );
+        Object config = cache.getFromCache( strKey );
+
+        if ( config != null )
+        {
+            _nCacheHits.incrementAndGet( );
+
+            return (T) config;
+        }
+
+        _nCacheMisses.incrementAndGet( );
+
+        long nGeneration = _nGeneration.get( );
+        ITaskConfig loadedConfig = super.findByPrimaryKey( nIdTask );
+
+        if ( loadedConfig instanceof FreezableTaskConfig )
+        {
+            ( (FreezableTaskConfig) loadedConfig ).freeze( );
+
+            synchronized( _lock )
+            {
+                // Do not cache a config that was modified while it was loaded
+                if ( nGeneration == _nGeneration.get( ) )
+                {
+                    cache.putInCache( strKey, loadedConfig );
+                }
+            }
+        }
+
+        return (T) loadedConfig;
+    }
+
+    /**
+     * Get the number of configs served from the cache
+     * 
+     * @return The number of cache hits
+     */
+    public long getCacheHits( )
+    {
+        return _nCacheHits.get( );
+    }
+
+    /**
+     * Get the number of configs loaded from the database
+     * 
+     * @return The number of cache misses
+     */
+    public long getCacheMisses( )
+    {
+        return _nCacheMisses.get( );
+    }
+
+    /**
+     * Remove a config and its compiled templates from the caches. If a transaction is active, they are removed again when the transaction completes, so that
+     * a config read by another thread before the commit does not stay in cache.
+     * 
+     * @param nIdTask
+     *            The id of the task
+     */
+    private void invalidate( int nIdTask )
+    {
+        evict( nIdTask );
+
+        if ( TransactionSynchronizationManager.isSynchronizationActive( ) )
+        {
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronization( )
+            {
+                @Override
+                public void afterCompletion( int nStatus )
+                {
+                    evict( nIdTask );
+                }
+            } );
+        }
+    }
+
+    /**
+     * Remove a config and its compiled templates from the caches
+     * 
+     * @param nIdTask
+     *            The id of the task
+     */
+    private void evict( int nIdTask )
+    {
+        synchronized( _lock )
+        {
+            _nGeneration.incrementAndGet( );
+            getCache( ).removeKey( String.valueOf( nIdTask ) );
+        }
+        NotificationTemplateCacheService.getInstance( ).invalidate( nIdTask );
+        CrmMessageTemplateCacheService.getInstance( ).invalidate( nIdTask );
+    }
+
+    /**
+     * Get the cache of the configs
+     * 
+     * @return The cache of the configs
+     */
+    private TaskConfigCache getCache( )
+    {
+        if ( _cache == null )
+        {
+            _cache = new TaskConfigCache( DEFAULT_CACHE_NAME );
+        }
+
+        return _cache;
+    }
+
+    /**
+     * Cache of the configs of a config service
+     */
+    private static final class TaskConfigCache extends AbstractCacheableService
+    {
+        private final String _strName;
+
+        /**
+         * Constructor
+         * 
+         * @param strName
+         *            The name of the cache
+         */
+        TaskConfigCache( String strName )
+        {
+            _strName = strName;
+            initCache( );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getName( )
+        {
+            return _strName;
+        }
     }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import fr.paris.lutece.plugins.crmclient.service.ICRMClientService;
+import fr.paris.lutece.plugins.crmclient.util.CRMException;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.CrmCall;
+
+/**
+ * Processor of the calls of the CRM queue. A call creates its demand if it has none, or updates its existing demand otherwise, then notifies it. The id of a
+ * created demand is kept in the call, so that a call that failed after the creation of its demand does not create it again when it is retried.
+ */
+public class CrmCallProcessor
+{
+    private final ICRMClientService _crmClientService;
+
+    /**
+     * Constructor
+     * 
+     * @param crmClientService
+     *            The CRM client service
+     */
+    public CrmCallProcessor( ICRMClientService crmClientService )
+    {
+        _crmClientService = crmClientService;
+    }
+
+    /**
+     * Process a call
+     * 
+     * @param call
+     *            The call
+     * @throws CRMException
+     *             If the demand could not be created or updated
+     */
+    public void process( CrmCall call ) throws CRMException
+    {
+        if ( call.getIdDemand( ) == null )
+        {
+            call.setIdDemand( _crmClientService.sendCreateDemandByUserGuid( call.getDemandType( ), call.getUserGuid( ), call.getIdStatusCrm( ),
+                    call.getStatusText( ), call.getData( ) ) );
+        }
+        else
+        {
+            _crmClientService.sendUpdateDemand( call.getIdDemand( ), call.getIdStatusCrm( ), call.getStatusText( ), call.getData( ) );
+        }
+
+        if ( call.getIdDemand( ) != null )
+        {
+            _crmClientService.notify( call.getIdDemand( ), call.getNotifyObject( ), call.getNotifyMessage( ), call.getNotifySender( ) );
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Circuit breaker and bulkhead protecting the calls to the CRM. After a number of consecutive failures the circuit opens, and the calls are rejected without
+ * reaching the CRM. Once the open duration is elapsed, a single probe call is let through : the circuit closes if it succeeds, and opens again otherwise.
+ * The number of concurrent calls is bounded, calls over the limit are rejected instead of waiting. A permit is given back by the thread that acquired it, so
+ * that the probe is only ended by the call that made it.
+ */
+public class CrmCircuitBreaker
+{
+    /**
+     * States of the circuit
+     */
+    public enum State
+    {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int _nFailureThreshold;
+    private final long _lOpenDuration;
+    private final Semaphore _bulkhead;
+    private State _state = State.CLOSED;
+    private int _nNbConsecutiveFailures;
+    private long _lDateOpened;
+    private Thread _probeThread;
+    private long _nNbTrips;
+    private long _nNbRejectedCalls;
+
+    /**
+     * Constructor
+     * 
+     * @param nFailureThreshold
+     *            The number of consecutive failures that opens the circuit
+     * @param lOpenDuration
+     *            The time in milliseconds during which the circuit stays open before a probe call is let through
+     * @param nMaxConcurrentCalls
+     *            The maximum number of concurrent calls
+     */
+    public CrmCircuitBreaker( int nFailureThreshold, long lOpenDuration, int nMaxConcurrentCalls )
+    {
+        _nFailureThreshold = Math.max( 1, nFailureThreshold );
+        _lOpenDuration = lOpenDuration;
+        _bulkhead = new Semaphore( Math.max( 1, nMaxConcurrentCalls ) );
+    }
+
+    /**
+     * Check if calls can reach the CRM, without acquiring a permit
+     * 
+     * @return True if the circuit is closed, or if a probe call can be made
+     */
+    public synchronized boolean isCallPermitted( )
+    {
+        switch( getCurrentState( ) )
+        {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                return _probeThread == null;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Acquire a permit to call the CRM. Each acquired permit must be given back by the same thread, by a call to {@link #onSuccess()},
+     * {@link #onFailure()} or {@link #release()}.
+     * 
+     * @return True if the call can be made, false if it is rejected
+     */
+    public synchronized boolean tryAcquire( )
+    {
+        State state = getCurrentState( );
+
+        if ( state == State.OPEN || ( state == State.HALF_OPEN && _probeThread != null ) || !_bulkhead.tryAcquire( ) )
+        {
+            _nNbRejectedCalls++;
+
+            return false;
+        }
+
+        if ( state == State.HALF_OPEN )
+        {
+            _probeThread = Thread.currentThread( );
+        }
+
+        return true;
+    }
+
+    /**
+     * Give back the permit of a successful call
+     */
+    public synchronized void onSuccess( )
+    {
+        _nNbConsecutiveFailures = 0;
+        _state = State.CLOSED;
+        release( );
+    }
+
+    /**
+     * Give back the permit of a failed call
+     */
+    public synchronized void onFailure( )
+    {
+        _nNbConsecutiveFailures++;
+
+        if ( _state != State.OPEN && ( isProbe( ) || _nNbConsecutiveFailures >= _nFailureThreshold ) )
+        {
+            _state = State.OPEN;
+            _lDateOpened = System.currentTimeMillis( );
+            _nNbTrips++;
+        }
+        release( );
+    }
+
+    /**
+     * Give back the permit of a call that was not made
+     */
+    public synchronized void release( )
+    {
+        if ( isProbe( ) )
+        {
+            _probeThread = null;
+        }
+        _bulkhead.release( );
+    }
+
+    /**
+     * Get the state of the circuit
+     * 
+     * @return The state
+     */
+    public synchronized State getState( )
+    {
+        return getCurrentState( );
+    }
+
+    /**
+     * Get the date at which the circuit lets a probe call through
+     * 
+     * @return The date in milliseconds, or 0 if the circuit is not open
+     */
+    public synchronized long getDateRetry( )
+    {
+        return ( _state == State.OPEN ) ? _lDateOpened + _lOpenDuration : 0L;
+    }
+
+    /**
+     * Get the number of consecutive failures
+     * 
+     * @return The number of consecutive failures
+     */
+    public synchronized int getNbConsecutiveFailures( )
+    {
+        return _nNbConsecutiveFailures;
+    }
+
+    /**
+     * Get the number of times the circuit opened
+     * 
+     * @return The number of trips
+     */
+    public synchronized long getNbTrips( )
+    {
+        return _nNbTrips;
+    }
+
+    /**
+     * Get the number of calls rejected because the circuit was open or because too many calls were in progress
+     * 
+     * @return The number of rejected calls
+     */
+    public synchronized long getNbRejectedCalls( )
+    {
+        return _nNbRejectedCalls;
+    }
+
+    /**
+     * Get the number of calls that can still be made concurrently
+     * 
+     * @return The number of available permits
+     */
+    public int getAvailablePermits( )
+    {
+        return _bulkhead.availablePermits( );
+    }
+
+    /**
+     * Check if the current thread made the probe call
+     * 
+     * @return True if the current thread holds the permit of the probe
+     */
+    private boolean isProbe( )
+    {
+        return _probeThread == Thread.currentThread( );
+    }
+
+    /**
+     * Get the state of the circuit, moving it to half open once the open duration is elapsed
+     * 
+     * @return The state
+     */
+    private State getCurrentState( )
+    {
+        if ( _state == State.OPEN && System.currentTimeMillis( ) - _lDateOpened >= _lOpenDuration )
+        {
+            _state = State.HALF_OPEN;
+        }
+
+        return _state;
+    }
+}
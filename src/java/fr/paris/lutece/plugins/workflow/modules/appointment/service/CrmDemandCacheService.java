@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.CrmDemand;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.CrmDemandHome;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+
+/**
+ * Cache of the ids of the demands created in the CRM for the appointments. The demand of an appointment for a type of demand is created once, and the
+ * following CRM notifications of the appointment update this demand.
+ */
+public final class CrmDemandCacheService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "workflow-appointment.crmDemandCacheService";
+
+    // constants
+    private static final String CONSTANT_KEY_SEPARATOR = ":";
+
+    private static CrmDemandCacheService _instance = new CrmDemandCacheService( );
+
+    /**
+     * Private constructor
+     */
+    private CrmDemandCacheService( )
+    {
+        initCache( );
+    }
+
+    /**
+     * Get the instance of the service
+     * 
+     * @return The instance of the service
+     */
+    public static CrmDemandCacheService getInstance( )
+    {
+        return _instance;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Get the id of the demand of an appointment for a type of demand
+     * 
+     * @param nIdAppointment
+     *            The id of the appointment
+     * @param strDemandType
+     *            The type of the demand
+     * @return The id of the demand, or null if no demand was created for this appointment and type of demand
+     */
+    public String getIdDemand( int nIdAppointment, String strDemandType )
+    {
+        String strKey = getKey( nIdAppointment, strDemandType );
+        String strIdDemand = (String) getFromCache( strKey );
+
+        if ( strIdDemand == null )
+        {
+            CrmDemand demand = CrmDemandHome.find( nIdAppointment, strDemandType );
+
+            if ( demand != null )
+            {
+                strIdDemand = demand.getIdDemand( );
+                putInCache( strKey, strIdDemand );
+            }
+        }
+
+        return strIdDemand;
+    }
+
+    /**
+     * Store the id of the demand created for an appointment and a type of demand
+     * 
+     * @param nIdAppointment
+     *            The id of the appointment
+     * @param strDemandType
+     *            The type of the demand
+     * @param strIdDemand
+     *            The id of the demand
+     */
+    public void putIdDemand( int nIdAppointment, String strDemandType, String strIdDemand )
+    {
+        CrmDemand demand = new CrmDemand( );
+        demand.setIdAppointment( nIdAppointment );
+        demand.setDemandType( strDemandType );
+        demand.setIdDemand( strIdDemand );
+        CrmDemandHome.create( demand );
+        putInCache( getKey( nIdAppointment, strDemandType ), strIdDemand );
+    }
+
+    /**
+     * Remove the demands of an appointment
+     * 
+     * @param nIdAppointment
+     *            The id of the appointment
+     */
+    public void removeByIdAppointment( int nIdAppointment )
+    {
+        CrmDemandHome.removeByIdAppointment( nIdAppointment );
+
+        String strPrefix = nIdAppointment + CONSTANT_KEY_SEPARATOR;
+        for ( Object key : getKeys( ) )
+        {
+            String strKey = String.valueOf( key );
+            if ( strKey.startsWith( strPrefix ) )
+            {
+                removeKey( strKey );
+            }
+        }
+    }
+
+    /**
+     * Get the key of a demand in the cache
+     * 
+     * @param nIdAppointment
+     *            The id of the appointment
+     * @param strDemandType
+     *            The type of the demand
+     * @return The key
+     */
+    private String getKey( int nIdAppointment, String strDemandType )
+    {
+        return nIdAppointment + CONSTANT_KEY_SEPARATOR + strDemandType;
+    }
+}
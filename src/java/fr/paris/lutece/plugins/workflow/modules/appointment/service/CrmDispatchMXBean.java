@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+/**
+ * Management interface of the CRM dispatch service, exposing the state of the circuit breaker and the metrics of the queue
+ */
+public interface CrmDispatchMXBean
+{
+    /**
+     * Get the state of the circuit breaker
+     * 
+     * @return The state : CLOSED, OPEN or HALF_OPEN
+     */
+    String getCircuitState( );
+
+    /**
+     * Get the number of consecutive failed calls to the CRM
+     * 
+     * @return The number of consecutive failures
+     */
+    int getNbConsecutiveFailures( );
+
+    /**
+     * Get the number of times the circuit opened
+     * 
+     * @return The number of trips
+     */
+    long getNbTrips( );
+
+    /**
+     * Get the number of calls parked because the circuit was open or because too many calls were in progress
+     * 
+     * @return The number of parked calls
+     */
+    long getNbParkedCalls( );
+
+    /**
+     * Get the number of calls that can still be made concurrently to the CRM
+     * 
+     * @return The number of available permits
+     */
+    int getAvailablePermits( );
+
+    /**
+     * Get the number of calls handed to the lanes and not processed yet
+     * 
+     * @return The number of calls in the lanes
+     */
+    int getQueueDepth( );
+
+    /**
+     * Get the number of calls waiting in the persistent queue
+     * 
+     * @return The number of pending calls
+     */
+    int getNbPendingCalls( );
+
+    /**
+     * Get the number of calls processed successfully
+     * 
+     * @return The number of calls processed
+     */
+    long getNbProcessed( );
+
+    /**
+     * Get the number of failed attempts to process calls
+     * 
+     * @return The number of failed attempts
+     */
+    long getNbFailedAttempts( );
+
+    /**
+     * Get the average delay between the creation of a call and the end of its processing
+     * 
+     * @return The average latency, in milliseconds
+     */
+    long getAverageLatency( );
+
+    /**
+     * Get the maximum delay between the creation of a call and the end of its processing
+     * 
+     * @return The maximum latency, in milliseconds
+     */
+    long getMaxLatency( );
+
+    /**
+     * Get the average duration of the calls to the CRM
+     * 
+     * @return The average duration, in milliseconds
+     */
+    long getAverageCallDuration( );
+}
@@ -0,0 +1,545 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import fr.paris.lutece.plugins.crmclient.service.ICRMClientService;
+import fr.paris.lutece.plugins.crmclient.util.CRMException;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.CrmCall;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.CrmCallHome;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Service to call the CRM outside of the workflow actions. Calls are stored in a persistent queue, then processed in the background by lanes : the calls of
+ * a user always go to the same lane, so that they are processed in order, while the calls of different users are processed in parallel. While a call of a
+ * user waits for a retry, the later calls of this user are held back in the queue. Calls that could
+ * not be handed to a lane, that failed, or that remain in the queue after a restart, are processed by the {@link CrmDispatchDaemon}. The calls to the CRM go
+ * through a {@link CrmCircuitBreaker} : while the CRM is unavailable, calls are parked in the queue and replayed once the circuit closes. The state of the
+ * service is exposed as a JMX MBean.
+ */
+public class CrmDispatchService implements CrmDispatchMXBean
+{
+    /**
+     * The name of the bean of this service
+     */
+    public static final String BEAN_NAME = "workflow-appointment.crmDispatchService";
+
+    // properties
+    private static final String PROPERTY_NB_LANES = "workflow-appointment.crmQueue.nbLanes";
+    private static final String PROPERTY_LANE_QUEUE_SIZE = "workflow-appointment.crmQueue.laneQueueSize";
+    private static final String PROPERTY_MAX_ATTEMPTS = "workflow-appointment.crmQueue.maxAttempts";
+    private static final String PROPERTY_RETRY_DELAY = "workflow-appointment.crmQueue.retryDelay";
+    private static final String PROPERTY_CLAIM_TIMEOUT = "workflow-appointment.crmQueue.claimTimeout";
+    private static final String PROPERTY_BATCH_SIZE = "workflow-appointment.crmQueue.batchSize";
+    private static final String PROPERTY_FAILURE_THRESHOLD = "workflow-appointment.crmQueue.circuitBreaker.failureThreshold";
+    private static final String PROPERTY_OPEN_DURATION = "workflow-appointment.crmQueue.circuitBreaker.openDuration";
+    private static final String PROPERTY_MAX_CONCURRENT_CALLS = "workflow-appointment.crmQueue.circuitBreaker.maxConcurrentCalls";
+
+    // constants
+    private static final int DEFAULT_NB_LANES = 4;
+    private static final int DEFAULT_LANE_QUEUE_SIZE = 250;
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final int DEFAULT_RETRY_DELAY = 300;
+    private static final int DEFAULT_CLAIM_TIMEOUT = 600;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final int DEFAULT_OPEN_DURATION = 60;
+    private static final int DEFAULT_MAX_CONCURRENT_CALLS = 4;
+    private static final long CONSTANT_MILLISECONDS_IN_SECOND = 1000L;
+    private static final String CONSTANT_THREAD_NAME = "workflow-appointment-crm-";
+    private static final String CONSTANT_MBEAN_NAME = "fr.paris.lutece.plugins.workflow.modules.appointment:type=CrmDispatch";
+
+    @Inject
+    private ICRMClientService _crmClientService;
+
+    private final ThreadPoolExecutor [ ] _lanes;
+    private final CrmCircuitBreaker _circuitBreaker;
+    private final AtomicLong _nNbParkedCalls = new AtomicLong( );
+    private final AtomicInteger _nQueueDepth = new AtomicInteger( );
+    private final AtomicLong _nNbProcessed = new AtomicLong( );
+    private final AtomicLong _nNbFailedAttempts = new AtomicLong( );
+    private final AtomicLong _lTotalLatency = new AtomicLong( );
+    private final AtomicLong _lMaxLatency = new AtomicLong( );
+    private final AtomicLong _lTotalCallDuration = new AtomicLong( );
+
+    /**
+     * Constructor
+     */
+    public CrmDispatchService( )
+    {
+        int nNbLanes = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_NB_LANES, DEFAULT_NB_LANES ) );
+        int nLaneQueueSize = AppPropertiesService.getPropertyInt( PROPERTY_LANE_QUEUE_SIZE, DEFAULT_LANE_QUEUE_SIZE );
+        _lanes = new ThreadPoolExecutor [ nNbLanes];
+        for ( int i = 0; i < nNbLanes; i++ )
+        {
+            String strThreadName = CONSTANT_THREAD_NAME + ( i + 1 );
+            _lanes [i] = new ThreadPoolExecutor( 1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>( nLaneQueueSize ), runnable -> {
+                Thread thread = new Thread( runnable, strThreadName );
+                thread.setDaemon( true );
+                return thread;
+            } );
+        }
+
+        _circuitBreaker = new CrmCircuitBreaker( AppPropertiesService.getPropertyInt( PROPERTY_FAILURE_THRESHOLD, DEFAULT_FAILURE_THRESHOLD ),
+                AppPropertiesService.getPropertyInt( PROPERTY_OPEN_DURATION, DEFAULT_OPEN_DURATION ) * CONSTANT_MILLISECONDS_IN_SECOND,
+                AppPropertiesService.getPropertyInt( PROPERTY_MAX_CONCURRENT_CALLS, DEFAULT_MAX_CONCURRENT_CALLS ) );
+        registerMBean( );
+    }
+
+    /**
+     * Get an instance of the service
+     * 
+     * @return The instance of the bean of this service
+     */
+    public static CrmDispatchService getService( )
+    {
+        return SpringContextService.getBean( BEAN_NAME );
+    }
+
+    /**
+     * Store a call in the queue. If a transaction is in progress, the call is stored in this transaction, and handed to its lane once the transaction is
+     * committed.
+     * 
+     * @param call
+     *            The call
+     */
+    public void enqueue( CrmCall call )
+    {
+        Timestamp dateNow = new Timestamp( System.currentTimeMillis( ) );
+        call.setStatus( CrmCall.STATUS_PENDING );
+        call.setNbAttempts( 0 );
+        call.setDateCreation( dateNow );
+        call.setDateNextAttempt( dateNow );
+        CrmCallHome.create( call );
+
+        int nIdCall = call.getIdCall( );
+        String strUserGuid = call.getUserGuid( );
+        if ( TransactionSynchronizationManager.isSynchronizationActive( ) )
+        {
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronization( )
+            {
+                @Override
+                public void afterCommit( )
+                {
+                    submit( nIdCall, strUserGuid );
+                }
+            } );
+        }
+        else
+        {
+            submit( nIdCall, strUserGuid );
+        }
+    }
+
+    /**
+     * Hand a batch of pending calls of the queue to their lanes. Claims of lanes that did not complete in time are released first. Nothing is done while the
+     * circuit breaker rejects the calls.
+     * 
+     * @return The number of calls handed to the lanes
+     */
+    public int processPendingCalls( )
+    {
+        if ( !_circuitBreaker.isCallPermitted( ) )
+        {
+            // The calls stay parked in the queue until the circuit lets a call through
+            return 0;
+        }
+
+        long lClaimTimeout = AppPropertiesService.getPropertyInt( PROPERTY_CLAIM_TIMEOUT, DEFAULT_CLAIM_TIMEOUT ) * CONSTANT_MILLISECONDS_IN_SECOND;
+        CrmCallHome.releaseClaimsBefore( new Timestamp( System.currentTimeMillis( ) - lClaimTimeout ) );
+
+        int nNbSubmitted = 0;
+        for ( CrmCall call : CrmCallHome.findCallsToProcess( AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE ) ) )
+        {
+            if ( submit( call.getIdCall( ), call.getUserGuid( ) ) )
+            {
+                nNbSubmitted++;
+            }
+        }
+        return nNbSubmitted;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getQueueDepth( )
+    {
+        return _nQueueDepth.get( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNbPendingCalls( )
+    {
+        return CrmCallHome.countPending( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getNbProcessed( )
+    {
+        return _nNbProcessed.get( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getNbFailedAttempts( )
+    {
+        return _nNbFailedAttempts.get( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getAverageLatency( )
+    {
+        long nNbProcessed = _nNbProcessed.get( );
+        return ( nNbProcessed > 0 ) ? _lTotalLatency.get( ) / nNbProcessed : 0L;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMaxLatency( )
+    {
+        return _lMaxLatency.get( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getAverageCallDuration( )
+    {
+        long nNbCalls = _nNbProcessed.get( ) + _nNbFailedAttempts.get( );
+        return ( nNbCalls > 0 ) ? _lTotalCallDuration.get( ) / nNbCalls : 0L;
+    }
+
+    /**
+     * Get the circuit breaker protecting the calls to the CRM
+     * 
+     * @return The circuit breaker
+     */
+    public CrmCircuitBreaker getCircuitBreaker( )
+    {
+        return _circuitBreaker;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getCircuitState( )
+    {
+        return _circuitBreaker.getState( ).name( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNbConsecutiveFailures( )
+    {
+        return _circuitBreaker.getNbConsecutiveFailures( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getNbTrips( )
+    {
+        return _circuitBreaker.getNbTrips( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getNbParkedCalls( )
+    {
+        return _nNbParkedCalls.get( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getAvailablePermits( )
+    {
+        return _circuitBreaker.getAvailablePermits( );
+    }
+
+    /**
+     * Hand a call to the lane of its user
+     * 
+     * @param nIdCall
+     *            The id of the call
+     * @param strUserGuid
+     *            The guid of the user of the call
+     * @return True if the call was handed to its lane, false if the lane is full
+     */
+    private boolean submit( int nIdCall, String strUserGuid )
+    {
+        ThreadPoolExecutor lane = _lanes [Math.floorMod( ( strUserGuid != null ) ? strUserGuid.hashCode( ) : 0, _lanes.length )];
+        _nQueueDepth.incrementAndGet( );
+        try
+        {
+            lane.execute( ( ) -> {
+                try
+                {
+                    process( nIdCall );
+                }
+                finally
+                {
+                    _nQueueDepth.decrementAndGet( );
+                }
+            } );
+            return true;
+        }
+        catch( RejectedExecutionException e )
+        {
+            // The call stays in the queue and will be processed by the daemon
+            _nQueueDepth.decrementAndGet( );
+            AppLogService.debug( "CRM lane is full, call " + nIdCall + " will be processed by the daemon" );
+            return false;
+        }
+    }
+
+    /**
+     * Process a call of the queue. The call is claimed first, so that it is only processed once even if it was handed to a lane several times. If the circuit
+     * breaker rejects the call, or if an earlier call of its user is still in the queue, it is left in the queue without counting an attempt.
+     * 
+     * @param nIdCall
+     *            The id of the call
+     */
+    private void process( int nIdCall )
+    {
+        if ( !_circuitBreaker.tryAcquire( ) )
+        {
+            _nNbParkedCalls.incrementAndGet( );
+
+            return;
+        }
+
+        // The permit is given back on every path, even if the queue can not be read or written
+        boolean bCalled = false;
+        boolean bSucceeded = false;
+        try
+        {
+            String strClaimToken = UUID.randomUUID( ).toString( );
+            CrmCallHome.claim( nIdCall, strClaimToken, new Timestamp( System.currentTimeMillis( ) ) );
+            CrmCall call = CrmCallHome.findByPrimaryKey( nIdCall );
+            if ( call == null || !strClaimToken.equals( call.getClaimToken( ) ) )
+            {
+                // Already processed, or claimed by another lane
+                return;
+            }
+
+            if ( CrmCallHome.hasEarlierCall( nIdCall ) )
+            {
+                // An earlier call of the user is waiting for a retry : the call is left in the queue until the earlier one is done
+                call.setStatus( CrmCall.STATUS_PENDING );
+                CrmCallHome.storeAttempt( call );
+
+                return;
+            }
+
+            // A demand already created for the appointment is updated instead of creating a new one
+            if ( call.getIdDemand( ) == null && call.getIdAppointment( ) > 0 )
+            {
+                call.setIdDemand( CrmDemandCacheService.getInstance( ).getIdDemand( call.getIdAppointment( ), call.getDemandType( ) ) );
+            }
+
+            long lStart = System.currentTimeMillis( );
+            bCalled = true;
+            bSucceeded = callCrm( call );
+            if ( bSucceeded )
+            {
+                recordSuccess( call, lStart );
+            }
+            else
+            {
+                recordFailure( call, lStart );
+            }
+        }
+        finally
+        {
+            if ( !bCalled )
+            {
+                _circuitBreaker.release( );
+            }
+            else if ( bSucceeded )
+            {
+                _circuitBreaker.onSuccess( );
+            }
+            else
+            {
+                _circuitBreaker.onFailure( );
+            }
+        }
+    }
+
+    /**
+     * Send a call to the CRM
+     * 
+     * @param call
+     *            The call
+     * @return True if the CRM received the call, false if the call failed
+     */
+    private boolean callCrm( CrmCall call )
+    {
+        String strKnownIdDemand = call.getIdDemand( );
+        try
+        {
+            try
+            {
+                new CrmCallProcessor( _crmClientService ).process( call );
+            }
+            finally
+            {
+                if ( strKnownIdDemand == null && call.getIdDemand( ) != null && call.getIdAppointment( ) > 0 )
+                {
+                    CrmDemandCacheService.getInstance( ).putIdDemand( call.getIdAppointment( ), call.getDemandType( ), call.getIdDemand( ) );
+                }
+            }
+
+            return true;
+        }
+        catch( CRMException | RuntimeException e )
+        {
+            AppLogService.error( "Error while processing call " + call.getIdCall( ) + " of the CRM queue", e );
+
+            return false;
+        }
+    }
+
+    /**
+     * Record a call received by the CRM, and remove it from the queue. A failure to remove it from the queue is not a failed attempt.
+     * 
+     * @param call
+     *            The call
+     * @param lStart
+     *            The date at which the call to the CRM started, in milliseconds
+     */
+    private void recordSuccess( CrmCall call, long lStart )
+    {
+        long lEnd = System.currentTimeMillis( );
+        _lTotalCallDuration.addAndGet( lEnd - lStart );
+        long lLatency = lEnd - call.getDateCreation( ).getTime( );
+        _nNbProcessed.incrementAndGet( );
+        _lTotalLatency.addAndGet( lLatency );
+        _lMaxLatency.accumulateAndGet( lLatency, Math::max );
+        try
+        {
+            CrmCallHome.remove( call.getIdCall( ) );
+        }
+        catch( RuntimeException e )
+        {
+            AppLogService.error( "Call " + call.getIdCall( ) + " was sent to the CRM but could not be removed from the queue, it will be sent again once its "
+                    + "claim expires", e );
+        }
+    }
+
+    /**
+     * Record a failed attempt of a call, and schedule its retry
+     * 
+     * @param call
+     *            The call
+     * @param lStart
+     *            The date at which the call to the CRM started, in milliseconds
+     */
+    private void recordFailure( CrmCall call, long lStart )
+    {
+        _lTotalCallDuration.addAndGet( System.currentTimeMillis( ) - lStart );
+        _nNbFailedAttempts.incrementAndGet( );
+
+        int nNbAttempts = call.getNbAttempts( ) + 1;
+        long lRetryDelay = AppPropertiesService.getPropertyInt( PROPERTY_RETRY_DELAY, DEFAULT_RETRY_DELAY ) * CONSTANT_MILLISECONDS_IN_SECOND;
+        call.setNbAttempts( nNbAttempts );
+        call.setStatus( nNbAttempts >= AppPropertiesService.getPropertyInt( PROPERTY_MAX_ATTEMPTS, DEFAULT_MAX_ATTEMPTS ) ? CrmCall.STATUS_FAILED
+                : CrmCall.STATUS_PENDING );
+        call.setDateNextAttempt( new Timestamp( System.currentTimeMillis( ) + lRetryDelay * nNbAttempts ) );
+        CrmCallHome.storeAttempt( call );
+    }
+
+    /**
+     * Register this service in the MBean server of the platform. A service registered by a previous context is replaced.
+     */
+    private void registerMBean( )
+    {
+        try
+        {
+            MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer( );
+            ObjectName objectName = new ObjectName( CONSTANT_MBEAN_NAME );
+            if ( mbeanServer.isRegistered( objectName ) )
+            {
+                mbeanServer.unregisterMBean( objectName );
+            }
+            mbeanServer.registerMBean( this, objectName );
+        }
+        catch( JMException e )
+        {
+            AppLogService.error( "Unable to register the CRM dispatch MBean", e );
+        }
+    }
+}
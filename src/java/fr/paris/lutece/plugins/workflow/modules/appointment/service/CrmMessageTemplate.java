@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import fr.paris.lutece.plugins.appointment.business.user.User;
+import fr.paris.lutece.plugins.appointment.service.AppointmentResponseService;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
+import fr.paris.lutece.plugins.genericattributes.business.Response;
+
+/**
+ * Compiled message of a CRM notification. The source of the message is parsed once into literal and variable segments, so that rendering the message for an
+ * appointment is a single pass over the segments. Variables are written <code>${name}</code> : the variables of the appointment are listed in
+ * {@link #getVariableNames()}, and the response of the appointment to an entry is available as <code>${response_&lt;id of the entry&gt;}</code>. Marks that
+ * are not variables are kept as they are in the message. Variables without value are rendered as empty strings.
+ */
+public final class CrmMessageTemplate
+{
+    // constants
+    private static final String CONSTANT_MARK_START = "${";
+    private static final String CONSTANT_MARK_END = "}";
+    private static final String CONSTANT_PREFIX_RESPONSE = "response_";
+
+    // variables
+    private static final String VARIABLE_FIRSTNAME = "firstName";
+    private static final String VARIABLE_LASTNAME = "lastName";
+    private static final String VARIABLE_EMAIL = "email";
+    private static final String VARIABLE_REFERENCE = "reference";
+    private static final String VARIABLE_DATE_APPOINTMENT = "date_appointment";
+    private static final String VARIABLE_TIME_APPOINTMENT = "time_appointment";
+    private static final String VARIABLE_END_TIME_APPOINTMENT = "end_time_appointment";
+    private static final String VARIABLE_ID_APPOINTMENT = "id_appointment";
+
+    private static final Map<String, Function<RenderContext, Object>> VARIABLES = initVariables( );
+
+    private final String _strSource;
+    private final Segment [ ] _segments;
+    private final int _nLiteralLength;
+
+    /**
+     * Constructor
+     * 
+     * @param strSource
+     *            The source of the message
+     * @param listSegments
+     *            The segments of the message
+     * @param nLiteralLength
+     *            The length of the literal segments
+     */
+    private CrmMessageTemplate( String strSource, List<Segment> listSegments, int nLiteralLength )
+    {
+        _strSource = strSource;
+        _segments = listSegments.toArray( new Segment [ listSegments.size( )] );
+        _nLiteralLength = nLiteralLength;
+    }
+
+    /**
+     * Compile the source of a message
+     * 
+     * @param strSource
+     *            The source of the message
+     * @return The compiled message
+     */
+    public static CrmMessageTemplate compile( String strSource )
+    {
+        String strMessage = ( strSource != null ) ? strSource : "";
+        List<Segment> listSegments = new ArrayList<>( );
+        StringBuilder sbLiteral = new StringBuilder( );
+        int nLiteralLength = 0;
+        int nIndex = 0;
+
+        while ( nIndex < strMessage.length( ) )
+        {
+            int nStart = strMessage.indexOf( CONSTANT_MARK_START, nIndex );
+            int nEnd = ( nStart >= 0 ) ? strMessage.indexOf( CONSTANT_MARK_END, nStart + CONSTANT_MARK_START.length( ) ) : -1;
+
+            if ( nEnd < 0 )
+            {
+                sbLiteral.append( strMessage, nIndex, strMessage.length( ) );
+                break;
+            }
+
+            // The variable is the innermost mark before the end
+            nStart = strMessage.lastIndexOf( CONSTANT_MARK_START, nEnd );
+
+            Function<RenderContext, Object> variable = getVariable( strMessage.substring( nStart + CONSTANT_MARK_START.length( ), nEnd ) );
+
+            if ( variable == null )
+            {
+                // Not a variable, the mark is kept in the message
+                sbLiteral.append( strMessage, nIndex, nEnd + CONSTANT_MARK_END.length( ) );
+            }
+            else
+            {
+                sbLiteral.append( strMessage, nIndex, nStart );
+                nLiteralLength += addLiteral( listSegments, sbLiteral );
+                listSegments.add( ( sb, context ) -> {
+                    Object value = variable.apply( context );
+                    if ( value != null )
+                    {
+                        sb.append( value );
+                    }
+                } );
+            }
+            nIndex = nEnd + CONSTANT_MARK_END.length( );
+        }
+        nLiteralLength += addLiteral( listSegments, sbLiteral );
+
+        return new CrmMessageTemplate( strMessage, listSegments, nLiteralLength );
+    }
+
+    /**
+     * Get the names of the variables of the appointment that can be used in a message
+     * 
+     * @return The names of the variables
+     */
+    public static List<String> getVariableNames( )
+    {
+        return new ArrayList<>( VARIABLES.keySet( ) );
+    }
+
+    /**
+     * Get the source of the message
+     * 
+     * @return The source of the message
+     */
+    public String getSource( )
+    {
+        return _strSource;
+    }
+
+    /**
+     * Render the message for an appointment
+     * 
+     * @param appointment
+     *            The appointment
+     * @return The rendered message
+     */
+    public String render( AppointmentDTO appointment )
+    {
+        RenderContext context = new RenderContext( appointment );
+        StringBuilder sb = new StringBuilder( _nLiteralLength + 16 * _segments.length );
+
+        for ( Segment segment : _segments )
+        {
+            segment.append( sb, context );
+        }
+
+        return sb.toString( );
+    }
+
+    /**
+     * Add the pending literal text as a segment
+     * 
+     * @param listSegments
+     *            The segments
+     * @param sbLiteral
+     *            The pending literal text, emptied by this method
+     * @return The length of the added literal
+     */
+    private static int addLiteral( List<Segment> listSegments, StringBuilder sbLiteral )
+    {
+        int nLength = sbLiteral.length( );
+
+        if ( nLength > 0 )
+        {
+            String strLiteral = sbLiteral.toString( );
+            listSegments.add( ( sb, context ) -> sb.append( strLiteral ) );
+            sbLiteral.setLength( 0 );
+        }
+
+        return nLength;
+    }
+
+    /**
+     * Get the variable of a mark
+     * 
+     * @param strName
+     *            The name in the mark
+     * @return The function giving the value of the variable, or null if the name is not a variable
+     */
+    private static Function<RenderContext, Object> getVariable( String strName )
+    {
+        Function<RenderContext, Object> variable = VARIABLES.get( strName );
+
+        if ( variable == null && strName.startsWith( CONSTANT_PREFIX_RESPONSE ) )
+        {
+            try
+            {
+                Integer nIdEntry = Integer.valueOf( strName.substring( CONSTANT_PREFIX_RESPONSE.length( ) ) );
+                variable = context -> context.getResponses( ).get( nIdEntry );
+            }
+            catch( NumberFormatException e )
+            {
+                // Not the response to an entry
+                variable = null;
+            }
+        }
+
+        return variable;
+    }
+
+    /**
+     * Build the variables of the appointment
+     * 
+     * @return The variables by name
+     */
+    private static Map<String, Function<RenderContext, Object>> initVariables( )
+    {
+        Map<String, Function<RenderContext, Object>> mapVariables = new HashMap<>( );
+        mapVariables.put( VARIABLE_FIRSTNAME, context -> ( context.getUser( ) != null ) ? context.getUser( ).getFirstName( ) : null );
+        mapVariables.put( VARIABLE_LASTNAME, context -> ( context.getUser( ) != null ) ? context.getUser( ).getLastName( ) : null );
+        mapVariables.put( VARIABLE_EMAIL, context -> ( context.getUser( ) != null ) ? context.getUser( ).getEmail( ) : null );
+        mapVariables.put( VARIABLE_REFERENCE, context -> context.getAppointment( ).getReference( ) );
+        mapVariables.put( VARIABLE_DATE_APPOINTMENT, context -> context.getAppointment( ).getDateOfTheAppointment( ) );
+        mapVariables.put( VARIABLE_TIME_APPOINTMENT, context -> context.getAppointment( ).getStartingTime( ) );
+        mapVariables.put( VARIABLE_END_TIME_APPOINTMENT, context -> context.getAppointment( ).getEndingTime( ) );
+        mapVariables.put( VARIABLE_ID_APPOINTMENT, context -> context.getAppointment( ).getIdAppointment( ) );
+
+        return Collections.unmodifiableMap( mapVariables );
+    }
+
+    /**
+     * Segment of a compiled message
+     */
+    @FunctionalInterface
+    private interface Segment
+    {
+        /**
+         * Append the segment to the rendered message
+         * 
+         * @param sb
+         *            The rendered message
+         * @param context
+         *            The render context
+         */
+        void append( StringBuilder sb, RenderContext context );
+    }
+
+    /**
+     * Context of the rendering of a message. The responses of the appointment are only loaded if the message uses them.
+     */
+    private static final class RenderContext
+    {
+        private final AppointmentDTO _appointment;
+        private final Supplier<Map<Integer, String>> _responses;
+
+        /**
+         * Constructor
+         * 
+         * @param appointment
+         *            The appointment
+         */
+        RenderContext( AppointmentDTO appointment )
+        {
+            _appointment = appointment;
+            _responses = NotificationModel.memoize( ( ) -> findResponses( appointment.getIdAppointment( ) ) );
+        }
+
+        /**
+         * Get the appointment
+         * 
+         * @return The appointment
+         */
+        AppointmentDTO getAppointment( )
+        {
+            return _appointment;
+        }
+
+        /**
+         * Get the user of the appointment
+         * 
+         * @return The user, or null if the appointment has no user
+         */
+        User getUser( )
+        {
+            return _appointment.getUser( );
+        }
+
+        /**
+         * Get the responses of the appointment
+         * 
+         * @return The values of the responses by id of entry
+         */
+        Map<Integer, String> getResponses( )
+        {
+            return _responses.get( );
+        }
+
+        /**
+         * Find the responses of an appointment. The values of the responses to the same entry are separated by commas.
+         * 
+         * @param nIdAppointment
+         *            The id of the appointment
+         * @return The values of the responses by id of entry
+         */
+        private static Map<Integer, String> findResponses( int nIdAppointment )
+        {
+            Map<Integer, String> mapResponses = new HashMap<>( );
+
+            for ( Response response : AppointmentResponseService.findListResponse( nIdAppointment ) )
+            {
+                if ( response.getEntry( ) != null && response.getResponseValue( ) != null )
+                {
+                    mapResponses.merge( response.getEntry( ).getIdEntry( ), response.getResponseValue( ), ( strFirst, strSecond ) -> strFirst + ", " + strSecond );
+                }
+            }
+
+            return mapResponses;
+        }
+    }
+}
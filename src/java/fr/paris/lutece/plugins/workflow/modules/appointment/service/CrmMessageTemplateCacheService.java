@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+
+/**
+ * Cache of the compiled messages of the CRM notification tasks. Messages are kept in cache by task, and are compiled again if the message of the task
+ * changed.
+ */
+public final class CrmMessageTemplateCacheService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "workflow-appointment.crmMessageTemplateCacheService";
+
+    private static CrmMessageTemplateCacheService _instance = new CrmMessageTemplateCacheService( );
+
+    /**
+     * Private constructor
+     */
+    private CrmMessageTemplateCacheService( )
+    {
+        initCache( );
+    }
+
+    /**
+     * Get the instance of the service
+     * 
+     * @return The instance of the service
+     */
+    public static CrmMessageTemplateCacheService getInstance( )
+    {
+        return _instance;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Get the compiled message of a task from the cache, or compile it
+     * 
+     * @param nIdTask
+     *            The id of the task
+     * @param strSource
+     *            The source of the message
+     * @return The compiled message
+     */
+    public CrmMessageTemplate getTemplate( int nIdTask, String strSource )
+    {
+        String strKey = String.valueOf( nIdTask );
+        CrmMessageTemplate template = (CrmMessageTemplate) getFromCache( strKey );
+
+        if ( template == null || !template.getSource( ).equals( ( strSource != null ) ? strSource : "" ) )
+        {
+            template = CrmMessageTemplate.compile( strSource );
+            putInCache( strKey, template );
+        }
+
+        return template;
+    }
+
+    /**
+     * Remove the compiled message of a task from the cache. Must be called when the configuration of the task changes.
+     * 
+     * @param nIdTask
+     *            The id of the task
+     */
+    public void invalidate( int nIdTask )
+    {
+        removeKey( String.valueOf( nIdTask ) );
+    }
+}
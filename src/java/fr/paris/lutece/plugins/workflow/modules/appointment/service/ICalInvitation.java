@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.util.List;
+
+/**
+ * Data of an iCal invitation to an appointment
+ */
+public class ICalInvitation
+{
+    private boolean _bCreate;
+    private String _strProdId;
+    private ICalTimeZone _iCalTimeZone;
+    private long _lStartTime;
+    private long _lEndTime;
+    private String _strSummary;
+    private String _strUid;
+    private List<String> _listRequiredAttendees;
+    private List<String> _listOptionalAttendees;
+    private String _strOrganizerName;
+    private String _strOrganizerEmail;
+    private String _strLocation;
+    private String _strDescription;
+    private boolean _bHtmlDescription;
+
+    /**
+     * Get true to notify the creation of the appointment, false to notify its removal
+     * 
+     * @return True to notify the creation of the appointment, false to notify its removal
+     */
+    public boolean getCreate( )
+    {
+        return _bCreate;
+    }
+
+    /**
+     * Set true to notify the creation of the appointment, false to notify its removal
+     * 
+     * @param bCreate
+     *            True to notify the creation of the appointment, false to notify its removal
+     */
+    public void setCreate( boolean bCreate )
+    {
+        _bCreate = bCreate;
+    }
+
+    /**
+     * Get the product identifier of the calendar
+     * 
+     * @return The product identifier of the calendar
+     */
+    public String getProdId( )
+    {
+        return _strProdId;
+    }
+
+    /**
+     * Set the product identifier of the calendar
+     * 
+     * @param strProdId
+     *            The product identifier of the calendar
+     */
+    public void setProdId( String strProdId )
+    {
+        _strProdId = strProdId;
+    }
+
+    /**
+     * Get the time zone of the appointment
+     * 
+     * @return The time zone of the appointment
+     */
+    public ICalTimeZone getICalTimeZone( )
+    {
+        return _iCalTimeZone;
+    }
+
+    /**
+     * Set the time zone of the appointment
+     * 
+     * @param iCalTimeZone
+     *            The time zone of the appointment
+     */
+    public void setICalTimeZone( ICalTimeZone iCalTimeZone )
+    {
+        _iCalTimeZone = iCalTimeZone;
+    }
+
+    /**
+     * Get the starting time of the appointment, in milliseconds since the epoch
+     * 
+     * @return The starting time of the appointment, in milliseconds since the epoch
+     */
+    public long getStartTime( )
+    {
+        return _lStartTime;
+    }
+
+    /**
+     * Set the starting time of the appointment, in milliseconds since the epoch
+     * 
+     * @param lStartTime
+     *            The starting time of the appointment, in milliseconds since the epoch
+     */
+    public void setStartTime( long lStartTime )
+    {
+        _lStartTime = lStartTime;
+    }
+
+    /**
+     * Get the ending time of the appointment, in milliseconds since the epoch
+     * 
+     * @return The ending time of the appointment, in milliseconds since the epoch
+     */
+    public long getEndTime( )
+    {
+        return _lEndTime;
+    }
+
+    /**
+     * Set the ending time of the appointment, in milliseconds since the epoch
+     * 
+     * @param lEndTime
+     *            The ending time of the appointment, in milliseconds since the epoch
+     */
+    public void setEndTime( long lEndTime )
+    {
+        _lEndTime = lEndTime;
+    }
+
+    /**
+     * Get the summary of the event
+     * 
+     * @return The summary of the event
+     */
+    public String getSummary( )
+    {
+        return _strSummary;
+    }
+
+    /**
+     * Set the summary of the event
+     * 
+     * @param strSummary
+     *            The summary of the event
+     */
+    public void setSummary( String strSummary )
+    {
+        _strSummary = strSummary;
+    }
+
+    /**
+     * Get the unique identifier of the event
+     * 
+     * @return The unique identifier of the event
+     */
+    public String getUid( )
+    {
+        return _strUid;
+    }
+
+    /**
+     * Set the unique identifier of the event
+     * 
+     * @param strUid
+     *            The unique identifier of the event
+     */
+    public void setUid( String strUid )
+    {
+        _strUid = strUid;
+    }
+
+    /**
+     * Get the emails of the required attendees
+     * 
+     * @return The emails of the required attendees
+     */
+    public List<String> getRequiredAttendees( )
+    {
+        return _listRequiredAttendees;
+    }
+
+    /**
+     * Set the emails of the required attendees
+     * 
+     * @param listRequiredAttendees
+     *            The emails of the required attendees
+     */
+    public void setRequiredAttendees( List<String> listRequiredAttendees )
+    {
+        _listRequiredAttendees = listRequiredAttendees;
+    }
+
+    /**
+     * Get the emails of the optional attendees
+     * 
+     * @return The emails of the optional attendees
+     */
+    public List<String> getOptionalAttendees( )
+    {
+        return _listOptionalAttendees;
+    }
+
+    /**
+     * Set the emails of the optional attendees
+     * 
+     * @param listOptionalAttendees
+     *            The emails of the optional attendees
+     */
+    public void setOptionalAttendees( List<String> listOptionalAttendees )
+    {
+        _listOptionalAttendees = listOptionalAttendees;
+    }
+
+    /**
+     * Get the name of the organizer
+     * 
+     * @return The name of the organizer
+     */
+    public String getOrganizerName( )
+    {
+        return _strOrganizerName;
+    }
+
+    /**
+     * Set the name of the organizer
+     * 
+     * @param strOrganizerName
+     *            The name of the organizer
+     */
+    public void setOrganizerName( String strOrganizerName )
+    {
+        _strOrganizerName = strOrganizerName;
+    }
+
+    /**
+     * Get the email of the organizer
+     * 
+     * @return The email of the organizer
+     */
+    public String getOrganizerEmail( )
+    {
+        return _strOrganizerEmail;
+    }
+
+    /**
+     * Set the email of the organizer
+     * 
+     * @param strOrganizerEmail
+     *            The email of the organizer
+     */
+    public void setOrganizerEmail( String strOrganizerEmail )
+    {
+        _strOrganizerEmail = strOrganizerEmail;
+    }
+
+    /**
+     * Get the location of the event
+     * 
+     * @return The location of the event
+     */
+    public String getLocation( )
+    {
+        return _strLocation;
+    }
+
+    /**
+     * Set the location of the event
+     * 
+     * @param strLocation
+     *            The location of the event
+     */
+    public void setLocation( String strLocation )
+    {
+        _strLocation = strLocation;
+    }
+
+    /**
+     * Get the formatted description of the event
+     * 
+     * @return The formatted description of the event
+     */
+    public String getDescription( )
+    {
+        return _strDescription;
+    }
+
+    /**
+     * Set the formatted description of the event
+     * 
+     * @param strDescription
+     *            The formatted description of the event
+     */
+    public void setDescription( String strDescription )
+    {
+        _strDescription = strDescription;
+    }
+
+    /**
+     * Get true if the description contains HTML elements
+     * 
+     * @return True if the description contains HTML elements
+     */
+    public boolean getHtmlDescription( )
+    {
+        return _bHtmlDescription;
+    }
+
+    /**
+     * Set true if the description contains HTML elements
+     * 
+     * @param bHtmlDescription
+     *            True if the description contains HTML elements
+     */
+    public void setHtmlDescription( boolean bHtmlDescription )
+    {
+        _bHtmlDescription = bHtmlDescription;
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming writer of iCal invitations. The VCALENDAR of an invitation is written directly into a buffer reused by each thread, without building the ical4j
+ * object model. The output is the same as the one of the ical4j model built by {@link ICalService}. Invitations with values that need a special treatment
+ * (quotes, backslashes, unusual email addresses...) are not supported : the writer returns null, and the ical4j model must be used instead.
+ */
+public final class ICalInvitationWriter
+{
+    // constants
+    private static final String CRLF = "\r\n";
+    private static final String BEGIN_VCALENDAR = "BEGIN:VCALENDAR";
+    private static final String END_VCALENDAR = "END:VCALENDAR";
+    private static final String BEGIN_VEVENT = "BEGIN:VEVENT";
+    private static final String END_VEVENT = "END:VEVENT";
+    private static final String PROPERTY_METHOD_REQUEST = "METHOD:REQUEST";
+    private static final String PROPERTY_METHOD_CANCEL = "METHOD:CANCEL";
+    private static final String PROPERTY_PRODID = "PRODID:";
+    private static final String PROPERTY_VERSION = "VERSION:2.0";
+    private static final String PROPERTY_CALSCALE = "CALSCALE:GREGORIAN";
+    private static final String PROPERTY_DTSTAMP = "DTSTAMP:";
+    private static final String PROPERTY_DTSTART = "DTSTART;TZID=";
+    private static final String PROPERTY_DTEND = "DTEND;TZID=";
+    private static final String PROPERTY_SUMMARY = "SUMMARY:";
+    private static final String PROPERTY_UID = "UID:";
+    private static final String PROPERTY_ATTENDEE_REQUIRED = "ATTENDEE;ROLE=REQ-PARTICIPANT;PARTSTAT=NEEDS-ACTION;RSVP=FALSE:MAILTO:";
+    private static final String PROPERTY_ATTENDEE_OPTIONAL = "ATTENDEE;ROLE=OPT-PARTICIPANT;PARTSTAT=NEEDS-ACTION;RSVP=FALSE:MAILTO:";
+    private static final String PROPERTY_ORGANIZER = "ORGANIZER;CN=";
+    private static final String PROPERTY_LOCATION = "LOCATION:";
+    private static final String PROPERTY_DESCRIPTION = "DESCRIPTION:";
+    private static final String PROPERTY_ALT_DESCRIPTION = "X-ALT-DESC;FMTTYPE=text/html:";
+    private static final int INITIAL_BUFFER_CAPACITY = 8192;
+    private static final int MAX_RETAINED_BUFFER_CAPACITY = 65536;
+    private static final Pattern PATTERN_SIMPLE_EMAIL = Pattern.compile( "[A-Za-z0-9._%+\\-]+@[A-Za-z0-9.\\-]+" );
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial( ( ) -> new StringBuilder( INITIAL_BUFFER_CAPACITY ) );
+
+    /**
+     * Private constructor
+     */
+    private ICalInvitationWriter( )
+    {
+    }
+
+    /**
+     * Write an invitation
+     * 
+     * @param invitation
+     *            The invitation
+     * @return The iCal content of the invitation, or null if the invitation is not supported by this writer
+     */
+    public static String write( ICalInvitation invitation )
+    {
+        if ( !isSupported( invitation ) )
+        {
+            return null;
+        }
+
+        StringBuilder sbCalendar = BUFFER.get( );
+        sbCalendar.setLength( 0 );
+
+        try
+        {
+            sbCalendar.append( BEGIN_VCALENDAR ).append( CRLF );
+            sbCalendar.append( invitation.getCreate( ) ? PROPERTY_METHOD_REQUEST : PROPERTY_METHOD_CANCEL ).append( CRLF );
+            sbCalendar.append( PROPERTY_PRODID );
+            appendText( sbCalendar, invitation.getProdId( ) );
+            sbCalendar.append( CRLF );
+            sbCalendar.append( PROPERTY_VERSION ).append( CRLF );
+            sbCalendar.append( PROPERTY_CALSCALE ).append( CRLF );
+            sbCalendar.append( invitation.getICalTimeZone( ).getVTimeZoneContent( ) );
+
+            sbCalendar.append( BEGIN_VEVENT ).append( CRLF );
+            sbCalendar.append( PROPERTY_DTSTAMP );
+            appendDateTime( sbCalendar, System.currentTimeMillis( ), 0 );
+            sbCalendar.append( 'Z' ).append( CRLF );
+            appendZonedDateTime( sbCalendar, PROPERTY_DTSTART, invitation, invitation.getStartTime( ) );
+            appendZonedDateTime( sbCalendar, PROPERTY_DTEND, invitation, invitation.getEndTime( ) );
+            sbCalendar.append( PROPERTY_SUMMARY );
+            appendText( sbCalendar, invitation.getSummary( ) );
+            sbCalendar.append( CRLF );
+            sbCalendar.append( PROPERTY_UID );
+            appendText( sbCalendar, invitation.getUid( ) );
+            sbCalendar.append( CRLF );
+            for ( String strEmail : invitation.getRequiredAttendees( ) )
+            {
+                sbCalendar.append( PROPERTY_ATTENDEE_REQUIRED ).append( strEmail ).append( CRLF );
+            }
+            for ( String strEmail : invitation.getOptionalAttendees( ) )
+            {
+                sbCalendar.append( PROPERTY_ATTENDEE_OPTIONAL ).append( strEmail ).append( CRLF );
+            }
+            sbCalendar.append( PROPERTY_ORGANIZER );
+            appendParameterValue( sbCalendar, invitation.getOrganizerName( ) );
+            sbCalendar.append( ':' ).append( invitation.getOrganizerEmail( ) ).append( CRLF );
+            sbCalendar.append( PROPERTY_LOCATION );
+            appendText( sbCalendar, invitation.getLocation( ) );
+            sbCalendar.append( CRLF );
+            sbCalendar.append( PROPERTY_DESCRIPTION );
+            appendText( sbCalendar, invitation.getDescription( ) );
+            sbCalendar.append( CRLF );
+            if ( invitation.getHtmlDescription( ) )
+            {
+                sbCalendar.append( PROPERTY_ALT_DESCRIPTION );
+                appendText( sbCalendar, invitation.getDescription( ) );
+                sbCalendar.append( CRLF );
+            }
+            sbCalendar.append( END_VEVENT ).append( CRLF );
+            sbCalendar.append( END_VCALENDAR ).append( CRLF );
+
+            return sbCalendar.toString( );
+        }
+        finally
+        {
+            // Do not keep the buffer of an unusually large invitation
+            if ( sbCalendar.capacity( ) > MAX_RETAINED_BUFFER_CAPACITY )
+            {
+                BUFFER.set( new StringBuilder( INITIAL_BUFFER_CAPACITY ) );
+            }
+        }
+    }
+
+    /**
+     * Check if an invitation is supported by this writer
+     * 
+     * @param invitation
+     *            The invitation
+     * @return true if the invitation is supported, false if the ical4j model must be used
+     */
+    private static boolean isSupported( ICalInvitation invitation )
+    {
+        return invitation.getICalTimeZone( ) != null && invitation.getICalTimeZone( ).getTimeZone( ) != null
+                && isSimpleText( invitation.getProdId( ) ) && isSimpleText( invitation.getSummary( ) ) && isSimpleText( invitation.getUid( ) )
+                && isSimpleText( invitation.getLocation( ) ) && invitation.getDescription( ) != null && isSimpleText( invitation.getDescription( ) )
+                && invitation.getOrganizerName( ) != null && isSimpleText( invitation.getOrganizerName( ) )
+                && isSimpleEmail( invitation.getOrganizerEmail( ) ) && areSimpleEmails( invitation.getRequiredAttendees( ) )
+                && areSimpleEmails( invitation.getOptionalAttendees( ) );
+    }
+
+    /**
+     * Check if a text value can be written by this writer
+     * 
+     * @param strValue
+     *            The value
+     * @return true if the value does not contain any quote or backslash
+     */
+    private static boolean isSimpleText( String strValue )
+    {
+        return strValue == null || ( strValue.indexOf( '"' ) < 0 && strValue.indexOf( '\\' ) < 0 );
+    }
+
+    /**
+     * Check if an email address can be written by this writer
+     * 
+     * @param strEmail
+     *            The email address
+     * @return true if the email address only contains usual characters
+     */
+    private static boolean isSimpleEmail( String strEmail )
+    {
+        return strEmail != null && PATTERN_SIMPLE_EMAIL.matcher( strEmail ).matches( );
+    }
+
+    /**
+     * Check if email addresses can be written by this writer
+     * 
+     * @param listEmails
+     *            The email addresses
+     * @return true if every email address only contains usual characters
+     */
+    private static boolean areSimpleEmails( List<String> listEmails )
+    {
+        return listEmails != null && listEmails.stream( ).allMatch( ICalInvitationWriter::isSimpleEmail );
+    }
+
+    /**
+     * Append a text value, escaped as specified by RFC 5545
+     * 
+     * @param sbCalendar
+     *            The buffer
+     * @param strValue
+     *            The value
+     */
+    static void appendText( StringBuilder sbCalendar, String strValue )
+    {
+        if ( strValue == null )
+        {
+            return;
+        }
+
+        int nLength = strValue.length( );
+        for ( int i = 0; i < nLength; i++ )
+        {
+            char c = strValue.charAt( i );
+
+            if ( c == ',' || c == ';' || c == '\\' )
+            {
+                sbCalendar.append( '\\' ).append( c );
+            }
+            else
+                if ( c == '\n' )
+                {
+                    sbCalendar.append( "\\n" );
+                }
+                else
+                    if ( c == '\r' && i + 1 < nLength && strValue.charAt( i + 1 ) == '\n' )
+                    {
+                        sbCalendar.append( "\\n" );
+                        i++;
+                    }
+                    else
+                    {
+                        sbCalendar.append( c );
+                    }
+        }
+    }
+
+    /**
+     * Append a parameter value, quoted if it contains separators or non ASCII characters
+     * 
+     * @param sbCalendar
+     *            The buffer
+     * @param strValue
+     *            The value
+     */
+    private static void appendParameterValue( StringBuilder sbCalendar, String strValue )
+    {
+        boolean bQuote = false;
+        for ( int i = 0; i < strValue.length( ) && !bQuote; i++ )
+        {
+            char c = strValue.charAt( i );
+            bQuote = c == ':' || c == ';' || c == ',' || c > 0x7F;
+        }
+
+        if ( bQuote )
+        {
+            sbCalendar.append( '"' ).append( strValue ).append( '"' );
+        }
+        else
+        {
+            sbCalendar.append( strValue );
+        }
+    }
+
+    /**
+     * Append a date time property in the time zone of the invitation
+     * 
+     * @param sbCalendar
+     *            The buffer
+     * @param strProperty
+     *            The name of the property, followed by the TZID parameter
+     * @param invitation
+     *            The invitation
+     * @param lTime
+     *            The time, in milliseconds since the epoch
+     */
+    private static void appendZonedDateTime( StringBuilder sbCalendar, String strProperty, ICalInvitation invitation, long lTime )
+    {
+        java.util.TimeZone timeZone = invitation.getICalTimeZone( ).getTimeZone( );
+        sbCalendar.append( strProperty ).append( timeZone.getID( ) ).append( ':' );
+        appendDateTime( sbCalendar, lTime, timeZone.getOffset( lTime ) );
+        sbCalendar.append( CRLF );
+    }
+
+    /**
+     * Append a date time, in the iCal format yyyyMMdd'T'HHmmss
+     * 
+     * @param sbCalendar
+     *            The buffer
+     * @param lTime
+     *            The time, in milliseconds since the epoch
+     * @param nOffset
+     *            The offset of the time zone, in milliseconds
+     */
+    static void appendDateTime( StringBuilder sbCalendar, long lTime, int nOffset )
+    {
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond( Math.floorDiv( lTime + nOffset, 1000L ), 0, ZoneOffset.UTC );
+        appendDigits( sbCalendar, dateTime.getYear( ), 4 );
+        appendDigits( sbCalendar, dateTime.getMonthValue( ), 2 );
+        appendDigits( sbCalendar, dateTime.getDayOfMonth( ), 2 );
+        sbCalendar.append( 'T' );
+        appendDigits( sbCalendar, dateTime.getHour( ), 2 );
+        appendDigits( sbCalendar, dateTime.getMinute( ), 2 );
+        appendDigits( sbCalendar, dateTime.getSecond( ), 2 );
+    }
+
+    /**
+     * Append a number padded with zeros
+     * 
+     * @param sbCalendar
+     *            The buffer
+     * @param nValue
+     *            The number
+     * @param nDigits
+     *            The minimum number of digits
+     */
+    private static void appendDigits( StringBuilder sbCalendar, int nValue, int nDigits )
+    {
+        for ( int nLimit = 10, i = 1; i < nDigits; i++, nLimit *= 10 )
+        {
+            if ( nValue < nLimit )
+            {
+                sbCalendar.append( '0' );
+            }
+        }
+        sbCalendar.append( nValue );
+    }
+}
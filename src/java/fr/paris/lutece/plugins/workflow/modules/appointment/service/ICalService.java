@@ -35,7 +35,10 @@ package fr.paris.lutece.plugins.workflow.modules.appointment.service;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.StringTokenizer;
 
 import org.apache.commons.lang3.StringUtils;
@@ -45,18 +48,13 @@ import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
 import fr.paris.lutece.portal.service.mail.MailService;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.portal.service.util.AppLogService;
-import fr.paris.lutece.portal.service.util.AppPathService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import net.fortuna.ical4j.data.CalendarBuilder;
-import net.fortuna.ical4j.data.ParserException;
+import java.text.ParseException;
 import net.fortuna.ical4j.model.Calendar;
 import net.fortuna.ical4j.model.DateTime;
 import net.fortuna.ical4j.model.ParameterList;
 import net.fortuna.ical4j.model.TimeZone;
-import net.fortuna.ical4j.model.TimeZoneRegistry;
 import net.fortuna.ical4j.model.component.VEvent;
 import net.fortuna.ical4j.model.parameter.Cn;
 import net.fortuna.ical4j.model.parameter.PartStat;
@@ -95,10 +93,15 @@ public class ICalService
 
     // constants
     private static final String CONSTANT_MAILTO = "MAILTO:";
+    private static final String ICAL_FOLDING_SYMBOL = "\r ";
+    private static final int ICAL_LINE_MAX_OCTETS = 75;
+    private static final int HTML_STATE_OPENING_TAG = 0;
+    private static final int HTML_STATE_OPENING_TAG_END = 1;
+    private static final int HTML_STATE_CLOSING_TAG = 2;
+    private static final int HTML_STATE_CLOSING_TAG_END = 3;
 
     // messages
-    private static final String MSG_TIMEZONE_FILE_NOT_FOUND = "iCal default Time zone file not found";
-    private static final String MSG_TIMEZONE_FILE_INCORRECT = "iCal default Time zone file format problem";
+    private static final String MSG_TIMEZONE_COPY_ERROR = "iCal default Time zone could not be copied";
 
     /**
      * Get an instance of the service
@@ -135,87 +138,230 @@ public class ICalService
     public void sendAppointment( String strEmailAttendee, String strEmailOptionnal, String strSubject, String strBodyContent, String strLocation,
             String strSenderName, String strSenderEmail, AppointmentDTO appointment, boolean bCreate )
     {
-
-        CalendarBuilder builder = new CalendarBuilder( );
-        Calendar iCalendar;
-        try
+        String strCalendar = getAppointmentCalendar( strEmailAttendee, strEmailOptionnal, strSubject, strBodyContent, strLocation, strSenderName,
+                strSenderEmail, appointment, bCreate );
+        if ( strCalendar != null )
         {
-            String strRelativeWebPath = AppPropertiesService.getProperty( PROPERTY_RELATIVE_PATH_TO_TIME_ZONE_FILE );
-            String absoluteTimeZoneFilePath = AppPathService.getAbsolutePathFromRelativePath( strRelativeWebPath );
-            iCalendar = builder.build( new FileInputStream( absoluteTimeZoneFilePath ) );
+            MailService.sendMailCalendar( strEmailAttendee, strEmailOptionnal, null, strSenderName, strSenderEmail,
+                    ( strSubject != null ) ? strSubject : StringUtils.EMPTY, strBodyContent, strCalendar, bCreate );
         }
-        catch( FileNotFoundException ex )
+    }
+
+    /**
+     * Build the iCal content of an appointment invitation.
+     * 
+     * @param strEmailAttendee
+     *            Comma separated list of users that will attend the appointment
+     * @param strEmailOptionnal
+     *            Comma separated list of users that will be invited to the appointment, but who are not required.
+     * @param strSubject
+     *            The subject of the appointment.
+     * @param strBodyContent
+     *            The body content that describes the appointment
+     * @param strLocation
+     *            The location of the appointment
+     * @param strSenderName
+     *            The name of the sender
+     * @param strSenderEmail
+     *            The email of the sender
+     * @param appointment
+     *            The appointment
+     * @param bCreate
+     *            True to notify the creation of the appointment, false to notify its removal
+     * @return The iCal content, or null if the time zone could not be loaded
+     */
+    public String getAppointmentCalendar( String strEmailAttendee, String strEmailOptionnal, String strSubject, String strBodyContent, String strLocation,
+            String strSenderName, String strSenderEmail, AppointmentDTO appointment, boolean bCreate )
+    {
+        return getAppointmentCalendar( strEmailAttendee, strEmailOptionnal, strSubject, strBodyContent, strLocation, strSenderName, strSenderEmail,
+                appointment, bCreate, null );
+    }
+
+    /**
+     * Build the iCal content of an appointment invitation, in the time zone of the appointment.
+     * 
+     * @param strEmailAttendee
+     *            Comma separated list of users that will attend the appointment
+     * @param strEmailOptionnal
+     *            Comma separated list of users that will be invited to the appointment, but who are not required.
+     * @param strSubject
+     *            The subject of the appointment.
+     * @param strBodyContent
+     *            The body content that describes the appointment
+     * @param strLocation
+     *            The location of the appointment
+     * @param strSenderName
+     *            The name of the sender
+     * @param strSenderEmail
+     *            The email of the sender
+     * @param appointment
+     *            The appointment
+     * @param bCreate
+     *            True to notify the creation of the appointment, false to notify its removal
+     * @param strTimeZoneId
+     *            The id of the time zone of the appointment, or null to use the time zone of the server
+     * @return The iCal content, or null if the time zone could not be loaded
+     */
+    public String getAppointmentCalendar( String strEmailAttendee, String strEmailOptionnal, String strSubject, String strBodyContent, String strLocation,
+            String strSenderName, String strSenderEmail, AppointmentDTO appointment, boolean bCreate, String strTimeZoneId )
+    {
+        ICalTimeZone iCalTimeZone = StringUtils.isNotBlank( strTimeZoneId ) ? TimeZoneCacheService.getInstance( ).getTimeZone( strTimeZoneId ) : null;
+        // The dates of the appointment are local dates of the time zone of the appointment, or of the server if it has none
+        boolean bServerTimeZone = iCalTimeZone == null || !iCalTimeZone.hasZoneRules( );
+        if ( iCalTimeZone == null )
         {
-            AppLogService.error( MSG_TIMEZONE_FILE_NOT_FOUND, ex );
-            return;
+            iCalTimeZone = getServerTimeZone( );
         }
-        catch( IOException | ParserException ex )
+        if ( iCalTimeZone == null )
         {
-            AppLogService.error( MSG_TIMEZONE_FILE_INCORRECT, ex );
-            return;
+            return null;
         }
 
-        TimeZoneRegistry registry = builder.getRegistry( );
-        TimeZone timeZone = registry.getTimeZone( AppPropertiesService.getProperty( PROPERTY_DEFAULT_TIME_ZONE ) );
+        // Format the description that goes in the ICalendar
+        String formatedIcalendarDescription = formatICalendarDescription( strBodyContent );
+        String strEmailSeparator = AppPropertiesService.getProperty( PROPERTY_MAIL_LIST_SEPARATOR, ";" );
+
+        ICalInvitation invitation = new ICalInvitation( );
+        invitation.setCreate( bCreate );
+        invitation.setProdId( AppPropertiesService.getProperty( PROPERTY_ICAL_PRODID ) );
+        invitation.setICalTimeZone( iCalTimeZone );
+        invitation.setStartTime( toEpochMilli( appointment.getStartingDateTime( ), iCalTimeZone, bServerTimeZone ) );
+        invitation.setEndTime( toEpochMilli( appointment.getEndingDateTime( ), iCalTimeZone, bServerTimeZone ) );
+        invitation.setSummary( ( strSubject != null ) ? strSubject : StringUtils.EMPTY );
+        invitation.setUid( Appointment.APPOINTMENT_RESOURCE_TYPE + appointment.getIdAppointment( ) );
+        invitation.setRequiredAttendees( getEmails( strEmailAttendee, strEmailSeparator ) );
+        invitation.setOptionalAttendees( getEmails( strEmailOptionnal, strEmailSeparator ) );
+        invitation.setOrganizerName( strSenderName );
+        invitation.setOrganizerEmail( strSenderEmail );
+        invitation.setLocation( strLocation );
+        invitation.setDescription( formatedIcalendarDescription );
+        invitation.setHtmlDescription( containsHtml( formatedIcalendarDescription ) );
+
+        String strCalendar = ICalInvitationWriter.write( invitation );
+
+        return ( strCalendar != null ) ? strCalendar : buildCalendar( invitation );
+    }
+
+    /**
+     * Get the time zone of the server
+     * 
+     * @return The time zone of the server, or null if it could not be loaded
+     */
+    private static ICalTimeZone getServerTimeZone( )
+    {
+        String strTimeZoneId = AppPropertiesService.getProperty( PROPERTY_DEFAULT_TIME_ZONE );
+        String strTimeZoneFile = AppPropertiesService.getProperty( PROPERTY_RELATIVE_PATH_TO_TIME_ZONE_FILE );
 
-        DateTime beginningDateTime = new DateTime( appointment.getStartingDateTime( ).atZone( ZoneId.systemDefault( ) ).toInstant( ).toEpochMilli( ) );
-        DateTime endingDateTime = new DateTime( appointment.getEndingDateTime( ).atZone( ZoneId.systemDefault( ) ).toInstant( ).toEpochMilli( ) );
+        return StringUtils.isNotBlank( strTimeZoneFile ) ? TimeZoneCacheService.getInstance( ).getTimeZone( strTimeZoneId, strTimeZoneFile )
+                : TimeZoneCacheService.getInstance( ).getTimeZone( strTimeZoneId );
+    }
 
-        DtStart dtStart = new DtStart( beginningDateTime );
+    /**
+     * Convert a date time of an appointment to a number of milliseconds since the epoch
+     * 
+     * @param dateTime
+     *            The date time of the appointment
+     * @param iCalTimeZone
+     *            The time zone of the appointment
+     * @param bServerTimeZone
+     *            True if the date time is a local date time of the server
+     * @return The number of milliseconds since the epoch
+     */
+    private static long toEpochMilli( LocalDateTime dateTime, ICalTimeZone iCalTimeZone, boolean bServerTimeZone )
+    {
+        return bServerTimeZone ? dateTime.atZone( ZoneId.systemDefault( ) ).toInstant( ).toEpochMilli( ) : iCalTimeZone.toEpochMilli( dateTime );
+    }
+
+    /**
+     * Build the iCal content of an invitation with the ical4j model. This is used for the invitations that are not supported by the
+     * {@link ICalInvitationWriter}.
+     * 
+     * @param invitation
+     *            The invitation
+     * @return The iCal content, or null if the time zone could not be copied
+     */
+    String buildCalendar( ICalInvitation invitation )
+    {
+        ICalTimeZone iCalTimeZone = invitation.getICalTimeZone( );
+        Calendar iCalendar = new Calendar( );
+        try
+        {
+            iCalendar.getComponents( ).add( iCalTimeZone.copyVTimeZone( ) );
+        }
+        catch( IOException | ParseException | URISyntaxException ex )
+        {
+            AppLogService.error( MSG_TIMEZONE_COPY_ERROR, ex );
+            return null;
+        }
+
+        TimeZone timeZone = iCalTimeZone.getTimeZone( );
+
+        DtStart dtStart = new DtStart( new DateTime( invitation.getStartTime( ) ) );
         dtStart.setTimeZone( timeZone );
 
-        DtEnd dtEnd = new DtEnd( endingDateTime );
+        DtEnd dtEnd = new DtEnd( new DateTime( invitation.getEndTime( ) ) );
         dtEnd.setTimeZone( timeZone );
 
         VEvent event = new VEvent( );
         event.getProperties( ).add( dtStart );
         event.getProperties( ).add( dtEnd );
-        event.getProperties( ).add( new Summary( ( strSubject != null ) ? strSubject : StringUtils.EMPTY ) );
-
-        // Format the description that goes in the ICalendar
-        String formatedIcalendarDescription = formatICalendarDescription( strBodyContent );
+        event.getProperties( ).add( new Summary( invitation.getSummary( ) ) );
 
         try
         {
-            event.getProperties( ).add( new Uid( Appointment.APPOINTMENT_RESOURCE_TYPE + appointment.getIdAppointment( ) ) );
-            String strEmailSeparator = AppPropertiesService.getProperty( PROPERTY_MAIL_LIST_SEPARATOR, ";" );
-            if ( StringUtils.isNotEmpty( strEmailAttendee ) )
+            event.getProperties( ).add( new Uid( invitation.getUid( ) ) );
+            for ( String strEmail : invitation.getRequiredAttendees( ) )
             {
-                StringTokenizer st = new StringTokenizer( strEmailAttendee, strEmailSeparator );
-                while ( st.hasMoreTokens( ) )
-                {
-                    addAttendee( event, st.nextToken( ), true );
-                }
+                addAttendee( event, strEmail, true );
             }
-            if ( StringUtils.isNotEmpty( strEmailOptionnal ) )
+            for ( String strEmail : invitation.getOptionalAttendees( ) )
             {
-                StringTokenizer st = new StringTokenizer( strEmailOptionnal, strEmailSeparator );
-                while ( st.hasMoreTokens( ) )
-                {
-                    addAttendee( event, st.nextToken( ), false );
-                }
+                addAttendee( event, strEmail, false );
             }
-            Organizer organizer = new Organizer( strSenderEmail );
-            organizer.getParameters( ).add( new Cn( strSenderName ) );
+            Organizer organizer = new Organizer( invitation.getOrganizerEmail( ) );
+            organizer.getParameters( ).add( new Cn( invitation.getOrganizerName( ) ) );
             event.getProperties( ).add( organizer );
-            event.getProperties( ).add( new Location( strLocation ) );
-            event.getProperties( ).add( new Description( formatedIcalendarDescription ) );
+            event.getProperties( ).add( new Location( invitation.getLocation( ) ) );
+            event.getProperties( ).add( new Description( invitation.getDescription( ) ) );
             // Add an alternative description to properly render HTML content
-            addAlternativeHtmlDescription( event, formatedIcalendarDescription );
+            addAlternativeHtmlDescription( event, invitation.getDescription( ) );
         }
         catch( URISyntaxException e )
         {
             AppLogService.error( e.getMessage( ), e );
         }
 
-        iCalendar.getProperties( ).add( bCreate ? Method.REQUEST : Method.CANCEL );
-        iCalendar.getProperties( ).add( new ProdId( AppPropertiesService.getProperty( PROPERTY_ICAL_PRODID ) ) );
+        iCalendar.getProperties( ).add( invitation.getCreate( ) ? Method.REQUEST : Method.CANCEL );
+        iCalendar.getProperties( ).add( new ProdId( invitation.getProdId( ) ) );
         iCalendar.getProperties( ).add( Version.VERSION_2_0 );
         iCalendar.getProperties( ).add( CalScale.GREGORIAN );
         iCalendar.getComponents( ).add( event );
 
-        MailService.sendMailCalendar( strEmailAttendee, strEmailOptionnal, null, strSenderName, strSenderEmail,
-                ( strSubject != null ) ? strSubject : StringUtils.EMPTY, strBodyContent, iCalendar.toString( ), bCreate );
+        return iCalendar.toString( );
+    }
+
+    /**
+     * Split a list of emails
+     * 
+     * @param strEmails
+     *            The separated list of emails
+     * @param strEmailSeparator
+     *            The separator of the emails
+     * @return The emails
+     */
+    private static List<String> getEmails( String strEmails, String strEmailSeparator )
+    {
+        List<String> listEmails = new ArrayList<>( );
+        if ( StringUtils.isNotEmpty( strEmails ) )
+        {
+            StringTokenizer st = new StringTokenizer( strEmails, strEmailSeparator );
+            while ( st.hasMoreTokens( ) )
+            {
+                listEmails.add( st.nextToken( ) );
+            }
+        }
+
+        return listEmails;
     }
 
     /**
@@ -238,8 +384,9 @@ public class ICalService
     }
 
     /**
-     * Format the String containing the description of a calendar invite to respect the ICalendar specifications: 75 characters per line, CRLF + white-space at
-     * the start of new lines... ( c.f. <a href="https://datatracker.ietf.org/doc/html/rfc5545#section-3.1">iCalendar RFC5545</a> )
+     * Format the String containing the description of a calendar invite to respect the ICalendar specifications: 75 octets per line, CRLF + white-space at
+     * the start of new lines... ( c.f. <a href="https://datatracker.ietf.org/doc/html/rfc5545#section-3.1">iCalendar RFC5545</a> ). The length of the lines is
+     * computed in UTF-8 octets, and multi-octet characters are never split.
      * 
      * @param strDescription
      *            The calendar's invite description to format
@@ -247,37 +394,151 @@ public class ICalService
      */
     public static String formatICalendarDescription( String strDescription )
     {
-        // ICalendar specific properties. The folding symbol is a return to next line + a white-space
-        String foldingSymbol = "\r ";
-        int lineMaxLength = 75;
-
-        int descriptionLength = strDescription.length( );
+        int nLength = strDescription.length( );
 
-        if ( descriptionLength <= lineMaxLength )
+        if ( nLength <= ICAL_LINE_MAX_OCTETS && getUtf8Length( strDescription ) <= ICAL_LINE_MAX_OCTETS )
         {
             return strDescription;
         }
 
-        strDescription = strDescription.replaceAll( "\n", foldingSymbol );
+        StringBuilder sbDescription = new StringBuilder( nLength + ( nLength / ICAL_LINE_MAX_OCTETS + 1 ) * ICAL_FOLDING_SYMBOL.length( ) );
+        int nLineOctets = 0;
+        int nIndex = 0;
 
-        StringBuilder formatedDesctiption = new StringBuilder( strDescription.substring( 0, lineMaxLength ) );
-
-        // Use ICalendar's folding method ( CRLF + white-space ) after every 75 characters
-        for ( int i = lineMaxLength; i < descriptionLength; i += lineMaxLength )
+        while ( nIndex < nLength )
         {
-            if ( i + lineMaxLength < descriptionLength )
+            int nCodePoint = strDescription.codePointAt( nIndex );
+            int nCharCount = Character.charCount( nCodePoint );
+
+            if ( nCodePoint == '\n' )
             {
-                // Add the folding symbol followed by the next 75 characters of the description
-                formatedDesctiption.append( foldingSymbol ).append( strDescription.substring( i, i + lineMaxLength ) );
+                // Line breaks of the description are replaced by the folding symbol
+                sbDescription.append( ICAL_FOLDING_SYMBOL );
+                nLineOctets = 1;
             }
             else
             {
-                // Add the remaining characters and stop the process
-                formatedDesctiption.append( foldingSymbol ).append( strDescription.substring( i ) );
-                break;
+                int nOctets = getUtf8Length( nCodePoint );
+                if ( nLineOctets + nOctets > ICAL_LINE_MAX_OCTETS )
+                {
+                    // The continuation line starts with the white-space of the folding symbol
+                    sbDescription.append( ICAL_FOLDING_SYMBOL );
+                    nLineOctets = 1;
+                }
+                sbDescription.append( strDescription, nIndex, nIndex + nCharCount );
+                nLineOctets += nOctets;
+            }
+            nIndex += nCharCount;
+        }
+
+        return sbDescription.toString( );
+    }
+
+    /**
+     * Check if a description contains HTML elements, that is an opening tag followed by a closing tag. The description is scanned once, so the cost is linear
+     * in its length.
+     * 
+     * @param strDescription
+     *            The description
+     * @return true if the description contains HTML elements, false otherwise
+     */
+    public static boolean containsHtml( String strDescription )
+    {
+        int nLength = strDescription.length( );
+        int nState = HTML_STATE_OPENING_TAG;
+        int nIndex = 0;
+
+        while ( nIndex < nLength )
+        {
+            char c = strDescription.charAt( nIndex );
+
+            if ( nState == HTML_STATE_OPENING_TAG && c == '<' && nIndex + 1 < nLength && !isAsciiDigit( strDescription.charAt( nIndex + 1 ) ) )
+            {
+                // The name of the tag is at least one character long
+                nState = HTML_STATE_OPENING_TAG_END;
+                nIndex += 2;
+                continue;
             }
+            if ( nState == HTML_STATE_OPENING_TAG_END && c == '>' )
+            {
+                nState = HTML_STATE_CLOSING_TAG;
+            }
+            else
+                if ( nState == HTML_STATE_CLOSING_TAG && c == '<' && nIndex + 2 < nLength && strDescription.charAt( nIndex + 1 ) == '/'
+                        && !isAsciiDigit( strDescription.charAt( nIndex + 2 ) ) )
+                {
+                    nState = HTML_STATE_CLOSING_TAG_END;
+                    nIndex += 3;
+                    continue;
+                }
+                else
+                    if ( nState == HTML_STATE_CLOSING_TAG_END && c == '>' )
+                    {
+                        return true;
+                    }
+            nIndex++;
+        }
+
+        return false;
+    }
+
+    /**
+     * Check if a character is an ASCII digit
+     * 
+     * @param c
+     *            The character
+     * @return true if the character is an ASCII digit, false otherwise
+     */
+    private static boolean isAsciiDigit( char c )
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Get the number of octets of a string encoded in UTF-8
+     * 
+     * @param str
+     *            The string
+     * @return The number of octets
+     */
+    private static int getUtf8Length( String str )
+    {
+        int nOctets = 0;
+        int nIndex = 0;
+
+        while ( nIndex < str.length( ) )
+        {
+            int nCodePoint = str.codePointAt( nIndex );
+            nOctets += getUtf8Length( nCodePoint );
+            nIndex += Character.charCount( nCodePoint );
         }
-        return formatedDesctiption.toString( );
+
+        return nOctets;
+    }
+
+    /**
+     * Get the number of octets of a character encoded in UTF-8
+     * 
+     * @param nCodePoint
+     *            The code point of the character
+     * @return The number of octets
+     */
+    private static int getUtf8Length( int nCodePoint )
+    {
+        if ( nCodePoint < 0x80 )
+        {
+            return 1;
+        }
+        if ( nCodePoint < 0x800 )
+        {
+            return 2;
+        }
+        if ( nCodePoint < 0x10000 )
+        {
+            return 3;
+        }
+
+        return 4;
     }
 
     /**
@@ -290,11 +551,8 @@ public class ICalService
      */
     public void addAlternativeHtmlDescription( VEvent event, String description )
     {
-        // HTML regex pattern
-        String patternHtml = "[\\S\\s]*\\<\\D+[\\S\\s]*\\>[\\S\\s]*\\<\\/\\D+[\\S\\s]*\\>[\\S\\s]*";
-
         // Check if the description contains HTML elements
-        if ( description.matches( patternHtml ) )
+        if ( containsHtml( description ) )
         {
             // Create the alternative calendar description with the "X-ALT-DESC" property
             ParameterList htmlParameters = new ParameterList( );
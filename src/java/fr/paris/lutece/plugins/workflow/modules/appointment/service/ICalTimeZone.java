@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.text.ParseException;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+import java.util.List;
+
+import net.fortuna.ical4j.model.TimeZone;
+import net.fortuna.ical4j.model.component.VTimeZone;
+
+/**
+ * Parsed iCal time zone, kept in cache by the {@link TimeZoneCacheService}. Instances are never modified once built, and can be shared between threads.
+ */
+public final class ICalTimeZone
+{
+    private final String _strTimeZoneId;
+    private final String _strFilePath;
+    private final long _lLastModified;
+    private final VTimeZone _vTimeZone;
+    private final TimeZone _timeZone;
+    private final ZoneId _zoneId;
+    private final ZoneRules _zoneRules;
+    private volatile String _strVTimeZoneContent;
+    private volatile long _lLastCheck;
+
+    /**
+     * Constructor
+     * 
+     * @param strTimeZoneId
+     *            The id of the time zone
+     * @param strFilePath
+     *            The absolute path of the file the time zone was read from
+     * @param lLastModified
+     *            The last modification date of the file when it was read
+     * @param vTimeZone
+     *            The VTIMEZONE component read from the file
+     * @param timeZone
+     *            The time zone
+     */
+    public ICalTimeZone( String strTimeZoneId, String strFilePath, long lLastModified, VTimeZone vTimeZone, TimeZone timeZone )
+    {
+        _strTimeZoneId = strTimeZoneId;
+        _strFilePath = strFilePath;
+        _lLastModified = lLastModified;
+        _vTimeZone = vTimeZone;
+        _timeZone = timeZone;
+        _zoneId = getZoneId( strTimeZoneId );
+        _zoneRules = ( _zoneId != null ) ? _zoneId.getRules( ) : null;
+        _lLastCheck = System.currentTimeMillis( );
+    }
+
+    /**
+     * Get the id of the time zone
+     * 
+     * @return The id of the time zone
+     */
+    public String getTimeZoneId( )
+    {
+        return _strTimeZoneId;
+    }
+
+    /**
+     * Get the absolute path of the file the time zone was read from
+     * 
+     * @return The absolute path of the file
+     */
+    public String getFilePath( )
+    {
+        return _strFilePath;
+    }
+
+    /**
+     * Get the last modification date of the file when it was read
+     * 
+     * @return The last modification date of the file
+     */
+    public long getLastModified( )
+    {
+        return _lLastModified;
+    }
+
+    /**
+     * Get the time zone to use for dates of events
+     * 
+     * @return The time zone, or null if the registry did not know the id of the time zone
+     */
+    public TimeZone getTimeZone( )
+    {
+        return _timeZone;
+    }
+
+    /**
+     * Get a copy of the VTIMEZONE component, that can be added to a new calendar
+     * 
+     * @return The copy of the VTIMEZONE component
+     * @throws ParseException
+     *             If the component could not be copied
+     * @throws IOException
+     *             If the component could not be copied
+     * @throws URISyntaxException
+     *             If the component could not be copied
+     */
+    public VTimeZone copyVTimeZone( ) throws ParseException, IOException, URISyntaxException
+    {
+        return (VTimeZone) _vTimeZone.copy( );
+    }
+
+    /**
+     * Get the iCal content of the VTIMEZONE component. The content is computed once, since the component is never modified.
+     * 
+     * @return The iCal content of the VTIMEZONE component
+     */
+    public String getVTimeZoneContent( )
+    {
+        String strVTimeZoneContent = _strVTimeZoneContent;
+
+        if ( strVTimeZoneContent == null )
+        {
+            strVTimeZoneContent = _vTimeZone.toString( );
+            _strVTimeZoneContent = strVTimeZoneContent;
+        }
+
+        return strVTimeZoneContent;
+    }
+
+    /**
+     * Check if the rules of the time zone are known by the JVM
+     * 
+     * @return True if local date times can be converted in this time zone
+     */
+    public boolean hasZoneRules( )
+    {
+        return _zoneRules != null;
+    }
+
+    /**
+     * Convert a local date time of this time zone to a number of milliseconds since the epoch. The rules of the time zone are resolved once, when the time
+     * zone is built.
+     * 
+     * @param dateTime
+     *            The local date time
+     * @return The number of milliseconds since the epoch
+     */
+    public long toEpochMilli( LocalDateTime dateTime )
+    {
+        if ( _zoneRules == null )
+        {
+            return dateTime.atZone( ZoneId.systemDefault( ) ).toInstant( ).toEpochMilli( );
+        }
+
+        List<ZoneOffset> listValidOffsets = _zoneRules.getValidOffsets( dateTime );
+        if ( listValidOffsets.size( ) == 1 )
+        {
+            return dateTime.toInstant( listValidOffsets.get( 0 ) ).toEpochMilli( );
+        }
+
+        // Gap or overlap of a transition
+        return dateTime.atZone( _zoneId ).toInstant( ).toEpochMilli( );
+    }
+
+    /**
+     * Get the java zone id of a time zone
+     * 
+     * @param strTimeZoneId
+     *            The id of the time zone
+     * @return The zone id, or null if the time zone is unknown by the JVM
+     */
+    private static ZoneId getZoneId( String strTimeZoneId )
+    {
+        if ( strTimeZoneId == null )
+        {
+            return null;
+        }
+
+        try
+        {
+            return ZoneId.of( strTimeZoneId );
+        }
+        catch( DateTimeException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Get the date of the last check of the file
+     * 
+     * @return The date of the last check of the file
+     */
+    public long getLastCheck( )
+    {
+        return _lLastCheck;
+    }
+
+    /**
+     * Set the date of the last check of the file
+     * 
+     * @param lLastCheck
+     *            The date of the last check of the file
+     */
+    public void setLastCheck( long lLastCheck )
+    {
+        _lLastCheck = lLastCheck;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.util.Locale;
+
+/**
+ * Context of a single notification. It carries the data that depend on the execution of the task, so that the config of the task is never modified and can be
+ * shared between concurrent executions.
+ */
+public class NotificationContext
+{
+    private final String _strRecipient;
+    private final Locale _locale;
+    private String _strCancelMotif;
+    private String _strMessage;
+
+    /**
+     * Constructor
+     * 
+     * @param strRecipient
+     *            The email address of the recipient
+     * @param locale
+     *            The locale of the notification
+     */
+    public NotificationContext( String strRecipient, Locale locale )
+    {
+        _strRecipient = strRecipient;
+        _locale = locale;
+    }
+
+    /**
+     * Get the email address of the recipient
+     * 
+     * @return The email address of the recipient
+     */
+    public String getRecipient( )
+    {
+        return _strRecipient;
+    }
+
+    /**
+     * Get the locale of the notification
+     * 
+     * @return The locale of the notification
+     */
+    public Locale getLocale( )
+    {
+        return _locale;
+    }
+
+    /**
+     * Get the cancel motif
+     * 
+     * @return The cancel motif
+     */
+    public String getCancelMotif( )
+    {
+        return _strCancelMotif;
+    }
+
+    /**
+     * Set the cancel motif
+     * 
+     * @param strCancelMotif
+     *            The cancel motif
+     */
+    public void setCancelMotif( String strCancelMotif )
+    {
+        _strCancelMotif = strCancelMotif;
+    }
+
+    /**
+     * Get the message that overrides the message of the config of the task
+     * 
+     * @return The message, or null if the message of the config must be used
+     */
+    public String getMessage( )
+    {
+        return _strMessage;
+    }
+
+    /**
+     * Set the message that overrides the message of the config of the task
+     * 
+     * @param strMessage
+     *            The message
+     */
+    public void setMessage( String strMessage )
+    {
+        _strMessage = strMessage;
+    }
+}
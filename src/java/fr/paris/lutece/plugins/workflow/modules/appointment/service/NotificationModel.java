@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import freemarker.template.Configuration;
+import freemarker.template.DefaultObjectWrapperBuilder;
+import freemarker.template.ObjectWrapper;
+import freemarker.template.TemplateHashModel;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelException;
+
+/**
+ * Model of a notification. Values of the model can be given directly or through a supplier : values given through a supplier are only computed the first time
+ * a template reads them, so that marks that are not used by the templates of a notification do not cost anything.
+ */
+public class NotificationModel implements TemplateHashModel
+{
+    private static final ObjectWrapper OBJECT_WRAPPER = new DefaultObjectWrapperBuilder( Configuration.VERSION_2_3_28 ).build( );
+
+    private final Map<String, Supplier<Object>> _mapSuppliers = new HashMap<>( );
+    private final Map<String, Object> _mapValues = new HashMap<>( );
+    private final Map<String, TemplateModel> _mapTemplateModels = new HashMap<>( );
+
+    /**
+     * Get a supplier that computes the value of another supplier only once
+     * 
+     * @param <V>
+     *            The type of the value
+     * @param supplier
+     *            The supplier
+     * @return The memoized supplier
+     */
+    public static <V> Supplier<V> memoize( Supplier<V> supplier )
+    {
+        return new Supplier<V>( )
+        {
+            private boolean _bComputed;
+            private V _value;
+
+            @Override
+            public V get( )
+            {
+                if ( !_bComputed )
+                {
+                    _value = supplier.get( );
+                    _bComputed = true;
+                }
+
+                return _value;
+            }
+        };
+    }
+
+    /**
+     * Put a value in the model
+     * 
+     * @param strKey
+     *            The key
+     * @param value
+     *            The value
+     */
+    public void put( String strKey, Object value )
+    {
+        _mapSuppliers.remove( strKey );
+        _mapTemplateModels.remove( strKey );
+        _mapValues.put( strKey, value );
+    }
+
+    /**
+     * Put a value in the model that will be computed the first time it is read
+     * 
+     * @param strKey
+     *            The key
+     * @param supplier
+     *            The supplier of the value
+     */
+    public void putLazy( String strKey, Supplier<Object> supplier )
+    {
+        _mapValues.remove( strKey );
+        _mapTemplateModels.remove( strKey );
+        _mapSuppliers.put( strKey, supplier );
+    }
+
+    /**
+     * Get a value of the model. Values given through a supplier are computed on first access and then kept.
+     * 
+     * @param strKey
+     *            The key
+     * @return The value, or null if the model has no value for this key
+     */
+    public Object getValue( String strKey )
+    {
+        Supplier<Object> supplier = _mapSuppliers.remove( strKey );
+
+        if ( supplier != null )
+        {
+            _mapValues.put( strKey, supplier.get( ) );
+        }
+
+        return _mapValues.get( strKey );
+    }
+
+    /**
+     * Get the model as a map. Every value given through a supplier is computed.
+     * 
+     * @return The map of the values of the model
+     */
+    public Map<String, Object> toMap( )
+    {
+        for ( String strKey : _mapSuppliers.keySet( ).toArray( new String [ 0] ) )
+        {
+            getValue( strKey );
+        }
+
+        return new HashMap<>( _mapValues );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TemplateModel get( String strKey ) throws TemplateModelException
+    {
+        TemplateModel templateModel = _mapTemplateModels.get( strKey );
+
+        if ( templateModel == null )
+        {
+            Object value = getValue( strKey );
+
+            if ( value == null )
+            {
+                return null;
+            }
+
+            templateModel = OBJECT_WRAPPER.wrap( value );
+            _mapTemplateModels.put( strKey, templateModel );
+        }
+
+        return templateModel;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty( )
+    {
+        return _mapValues.isEmpty( ) && _mapSuppliers.isEmpty( );
+    }
+}
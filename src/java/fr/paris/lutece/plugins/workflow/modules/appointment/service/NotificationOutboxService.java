@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.NotificationOutboxHome;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.NotificationOutboxItem;
+import fr.paris.lutece.portal.service.mail.MailService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Service to send notifications through the persistent outbox. Notifications are rendered by the tasks and stored in the outbox, then sent in the
+ * background by a bounded pool of workers. Notifications that could not be handed to a worker, or that remain in the outbox after a restart, are sent by the
+ * {@link NotificationOutboxDaemon}.
+ */
+public final class NotificationOutboxService
+{
+    // properties
+    private static final String PROPERTY_NB_THREADS = "workflow-appointment.notificationOutbox.nbThreads";
+    private static final String PROPERTY_QUEUE_SIZE = "workflow-appointment.notificationOutbox.queueSize";
+    private static final String PROPERTY_MAX_ATTEMPTS = "workflow-appointment.notificationOutbox.maxAttempts";
+    private static final String PROPERTY_RETRY_DELAY = "workflow-appointment.notificationOutbox.retryDelay";
+    private static final String PROPERTY_CLAIM_TIMEOUT = "workflow-appointment.notificationOutbox.claimTimeout";
+    private static final String PROPERTY_BATCH_SIZE = "workflow-appointment.notificationOutbox.batchSize";
+
+    // constants
+    private static final int DEFAULT_NB_THREADS = 2;
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final int DEFAULT_RETRY_DELAY = 300;
+    private static final int DEFAULT_CLAIM_TIMEOUT = 600;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final long CONSTANT_MILLISECONDS_IN_SECOND = 1000L;
+    private static final String CONSTANT_THREAD_NAME = "workflow-appointment-outbox-";
+
+    private static NotificationOutboxService _instance = new NotificationOutboxService( );
+
+    private final ThreadPoolExecutor _executor;
+
+    /**
+     * Private constructor
+     */
+    private NotificationOutboxService( )
+    {
+        int nNbThreads = AppPropertiesService.getPropertyInt( PROPERTY_NB_THREADS, DEFAULT_NB_THREADS );
+        int nQueueSize = AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE );
+        AtomicInteger nThreadCount = new AtomicInteger( );
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread( runnable, CONSTANT_THREAD_NAME + nThreadCount.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        };
+        _executor = new ThreadPoolExecutor( nNbThreads, nNbThreads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>( nQueueSize ), threadFactory );
+    }
+
+    /**
+     * Get the instance of the service
+     * 
+     * @return The instance of the service
+     */
+    public static NotificationOutboxService getInstance( )
+    {
+        return _instance;
+    }
+
+    /**
+     * Store a rendered notification in the outbox, and hand it to a worker. If a transaction is in progress, the notification is stored in this transaction
+     * and handed to a worker once the transaction is committed : a notification of a rolled back transaction is never sent.
+     * 
+     * @param item
+     *            The notification to send
+     */
+    public void enqueue( NotificationOutboxItem item )
+    {
+        Timestamp dateNow = new Timestamp( System.currentTimeMillis( ) );
+        item.setStatus( NotificationOutboxItem.STATUS_PENDING );
+        item.setNbAttempts( 0 );
+        item.setDateCreation( dateNow );
+        item.setDateNextAttempt( dateNow );
+        NotificationOutboxHome.create( item );
+
+        int nIdNotification = item.getIdNotification( );
+        if ( TransactionSynchronizationManager.isSynchronizationActive( ) )
+        {
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronization( )
+            {
+                @Override
+                public void afterCommit( )
+                {
+                    submit( nIdNotification );
+                }
+            } );
+        }
+        else
+        {
+            submit( nIdNotification );
+        }
+    }
+
+    /**
+     * Hand a notification of the outbox to a worker
+     * 
+     * @param nIdNotification
+     *            The id of the notification
+     */
+    private void submit( int nIdNotification )
+    {
+        try
+        {
+            _executor.execute( ( ) -> send( nIdNotification ) );
+        }
+        catch( RejectedExecutionException e )
+        {
+            // The notification stays in the outbox and will be sent by the daemon
+            AppLogService.debug( "Outbox workers are busy, notification " + nIdNotification + " will be sent by the daemon" );
+        }
+    }
+
+    /**
+     * Send the pending notifications of the outbox. Claims of workers that did not complete in time are released first.
+     * 
+     * @return The number of notifications sent
+     */
+    public int sendPendingNotifications( )
+    {
+        long lClaimTimeout = AppPropertiesService.getPropertyInt( PROPERTY_CLAIM_TIMEOUT, DEFAULT_CLAIM_TIMEOUT ) * CONSTANT_MILLISECONDS_IN_SECOND;
+        NotificationOutboxHome.releaseClaimsBefore( new Timestamp( System.currentTimeMillis( ) - lClaimTimeout ) );
+
+        int nNbSent = 0;
+        List<Integer> listIdNotification = NotificationOutboxHome
+                .findIdsToSend( AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE ) );
+        for ( Integer nIdNotification : listIdNotification )
+        {
+            if ( send( nIdNotification ) )
+            {
+                nNbSent++;
+            }
+        }
+        return nNbSent;
+    }
+
+    /**
+     * Send a notification of the outbox. The notification is claimed first, so that it is only sent once even if several workers try to send it.
+     * 
+     * @param nIdNotification
+     *            The id of the notification
+     * @return True if the notification was sent, false otherwise
+     */
+    private boolean send( int nIdNotification )
+    {
+        String strClaimToken = UUID.randomUUID( ).toString( );
+        NotificationOutboxHome.claim( nIdNotification, strClaimToken, new Timestamp( System.currentTimeMillis( ) ) );
+        NotificationOutboxItem item = NotificationOutboxHome.findByPrimaryKey( nIdNotification );
+        if ( item == null || !strClaimToken.equals( item.getClaimToken( ) ) )
+        {
+            // Not visible yet, already sent, or claimed by another worker
+            return false;
+        }
+
+        try
+        {
+            sendMail( item );
+            NotificationOutboxHome.remove( nIdNotification );
+            return true;
+        }
+        catch( RuntimeException e )
+        {
+            AppLogService.error( "Error while sending notification " + nIdNotification + " of the outbox", e );
+            int nNbAttempts = item.getNbAttempts( ) + 1;
+            long lRetryDelay = AppPropertiesService.getPropertyInt( PROPERTY_RETRY_DELAY, DEFAULT_RETRY_DELAY ) * CONSTANT_MILLISECONDS_IN_SECOND;
+            item.setNbAttempts( nNbAttempts );
+            item.setStatus( nNbAttempts >= AppPropertiesService.getPropertyInt( PROPERTY_MAX_ATTEMPTS, DEFAULT_MAX_ATTEMPTS )
+                    ? NotificationOutboxItem.STATUS_FAILED
+                    : NotificationOutboxItem.STATUS_PENDING );
+            item.setDateNextAttempt( new Timestamp( System.currentTimeMillis( ) + lRetryDelay * nNbAttempts ) );
+            NotificationOutboxHome.storeAttempt( item );
+            return false;
+        }
+    }
+
+    /**
+     * Hand a notification to the mail service
+     * 
+     * @param item
+     *            The notification
+     */
+    private void sendMail( NotificationOutboxItem item )
+    {
+        if ( item.getSendICalNotif( ) )
+        {
+            MailService.sendMailCalendar( item.getRecipientTo( ), item.getRecipientsCc( ), null, item.getSenderName( ), item.getSenderEmail( ),
+                    item.getSubject( ), item.getContent( ), item.getICalContent( ), item.getCreateNotif( ) );
+        }
+        else
+            if ( StringUtils.isNotBlank( item.getRecipientsBcc( ) ) || StringUtils.isNotBlank( item.getRecipientsCc( ) ) )
+            {
+                MailService.sendMailHtml( item.getRecipientTo( ), item.getRecipientsCc( ), item.getRecipientsBcc( ), item.getSenderName( ),
+                        item.getSenderEmail( ), item.getSubject( ), item.getContent( ) );
+            }
+            else
+            {
+                MailService.sendMailHtml( item.getRecipientTo( ), item.getSenderName( ), item.getSenderEmail( ), item.getSubject( ), item.getContent( ) );
+            }
+    }
+}
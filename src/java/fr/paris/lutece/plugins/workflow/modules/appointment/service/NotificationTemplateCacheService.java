@@ -0,0 +1,370 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.service.template.AppTemplateService;
+import fr.paris.lutece.portal.service.template.FreeMarkerTemplateService;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import freemarker.core.InvalidReferenceException;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+import freemarker.template.TemplateExceptionHandler;
+
+/**
+ * Cache of the compiled FreeMarker templates of the notifications. Templates are compiled from the subject and the message of the configuration of the
+ * tasks, and are kept in cache by task, version of the configuration and locale. The version of the configuration of a task changes each time the
+ * configuration is created, updated or removed. Templates are compiled with the templates directory and the auto included macros of Lutece, and the i18n
+ * keys of the output are localized, as with {@link AppTemplateService#getTemplateFromStringFtl(String, Locale, Object)}.
+ * <p>
+ * The shared variables of Lutece are not available to the compiled templates : the core keeps them in its own FreeMarker configuration and does not expose
+ * them. A template that references a variable missing from its model is therefore rendered again through
+ * {@link AppTemplateService#getTemplateFromStringFtl(String, Locale, Object)}, and is rendered that way, without cache, as long as its source does not change.
+ * </p>
+ */
+public final class NotificationTemplateCacheService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "workflow-appointment.notificationTemplateCacheService";
+
+    // constants
+    private static final String CONSTANT_KEY_SEPARATOR = ":";
+    private static final String CONSTANT_ENCODING = "UTF-8";
+    private static final String CONSTANT_NUMBER_FORMAT = "0.######";
+    private static final String CONSTANT_TEMPLATE_NAME = "workflow-appointment-notification";
+
+    // properties
+    private static final String PROPERTY_PATH_TEMPLATES = "path.templates";
+
+    // marks
+    private static final String MARK_MESSAGE = "message";
+
+    // messages
+    private static final String MSG_TEMPLATE_ERROR = "Error while processing the notification template of task ";
+
+    private static NotificationTemplateCacheService _instance = new NotificationTemplateCacheService( );
+
+    private final Configuration _configuration;
+    private final Map<Integer, AtomicInteger> _mapConfigVersions = new ConcurrentHashMap<>( );
+
+    /**
+     * Private constructor
+     */
+    private NotificationTemplateCacheService( )
+    {
+        _configuration = new Configuration( Configuration.VERSION_2_3_28 );
+        _configuration.setDefaultEncoding( CONSTANT_ENCODING );
+        _configuration.setNumberFormat( CONSTANT_NUMBER_FORMAT );
+        _configuration.setTemplateExceptionHandler( TemplateExceptionHandler.RETHROW_HANDLER );
+        try
+        {
+            _configuration.setDirectoryForTemplateLoading( new File( AppPathService.getPath( PROPERTY_PATH_TEMPLATES ) ) );
+            for ( String strAutoInclude : FreeMarkerTemplateService.getInstance( ).getAutoIncludes( ) )
+            {
+                _configuration.addAutoInclude( strAutoInclude );
+            }
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to load the templates directory, macros will not be available in notifications", e );
+        }
+        initCache( );
+    }
+
+    /**
+     * Get the instance of the service
+     * 
+     * @return The instance of the service
+     */
+    public static NotificationTemplateCacheService getInstance( )
+    {
+        return _instance;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Render a part of a notification. The template is compiled only if it is not in cache, or if its source changed. Templates of notifications that are not
+     * associated with a task configuration (id of task lower or equal to 0) are compiled each time. The i18n keys of the output are localized.
+     * 
+     * @param nIdTask
+     *            The id of the task
+     * @param strPart
+     *            The name of the part of the notification (subject, message...)
+     * @param strSource
+     *            The source of the template
+     * @param locale
+     *            The locale
+     * @param model
+     *            The model
+     * @return The rendered part of the notification
+     */
+    public String render( int nIdTask, String strPart, String strSource, Locale locale, Object model )
+    {
+        CompiledTemplate compiledTemplate = getTemplate( nIdTask, strPart, strSource, locale );
+        if ( compiledTemplate.isUsingSharedVariables( ) )
+        {
+            return AppTemplateService.getTemplateFromStringFtl( strSource, locale, model ).getHtml( );
+        }
+
+        StringWriter writer = new StringWriter( );
+        try
+        {
+            compiledTemplate.getTemplate( ).process( model, writer );
+        }
+        catch( InvalidReferenceException e )
+        {
+            // The missing variable may be a shared variable of Lutece, only known by the configuration of the core
+            compiledTemplate.setUsingSharedVariables( true );
+
+            return AppTemplateService.getTemplateFromStringFtl( strSource, locale, model ).getHtml( );
+        }
+        catch( TemplateException | IOException e )
+        {
+            throw new AppException( MSG_TEMPLATE_ERROR + nIdTask + " : " + e.getMessage( ), e );
+        }
+
+        return I18nService.localize( writer.toString( ), locale );
+    }
+
+    /**
+     * Render a message inside a wrapper template. The message is rendered from its compiled template, then the wrapper template is loaded through
+     * {@link AppTemplateService}, so that skins and overridden templates are used, and is rendered with the rendered message as the message mark.
+     * 
+     * @param nIdTask
+     *            The id of the task
+     * @param strPart
+     *            The name of the part of the notification
+     * @param strWrapperPath
+     *            The path of the wrapper template
+     * @param strMessage
+     *            The source of the message
+     * @param locale
+     *            The locale
+     * @param model
+     *            The model
+     * @return The rendered part of the notification
+     */
+    public String renderInWrapper( int nIdTask, String strPart, String strWrapperPath, String strMessage, Locale locale, NotificationModel model )
+    {
+        if ( strMessage != null )
+        {
+            model.put( MARK_MESSAGE, render( nIdTask, strPart, strMessage, locale, model ) );
+        }
+
+        return AppTemplateService.getTemplate( strWrapperPath, locale, model ).getHtml( );
+    }
+
+    /**
+     * Remove the templates of a task from the cache. Must be called when the configuration of the task changes.
+     * 
+     * @param nIdTask
+     *            The id of the task
+     */
+    public void invalidate( int nIdTask )
+    {
+        _mapConfigVersions.computeIfAbsent( nIdTask, nId -> new AtomicInteger( ) ).incrementAndGet( );
+
+        String strPrefix = nIdTask + CONSTANT_KEY_SEPARATOR;
+        for ( Object key : getKeys( ) )
+        {
+            String strKey = String.valueOf( key );
+            if ( strKey.startsWith( strPrefix ) )
+            {
+                removeKey( strKey );
+            }
+        }
+    }
+
+    /**
+     * Get a compiled template from the cache, or compile it
+     * 
+     * @param nIdTask
+     *            The id of the task
+     * @param strPart
+     *            The name of the part of the notification
+     * @param strSource
+     *            The source of the template
+     * @param locale
+     *            The locale
+     * @return The compiled template
+     */
+    private CompiledTemplate getTemplate( int nIdTask, String strPart, String strSource, Locale locale )
+    {
+        if ( nIdTask <= 0 )
+        {
+            return compile( nIdTask, strSource, locale );
+        }
+
+        String strKey = getKey( nIdTask, strPart, locale );
+        CompiledTemplate compiledTemplate = (CompiledTemplate) getFromCache( strKey );
+
+        if ( compiledTemplate == null || !compiledTemplate.getSource( ).equals( strSource ) )
+        {
+            compiledTemplate = compile( nIdTask, strSource, locale );
+            putInCache( strKey, compiledTemplate );
+        }
+
+        return compiledTemplate;
+    }
+
+    /**
+     * Get the key of a template in the cache
+     * 
+     * @param nIdTask
+     *            The id of the task
+     * @param strPart
+     *            The name of the part of the notification
+     * @param locale
+     *            The locale
+     * @return The key
+     */
+    private String getKey( int nIdTask, String strPart, Locale locale )
+    {
+        AtomicInteger nVersion = _mapConfigVersions.get( nIdTask );
+
+        return nIdTask + CONSTANT_KEY_SEPARATOR + ( ( nVersion != null ) ? nVersion.get( ) : 0 ) + CONSTANT_KEY_SEPARATOR + locale + CONSTANT_KEY_SEPARATOR
+                + strPart;
+    }
+
+    /**
+     * Compile a template
+     * 
+     * @param nIdTask
+     *            The id of the task
+     * @param strSource
+     *            The source of the template
+     * @param locale
+     *            The locale
+     * @return The compiled template
+     */
+    private CompiledTemplate compile( int nIdTask, String strSource, Locale locale )
+    {
+        try
+        {
+            Template template = new Template( CONSTANT_TEMPLATE_NAME + nIdTask, new StringReader( strSource ), _configuration );
+            template.setLocale( locale );
+
+            return new CompiledTemplate( strSource, template );
+        }
+        catch( IOException e )
+        {
+            throw new AppException( MSG_TEMPLATE_ERROR + nIdTask + " : " + e.getMessage( ), e );
+        }
+    }
+
+    /**
+     * Compiled template with its source
+     */
+    private static final class CompiledTemplate
+    {
+        private final String _strSource;
+        private final Template _template;
+        private volatile boolean _bUsingSharedVariables;
+
+        /**
+         * Constructor
+         * 
+         * @param strSource
+         *            The source of the template
+         * @param template
+         *            The compiled template
+         */
+        CompiledTemplate( String strSource, Template template )
+        {
+            _strSource = strSource;
+            _template = template;
+        }
+
+        /**
+         * Get the source of the template
+         * 
+         * @return The source of the template
+         */
+        String getSource( )
+        {
+            return _strSource;
+        }
+
+        /**
+         * Get the compiled template
+         * 
+         * @return The compiled template
+         */
+        Template getTemplate( )
+        {
+            return _template;
+        }
+
+        /**
+         * Check if the template must be rendered by the template service of Lutece, as it references variables that the compiled template does not have
+         * 
+         * @return True if the template must be rendered by the template service of Lutece
+         */
+        boolean isUsingSharedVariables( )
+        {
+            return _bUsingSharedVariables;
+        }
+
+        /**
+         * Set if the template must be rendered by the template service of Lutece
+         * 
+         * @param bUsingSharedVariables
+         *            True if the template must be rendered by the template service of Lutece
+         */
+        void setUsingSharedVariables( boolean bUsingSharedVariables )
+        {
+            _bUsingSharedVariables = bUsingSharedVariables;
+        }
+    }
+}
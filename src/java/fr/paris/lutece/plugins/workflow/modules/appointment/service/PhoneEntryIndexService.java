@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.service.entrytype.EntryTypePhone;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
+import fr.paris.lutece.plugins.genericattributes.business.Entry;
+import fr.paris.lutece.plugins.genericattributes.business.EntryFilter;
+import fr.paris.lutece.plugins.genericattributes.business.EntryHome;
+import fr.paris.lutece.plugins.genericattributes.service.entrytype.EntryTypeServiceManager;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+
+/**
+ * Index of the phone entries of the appointment forms. The ids of the phone entries are kept in cache by form, and removed from the cache when the form is
+ * modified or removed.
+ */
+public final class PhoneEntryIndexService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "workflow-appointment.phoneEntryIndexService";
+
+    private static PhoneEntryIndexService _instance = new PhoneEntryIndexService( );
+
+    /**
+     * Private constructor
+     */
+    private PhoneEntryIndexService( )
+    {
+        initCache( );
+    }
+
+    /**
+     * Get the instance of the service
+     * 
+     * @return The instance of the service
+     */
+    public static PhoneEntryIndexService getInstance( )
+    {
+        return _instance;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Get the ids of the phone entries of a form
+     * 
+     * @param nIdForm
+     *            The id of the form
+     * @return The ids of the phone entries of the form, in the order of the form
+     */
+    @SuppressWarnings( "unchecked" )
+    public List<Integer> getListIdPhoneEntries( int nIdForm )
+    {
+        String strKey = String.valueOf( nIdForm );
+        List<Integer> listIdPhoneEntries = (List<Integer>) getFromCache( strKey );
+
+        if ( listIdPhoneEntries == null )
+        {
+            listIdPhoneEntries = Collections.unmodifiableList( findListIdPhoneEntries( nIdForm ) );
+            putInCache( strKey, listIdPhoneEntries );
+        }
+
+        return listIdPhoneEntries;
+    }
+
+    /**
+     * Remove the phone entries of a form from the cache
+     * 
+     * @param nIdForm
+     *            The id of the form
+     */
+    public void invalidate( int nIdForm )
+    {
+        removeKey( String.valueOf( nIdForm ) );
+    }
+
+    /**
+     * Find the ids of the phone entries of a form
+     * 
+     * @param nIdForm
+     *            The id of the form
+     * @return The ids of the phone entries of the form, in the order of the form
+     */
+    private List<Integer> findListIdPhoneEntries( int nIdForm )
+    {
+        EntryFilter entryFilter = new EntryFilter( );
+        entryFilter.setIdResource( nIdForm );
+        entryFilter.setResourceType( AppointmentFormDTO.RESOURCE_TYPE );
+        entryFilter.setFieldDependNull( EntryFilter.FILTER_TRUE );
+
+        List<Integer> listIdPhoneEntries = new ArrayList<>( );
+        for ( Entry entry : EntryHome.getEntryList( entryFilter ) )
+        {
+            if ( EntryTypeServiceManager.getEntryTypeService( entry ) instanceof EntryTypePhone )
+            {
+                listIdPhoneEntries.add( entry.getIdEntry( ) );
+            }
+        }
+
+        return listIdPhoneEntries;
+    }
+}
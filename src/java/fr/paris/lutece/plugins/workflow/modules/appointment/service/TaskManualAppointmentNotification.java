@@ -117,7 +117,6 @@ public class TaskManualAppointmentNotification extends AbstractTaskNotifyAppoint
         notifyAppointmentDTO.setRecipientsBcc( strBcc );
         notifyAppointmentDTO.setSubject( strSubject );
         notifyAppointmentDTO.setSenderName( strSenderName );
-        notifyAppointmentDTO.setCancelMotif( strCancelMotif );
         // We do not check the email nor the sender name since it's done by the
         // sendEmail( ... ) method.
         notifyAppointmentDTO.setSenderEmail( strSenderEmail );
@@ -143,7 +142,9 @@ public class TaskManualAppointmentNotification extends AbstractTaskNotifyAppoint
 
         if ( StringUtils.isNotBlank( strEmail ) )
         {
-            EmailDTO emailDTO = this.sendEmail( appointment, resourceHistory, request, locale, notifyAppointmentDTO, strEmail );
+            NotificationContext context = new NotificationContext( strEmail, locale );
+            context.setCancelMotif( strCancelMotif );
+            EmailDTO emailDTO = this.sendEmail( appointment, resourceHistory, request, notifyAppointmentDTO, context );
 
             if ( emailDTO != null )
             {
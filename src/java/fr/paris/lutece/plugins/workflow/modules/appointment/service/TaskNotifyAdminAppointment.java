@@ -34,7 +34,6 @@
 package fr.paris.lutece.plugins.workflow.modules.appointment.service;
 
 import java.util.Locale;
-import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -46,6 +45,7 @@ import fr.paris.lutece.plugins.appointment.service.AppointmentService;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
 import fr.paris.lutece.plugins.workflow.modules.appointment.business.TaskNotifyAdminAppointmentConfig;
 import fr.paris.lutece.plugins.workflow.modules.appointment.business.TaskNotifyAppointmentConfig;
+import fr.paris.lutece.plugins.workflow.modules.appointment.web.AgentCalendarFeedServlet;
 import fr.paris.lutece.plugins.workflow.modules.appointment.web.ExecuteWorkflowAction;
 import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceHistory;
 import fr.paris.lutece.plugins.workflowcore.service.config.ITaskConfigService;
@@ -69,6 +69,7 @@ public class TaskNotifyAdminAppointment extends AbstractTaskNotifyAppointment<Ta
     // TEMPLATES
     private static final String MARK_URL_CANCEL = "url_cancel";
     private static final String MARK_URL_VALIDATE = "url_validate";
+    private static final String MARK_URL_AGENT_CALENDAR = "url_agent_calendar";
 
     // SERVICES
     @Inject
@@ -103,7 +104,7 @@ public class TaskNotifyAdminAppointment extends AbstractTaskNotifyAppointment<Ta
                     }
                     if ( adminUser != null )
                     {
-                        this.sendEmail( appointment, resourceHistory, request, locale, config, adminUser.getEmail( ) );
+                        this.sendEmail( appointment, resourceHistory, request, config, new NotificationContext( adminUser.getEmail( ), locale ) );
                     }
                 }
             }
@@ -139,14 +140,16 @@ public class TaskNotifyAdminAppointment extends AbstractTaskNotifyAppointment<Ta
      * {@inheritDoc}
      */
     @Override
-    public Map<String, Object> fillModel( HttpServletRequest request, TaskNotifyAdminAppointmentConfig notifyAppointmentDTO, AppointmentDTO appointment,
-            Locale locale )
+    public NotificationModel fillModel( HttpServletRequest request, TaskNotifyAdminAppointmentConfig notifyAppointmentDTO, AppointmentDTO appointment,
+            NotificationContext context )
     {
-        Map<String, Object> model = super.fillModel( request, notifyAppointmentDTO, appointment, locale );
-        model.put( MARK_URL_CANCEL, ExecuteWorkflowAction.getExecuteWorkflowActionUrl( AppPathService.getBaseUrl( request ),
-                notifyAppointmentDTO.getIdActionCancel( ), notifyAppointmentDTO.getIdAdminUser( ), appointment.getIdAppointment( ) ) );
-        model.put( MARK_URL_VALIDATE, ExecuteWorkflowAction.getExecuteWorkflowActionUrl( AppPathService.getBaseUrl( request ),
-                notifyAppointmentDTO.getIdActionValidate( ), notifyAppointmentDTO.getIdAdminUser( ), appointment.getIdAppointment( ) ) );
+        NotificationModel model = super.fillModel( request, notifyAppointmentDTO, appointment, context );
+        String strBaseUrl = AppPathService.getBaseUrl( request );
+        model.putLazy( MARK_URL_CANCEL, ( ) -> ExecuteWorkflowAction.getExecuteWorkflowActionUrl( strBaseUrl, notifyAppointmentDTO.getIdActionCancel( ),
+                notifyAppointmentDTO.getIdAdminUser( ), appointment.getIdAppointment( ) ) );
+        model.putLazy( MARK_URL_VALIDATE, ( ) -> ExecuteWorkflowAction.getExecuteWorkflowActionUrl( strBaseUrl, notifyAppointmentDTO.getIdActionValidate( ),
+                notifyAppointmentDTO.getIdAdminUser( ), appointment.getIdAppointment( ) ) );
+        model.putLazy( MARK_URL_AGENT_CALENDAR, ( ) -> AgentCalendarFeedServlet.getAgentCalendarFeedUrl( strBaseUrl, notifyAppointmentDTO.getIdAdminUser( ) ) );
 
         return model;
     }
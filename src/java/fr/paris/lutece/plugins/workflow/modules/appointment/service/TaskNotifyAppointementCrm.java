@@ -41,17 +41,14 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.apache.commons.lang3.StringUtils;
 
-import fr.paris.lutece.plugins.appointment.business.user.User;
 import fr.paris.lutece.plugins.appointment.service.AppointmentService;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
-import fr.paris.lutece.plugins.crmclient.service.ICRMClientService;
-import fr.paris.lutece.plugins.crmclient.util.CRMException;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.CrmCall;
 import fr.paris.lutece.plugins.workflow.modules.appointment.business.TaskNotifyCrmConfig;
 import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceHistory;
 import fr.paris.lutece.plugins.workflowcore.service.config.ITaskConfigService;
 import fr.paris.lutece.plugins.workflowcore.service.resource.IResourceHistoryService;
 import fr.paris.lutece.plugins.workflowcore.service.task.SimpleTask;
-import fr.paris.lutece.portal.service.util.AppLogService;
 
 public class TaskNotifyAppointementCrm extends SimpleTask
 {
@@ -61,16 +58,12 @@ public class TaskNotifyAppointementCrm extends SimpleTask
      */
     public static final String CONFIG_SERVICE_BEAN_NAME = "workflow-appointment.taskNotifyCrmConfigService";
 
-    private static final String MARK_FIRSTNAME = "${firstName}";
-    private static final String MARK_LASTNAME = "${lastName}";
-    private static final String MARK_REFERENCE = "${reference}";
-    private static final String MARK_DATE_APPOINTMENT = "${date_appointment}";
-
     // SERVICES
     @Inject
     private IResourceHistoryService _resourceHistoryService;
     @Inject
-    private ICRMClientService _crmClientService;
+    @Named( CrmDispatchService.BEAN_NAME )
+    private CrmDispatchService _crmDispatchService;
 
     @Inject
     @Named( CONFIG_SERVICE_BEAN_NAME )
@@ -82,31 +75,24 @@ public class TaskNotifyAppointementCrm extends SimpleTask
 
         ResourceHistory resourceHistory = _resourceHistoryService.findByPrimaryKey( nIdResourceHistory );
         TaskNotifyCrmConfig config = _taskNotifyAppointmentCrmConfigService.findByPrimaryKey( this.getId( ) );
-        AppointmentDTO appointment = AppointmentService.buildAppointmentDTOFromIdAppointment( resourceHistory.getIdResource( ) );
-        User user = appointment.getUser( );
-        String strIdDemand = null;
 
         if ( config != null )
         {
-
-            try
-            {
-                strIdDemand = _crmClientService.sendCreateDemandByUserGuid( config.getDemandeType( ), Integer.toString( appointment.getIdUser( ) ),
-                        config.getIdStatusCRM( ), config.getStatusText( ), config.getData( ) );
-            }
-            catch( CRMException e )
-            {
-                AppLogService.error( e );
-            }
-        }
-        if ( strIdDemand != null )
-        {
-
-            String mesg = getMessageAppointment( config.getMessage( ), appointment, user );
-            _crmClientService.notify( strIdDemand, config.getObject( ), mesg, config.getSender( ) );
-
+            AppointmentDTO appointment = AppointmentService.buildAppointmentDTOFromIdAppointment( resourceHistory.getIdResource( ) );
+
+            // The demand is created and notified by the CRM dispatch service, outside of the action
+            CrmCall call = new CrmCall( );
+            call.setIdAppointment( appointment.getIdAppointment( ) );
+            call.setUserGuid( Integer.toString( appointment.getIdUser( ) ) );
+            call.setDemandType( config.getDemandeType( ) );
+            call.setIdStatusCrm( config.getIdStatusCRM( ) );
+            call.setStatusText( config.getStatusText( ) );
+            call.setData( config.getData( ) );
+            call.setNotifyObject( config.getObject( ) );
+            call.setNotifyMessage( getMessageAppointment( config.getMessage( ), appointment ) );
+            call.setNotifySender( config.getSender( ) );
+            _crmDispatchService.enqueue( call );
         }
-
     }
 
     @Override
@@ -133,12 +119,18 @@ public class TaskNotifyAppointementCrm extends SimpleTask
         _taskNotifyAppointmentCrmConfigService.remove( this.getId( ) );
     }
 
-    private String getMessageAppointment( String msg, AppointmentDTO appointment, User user )
+    /**
+     * Get the message of the CRM notification of an appointment
+     * 
+     * @param strMessage
+     *            The message of the configuration of the task
+     * @param appointment
+     *            The appointment
+     * @return The message with the values of the appointment
+     */
+    private String getMessageAppointment( String strMessage, AppointmentDTO appointment )
     {
-
-        String message = ( msg.replace( MARK_FIRSTNAME, user.getFirstName( ) ) ).replace( MARK_LASTNAME, user.getLastName( ) );
-        String m = message.replace( MARK_REFERENCE, appointment.getReference( ) );
-        return m.replace( MARK_DATE_APPOINTMENT, appointment.getDateOfTheAppointment( ) );
+        return CrmMessageTemplateCacheService.getInstance( ).getTemplate( getId( ), strMessage ).render( appointment );
     }
 
 }
@@ -94,17 +94,16 @@ public class TaskNotifyAppointment extends AbstractTaskNotifyAppointment<TaskNot
         }
         AppointmentDTO appointment = AppointmentService.buildAppointmentDTOFromIdAppointment( resourceHistory.getIdResource( ) );
         User user = appointment.getUser( );
+        String strCancelMotif = null;
         if ( request != null )
         {
             Map<String, String [ ]> parameters = request.getParameterMap( );
-            String strCancelMotif = null;
             for ( Map.Entry<String, String [ ]> entry : parameters.entrySet( ) )
             {
                 if ( entry.getKey( ).startsWith( MARK_MOTIF_CANCEL ) )
                 {
                     String [ ] tabAllParamsStartedWithCommentValue = entry.getValue( );
                     strCancelMotif = tabAllParamsStartedWithCommentValue [0];
-                    config.setCancelMotif( strCancelMotif );
                     break;
                 }
             }
@@ -132,12 +131,14 @@ public class TaskNotifyAppointment extends AbstractTaskNotifyAppointment<TaskNot
             lEmailLocale = new Locale( sServerMailLang.split( "_" ) [0], sServerMailLang.split( "_" ) [1] );
         }
 
-        if ( appointment.getIsCancelled( ) && StringUtils.isNotEmpty( config.getCancelMotif( ) ) )
+        NotificationContext context = new NotificationContext( strEmail, lEmailLocale );
+        context.setCancelMotif( strCancelMotif );
+        if ( appointment.getIsCancelled( ) && StringUtils.isNotEmpty( strCancelMotif ) )
         {
-            config.setMessage( ERROR_CANCEL_APPOINTMENT_MSG );
+            context.setMessage( ERROR_CANCEL_APPOINTMENT_MSG );
         }
 
-        if ( this.sendEmail( appointment, resourceHistory, request, lEmailLocale, config, strEmail ) != null && config.getIdActionCancel( ) > 0
+        if ( this.sendEmail( appointment, resourceHistory, request, config, context ) != null && config.getIdActionCancel( ) > 0
                 && config.getIdActionCancel( ) != appointment.getIdActionCancelled( ) )
         {
             appointment.setIdActionCancelled( config.getIdActionCancel( ) );
@@ -174,10 +175,10 @@ public class TaskNotifyAppointment extends AbstractTaskNotifyAppointment<TaskNot
      * {@inheritDoc}
      */
     @Override
-    public Map<String, Object> fillModel( HttpServletRequest request, TaskNotifyAppointmentConfig notifyAppointmentDTO, AppointmentDTO appointment,
-            Locale locale )
+    public NotificationModel fillModel( HttpServletRequest request, TaskNotifyAppointmentConfig notifyAppointmentDTO, AppointmentDTO appointment,
+            NotificationContext context )
     {
-        Map<String, Object> model = super.fillModel( request, notifyAppointmentDTO, appointment, locale );
+        NotificationModel model = super.fillModel( request, notifyAppointmentDTO, appointment, context );
         model.put( MARK_URL_CANCEL, AppointmentApp.getCancelAppointmentUrl( request, appointment ) );
 
         return model;
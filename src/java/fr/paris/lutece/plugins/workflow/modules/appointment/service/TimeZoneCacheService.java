@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import net.fortuna.ical4j.data.CalendarBuilder;
+import net.fortuna.ical4j.data.ParserException;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Component;
+import net.fortuna.ical4j.model.component.VTimeZone;
+
+/**
+ * Cache of the iCal time zones used to send appointments. Each time zone file is parsed once per time zone id, and is parsed again only if the configured
+ * file or its last modification date changed. The time zone files shipped in the zoneinfo directory are indexed once, so that any of them can be used by its
+ * id : only the time zones that are actually used are parsed.
+ */
+public final class TimeZoneCacheService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "workflow-appointment.timeZoneCacheService";
+
+    // properties
+    private static final String PROPERTY_FILE_CHECK_INTERVAL = "workflow-appointment.server.timezone.fileCheckInterval";
+    private static final String PROPERTY_ZONEINFO_DIRECTORY = "workflow-appointment.server.timezone.directoryRelativePath";
+
+    // constants
+    private static final int DEFAULT_FILE_CHECK_INTERVAL = 60;
+    private static final long CONSTANT_MILLISECONDS_IN_SECOND = 1000L;
+    private static final String DEFAULT_ZONEINFO_DIRECTORY = "/WEB-INF/conf/zoneinfo";
+    private static final String CONSTANT_ICS_EXTENSION = ".ics";
+    private static final String CONSTANT_PATH_SEPARATOR = "/";
+
+    // messages
+    private static final String MSG_TIMEZONE_FILE_NOT_FOUND = "iCal default Time zone file not found";
+    private static final String MSG_TIMEZONE_FILE_INCORRECT = "iCal default Time zone file format problem";
+    private static final String MSG_ZONEINFO_DIRECTORY_ERROR = "iCal Time zone directory could not be indexed";
+    private static final String MSG_ZONEINFO_DIRECTORY_INDEXED = "iCal Time zones indexed : ";
+
+    private static TimeZoneCacheService _instance = new TimeZoneCacheService( );
+
+    private final Object _lock = new Object( );
+    private volatile SortedSet<String> _setTimeZoneIds;
+
+    /**
+     * Private constructor
+     */
+    private TimeZoneCacheService( )
+    {
+        initCache( );
+    }
+
+    /**
+     * Get the instance of the service
+     * 
+     * @return The instance of the service
+     */
+    public static TimeZoneCacheService getInstance( )
+    {
+        return _instance;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Index the time zone files of the zoneinfo directory. The files are not parsed.
+     */
+    public void initIndex( )
+    {
+        String strDirectory = AppPathService
+                .getAbsolutePathFromRelativePath( AppPropertiesService.getProperty( PROPERTY_ZONEINFO_DIRECTORY, DEFAULT_ZONEINFO_DIRECTORY ) );
+        Path root = Paths.get( strDirectory );
+        SortedSet<String> setTimeZoneIds = new TreeSet<>( );
+
+        try ( Stream<Path> paths = Files.walk( root ) )
+        {
+            paths.filter( path -> path.getFileName( ).toString( ).endsWith( CONSTANT_ICS_EXTENSION ) && Files.isRegularFile( path ) )
+                    .forEach( path -> setTimeZoneIds.add( getTimeZoneId( root, path ) ) );
+        }
+        catch( IOException | RuntimeException ex )
+        {
+            AppLogService.error( MSG_ZONEINFO_DIRECTORY_ERROR + " : " + strDirectory, ex );
+        }
+
+        _setTimeZoneIds = Collections.unmodifiableSortedSet( setTimeZoneIds );
+        AppLogService.info( MSG_ZONEINFO_DIRECTORY_INDEXED + setTimeZoneIds.size( ) );
+    }
+
+    /**
+     * Get the ids of the time zones available in the zoneinfo directory
+     * 
+     * @return The sorted ids of the time zones
+     */
+    public SortedSet<String> getTimeZoneIds( )
+    {
+        if ( _setTimeZoneIds == null )
+        {
+            synchronized( _lock )
+            {
+                if ( _setTimeZoneIds == null )
+                {
+                    initIndex( );
+                }
+            }
+        }
+
+        return _setTimeZoneIds;
+    }
+
+    /**
+     * Get a time zone of the zoneinfo directory. The file of the time zone is parsed on the first use only.
+     * 
+     * @param strTimeZoneId
+     *            The id of the time zone
+     * @return The time zone, or null if the time zone is not available
+     */
+    public ICalTimeZone getTimeZone( String strTimeZoneId )
+    {
+        if ( strTimeZoneId == null || !getTimeZoneIds( ).contains( strTimeZoneId ) )
+        {
+            return null;
+        }
+
+        return getTimeZone( strTimeZoneId, AppPropertiesService.getProperty( PROPERTY_ZONEINFO_DIRECTORY, DEFAULT_ZONEINFO_DIRECTORY )
+                + CONSTANT_PATH_SEPARATOR + strTimeZoneId + CONSTANT_ICS_EXTENSION );
+    }
+
+    /**
+     * Get a time zone. The time zone is read from the cache, or from its file if it is not in cache yet or if the file changed.
+     * 
+     * @param strTimeZoneId
+     *            The id of the time zone
+     * @param strRelativeFilePath
+     *            The path of the .ics file describing the time zone, relative to the webapp
+     * @return The time zone, or null if the file could not be read
+     */
+    public ICalTimeZone getTimeZone( String strTimeZoneId, String strRelativeFilePath )
+    {
+        String strFilePath = AppPathService.getAbsolutePathFromRelativePath( strRelativeFilePath );
+        ICalTimeZone iCalTimeZone = (ICalTimeZone) getFromCache( strTimeZoneId );
+
+        if ( iCalTimeZone != null && isUpToDate( iCalTimeZone, strFilePath ) )
+        {
+            return iCalTimeZone;
+        }
+
+        synchronized( _lock )
+        {
+            // Another thread may have loaded the time zone while we were waiting
+            iCalTimeZone = (ICalTimeZone) getFromCache( strTimeZoneId );
+            if ( iCalTimeZone == null || !isUpToDate( iCalTimeZone, strFilePath ) )
+            {
+                iCalTimeZone = loadTimeZone( strTimeZoneId, strFilePath );
+                if ( iCalTimeZone != null )
+                {
+                    putInCache( strTimeZoneId, iCalTimeZone );
+                }
+            }
+        }
+
+        return iCalTimeZone;
+    }
+
+    /**
+     * Check if a time zone in cache is still up to date. The last modification date of the file is only checked once per check interval.
+     * 
+     * @param iCalTimeZone
+     *            The time zone in cache
+     * @param strFilePath
+     *            The absolute path of the configured file
+     * @return True if the time zone is up to date, false if it must be loaded again
+     */
+    private boolean isUpToDate( ICalTimeZone iCalTimeZone, String strFilePath )
+    {
+        if ( !iCalTimeZone.getFilePath( ).equals( strFilePath ) )
+        {
+            return false;
+        }
+
+        long lNow = System.currentTimeMillis( );
+        long lCheckInterval = AppPropertiesService.getPropertyInt( PROPERTY_FILE_CHECK_INTERVAL, DEFAULT_FILE_CHECK_INTERVAL )
+                * CONSTANT_MILLISECONDS_IN_SECOND;
+
+        if ( lNow - iCalTimeZone.getLastCheck( ) < lCheckInterval )
+        {
+            return true;
+        }
+
+        iCalTimeZone.setLastCheck( lNow );
+
+        return new File( strFilePath ).lastModified( ) == iCalTimeZone.getLastModified( );
+    }
+
+    /**
+     * Get the id of a time zone from the path of its file
+     * 
+     * @param root
+     *            The zoneinfo directory
+     * @param path
+     *            The file of the time zone
+     * @return The id of the time zone
+     */
+    private static String getTimeZoneId( Path root, Path path )
+    {
+        String strRelativePath = root.relativize( path ).toString( ).replace( File.separator, CONSTANT_PATH_SEPARATOR );
+
+        return strRelativePath.substring( 0, strRelativePath.length( ) - CONSTANT_ICS_EXTENSION.length( ) );
+    }
+
+    /**
+     * Load a time zone from its file
+     * 
+     * @param strTimeZoneId
+     *            The id of the time zone
+     * @param strFilePath
+     *            The absolute path of the file
+     * @return The time zone, or null if the file could not be read
+     */
+    private ICalTimeZone loadTimeZone( String strTimeZoneId, String strFilePath )
+    {
+        File file = new File( strFilePath );
+        long lLastModified = file.lastModified( );
+        CalendarBuilder builder = new CalendarBuilder( );
+        Calendar calendar;
+
+        try ( InputStream inputStream = new FileInputStream( file ) )
+        {
+            calendar = builder.build( inputStream );
+        }
+        catch( IOException | ParserException ex )
+        {
+            AppLogService.error( file.exists( ) ? MSG_TIMEZONE_FILE_INCORRECT : MSG_TIMEZONE_FILE_NOT_FOUND, ex );
+            return null;
+        }
+
+        VTimeZone vTimeZone = (VTimeZone) calendar.getComponent( Component.VTIMEZONE );
+        if ( vTimeZone == null )
+        {
+            AppLogService.error( MSG_TIMEZONE_FILE_INCORRECT + " : " + strFilePath );
+            return null;
+        }
+
+        return new ICalTimeZone( strTimeZoneId, strFilePath, lLastModified, vTimeZone, builder.getRegistry( ).getTimeZone( strTimeZoneId ) );
+    }
+}
@@ -59,7 +59,7 @@ public class WorkflowAppointmentPlugin extends Plugin
     @Override
     public void init( )
     {
-        // Nothing to init
+        TimeZoneCacheService.getInstance( ).initIndex( );
     }
 
     /**
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.ArchivalJob;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.ArchivalJobHome;
+import fr.paris.lutece.plugins.workflow.modules.archive.ArchivalType;
+import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceWorkflow;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Service running the archival jobs. The resources of a job are archived by increasing id, by segments : a checkpoint is recorded after each segment with the
+ * id of its last resource and the counters of the job. If a run is interrupted, the next run of the same job and archival type resumes the job with its
+ * counters and processing time. The resources given to the new run may differ from the ones of the interrupted run, so the resources up to the checkpoint
+ * are checked again : the appointments already anonymized are skipped through their anonymization marks, the appointments already deleted are no longer
+ * found, and neither is counted twice.
+ */
+public class ArchivalJobService
+{
+    /**
+     * The name of the bean of the service
+     */
+    public static final String BEAN_NAME = "workflow-appointment.archivalJobService";
+
+    // properties
+    private static final String PROPERTY_CHECKPOINT_SIZE = "workflow-appointment.archive.checkpointSize";
+
+    // constants
+    private static final int DEFAULT_CHECKPOINT_SIZE = 2000;
+    private static final int CONSTANT_MAX_ERROR_LENGTH = 1024;
+
+    @Inject
+    @Named( WorkflowAppointmentArchivalExecutor.BEAN_NAME )
+    private WorkflowAppointmentArchivalExecutor _archivalExecutor;
+
+    private final Set<String> _setRunningJobs = ConcurrentHashMap.newKeySet( );
+
+    /**
+     * Run an archival job, resuming it if its last run was interrupted
+     * 
+     * @param strJobCode
+     *            The code of the job
+     * @param archivalType
+     *            The archival type
+     * @param listResourceWorkflow
+     *            The resources to archive
+     * @return The job, or null if the job is already running
+     */
+    public ArchivalJob run( String strJobCode, ArchivalType archivalType, List<ResourceWorkflow> listResourceWorkflow )
+    {
+        String strKey = strJobCode + ':' + archivalType.name( );
+        if ( !_setRunningJobs.add( strKey ) )
+        {
+            AppLogService.info( "The archival job " + strKey + " is already running" );
+
+            return null;
+        }
+
+        try
+        {
+            return runJob( strJobCode, archivalType, listResourceWorkflow );
+        }
+        finally
+        {
+            _setRunningJobs.remove( strKey );
+        }
+    }
+
+    /**
+     * Run an archival job that is not already running
+     * 
+     * @param strJobCode
+     *            The code of the job
+     * @param archivalType
+     *            The archival type
+     * @param listResourceWorkflow
+     *            The resources to archive
+     * @return The job
+     */
+    private ArchivalJob runJob( String strJobCode, ArchivalType archivalType, List<ResourceWorkflow> listResourceWorkflow )
+    {
+        ArchivalJob job = ArchivalJobHome.findRunningJob( strJobCode, archivalType.name( ) );
+        if ( job == null )
+        {
+            job = new ArchivalJob( );
+            job.setJobCode( strJobCode );
+            job.setArchivalType( archivalType.name( ) );
+            job.setStatus( ArchivalJob.STATUS_RUNNING );
+            job.setDateStart( new Timestamp( System.currentTimeMillis( ) ) );
+            ArchivalJobHome.create( job );
+        }
+        else
+        {
+            AppLogService.info( "Resuming the archival job " + job.getIdJob( ) + " after the resource " + job.getLastIdResource( ) );
+        }
+
+        // The resources up to the checkpoint may have been given to the interrupted run : they are checked again, but only the ones that were not archived
+        // yet are counted
+        List<ResourceWorkflow> listBeforeCheckpoint = new ArrayList<>( );
+        List<ResourceWorkflow> listAfterCheckpoint = new ArrayList<>( );
+        for ( ResourceWorkflow resourceWorkflow : listResourceWorkflow )
+        {
+            ( resourceWorkflow.getIdResource( ) > job.getLastIdResource( ) ? listAfterCheckpoint : listBeforeCheckpoint ).add( resourceWorkflow );
+        }
+        listBeforeCheckpoint.sort( Comparator.comparingInt( ResourceWorkflow::getIdResource ) );
+        listAfterCheckpoint.sort( Comparator.comparingInt( ResourceWorkflow::getIdResource ) );
+        job.setNbResources( job.getNbProcessed( ) + listBeforeCheckpoint.size( ) + listAfterCheckpoint.size( ) );
+        ArchivalJobHome.update( job );
+
+        archiveSegments( job, archivalType, listBeforeCheckpoint, true );
+        archiveSegments( job, archivalType, listAfterCheckpoint, false );
+
+        job.setStatus( ArchivalJob.STATUS_COMPLETED );
+        job.setDateEnd( new Timestamp( System.currentTimeMillis( ) ) );
+        ArchivalJobHome.update( job );
+
+        return job;
+    }
+
+    /**
+     * Archive resources by segments, recording a checkpoint after each segment
+     * 
+     * @param job
+     *            The job
+     * @param archivalType
+     *            The archival type
+     * @param listResourceWorkflow
+     *            The resources, sorted by id
+     * @param bBeforeCheckpoint
+     *            true if the resources are up to the checkpoint of the job, false if they are after it
+     */
+    private void archiveSegments( ArchivalJob job, ArchivalType archivalType, List<ResourceWorkflow> listResourceWorkflow, boolean bBeforeCheckpoint )
+    {
+        int nCheckpointSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_CHECKPOINT_SIZE, DEFAULT_CHECKPOINT_SIZE ) );
+        for ( int nStart = 0; nStart < listResourceWorkflow.size( ); nStart += nCheckpointSize )
+        {
+            List<ResourceWorkflow> listSegment = listResourceWorkflow.subList( nStart, Math.min( nStart + nCheckpointSize, listResourceWorkflow.size( ) ) );
+            long lStart = System.currentTimeMillis( );
+            ArchivalProgress progress = _archivalExecutor.archive( archivalType, listSegment );
+            int nLastIdResource = bBeforeCheckpoint ? job.getLastIdResource( ) : listSegment.get( listSegment.size( ) - 1 ).getIdResource( );
+            checkpoint( job, nLastIdResource, progress, System.currentTimeMillis( ) - lStart, bBeforeCheckpoint );
+        }
+    }
+
+    /**
+     * Record the progress of a job after a segment of resources
+     * 
+     * @param job
+     *            The job
+     * @param nLastIdResource
+     *            The id of the last resource of the segment
+     * @param progress
+     *            The progress of the archival of the segment
+     * @param lProcessingTime
+     *            The time spent archiving the segment, in milliseconds
+     * @param bBeforeCheckpoint
+     *            true if the segment is up to the previous checkpoint : its resources already archived were counted by the interrupted run
+     */
+    private static void checkpoint( ArchivalJob job, int nLastIdResource, ArchivalProgress progress, long lProcessingTime, boolean bBeforeCheckpoint )
+    {
+        job.setLastIdResource( nLastIdResource );
+        if ( bBeforeCheckpoint )
+        {
+            job.setNbResources( job.getNbResources( ) - (int) progress.getNbSkipped( ) );
+            job.setNbProcessed( job.getNbProcessed( ) + (int) ( progress.getNbProcessed( ) - progress.getNbSkipped( ) ) );
+        }
+        else
+        {
+            job.setNbProcessed( job.getNbProcessed( ) + (int) progress.getNbProcessed( ) );
+            job.setNbSkipped( job.getNbSkipped( ) + (int) progress.getNbSkipped( ) );
+        }
+        job.setNbFailed( job.getNbFailed( ) + (int) progress.getNbFailed( ) );
+        job.setProcessingTime( job.getProcessingTime( ) + lProcessingTime );
+        job.setDateCheckpoint( new Timestamp( System.currentTimeMillis( ) ) );
+
+        String strLastError = progress.getLastError( );
+        if ( strLastError != null )
+        {
+            job.setLastError( strLastError.length( ) > CONSTANT_MAX_ERROR_LENGTH ? strLastError.substring( 0, CONSTANT_MAX_ERROR_LENGTH ) : strLastError );
+        }
+
+        ArchivalJobHome.update( job );
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of an archival. The counters are updated by the threads of the archival, and can be read while it runs.
+ */
+public class ArchivalProgress
+{
+    private final long _lDateStart = System.currentTimeMillis( );
+    private final AtomicLong _nNbResources = new AtomicLong( );
+    private final AtomicLong _nNbProcessed = new AtomicLong( );
+    private final AtomicLong _nNbSkipped = new AtomicLong( );
+    private final AtomicLong _nNbFailed = new AtomicLong( );
+    private volatile String _strLastError;
+
+    /**
+     * Add resources to archive
+     * 
+     * @param nNbResources
+     *            The number of resources
+     */
+    public void addResources( long nNbResources )
+    {
+        _nNbResources.addAndGet( nNbResources );
+    }
+
+    /**
+     * Record processed resources
+     * 
+     * @param nNbProcessed
+     *            The number of resources processed, archived, skipped or failed
+     * @param nNbFailed
+     *            The number of resources that could not be archived
+     */
+    public void addProcessed( long nNbProcessed, long nNbFailed )
+    {
+        _nNbProcessed.addAndGet( nNbProcessed );
+        _nNbFailed.addAndGet( nNbFailed );
+    }
+
+    /**
+     * Record resources skipped because they were already archived. Skipped resources must also be recorded as processed.
+     * 
+     * @param nNbSkipped
+     *            The number of resources skipped
+     */
+    public void addSkipped( long nNbSkipped )
+    {
+        _nNbSkipped.addAndGet( nNbSkipped );
+    }
+
+    /**
+     * Record an error
+     * 
+     * @param strError
+     *            The error
+     */
+    public void setLastError( String strError )
+    {
+        _strLastError = strError;
+    }
+
+    /**
+     * Get the date at which the archival started
+     * 
+     * @return The date, in milliseconds
+     */
+    public long getDateStart( )
+    {
+        return _lDateStart;
+    }
+
+    /**
+     * Get the number of resources to archive
+     * 
+     * @return The number of resources
+     */
+    public long getNbResources( )
+    {
+        return _nNbResources.get( );
+    }
+
+    /**
+     * Get the number of resources processed, archived, skipped or failed
+     * 
+     * @return The number of resources processed
+     */
+    public long getNbProcessed( )
+    {
+        return _nNbProcessed.get( );
+    }
+
+    /**
+     * Get the number of resources skipped because they were already archived
+     * 
+     * @return The number of resources skipped
+     */
+    public long getNbSkipped( )
+    {
+        return _nNbSkipped.get( );
+    }
+
+    /**
+     * Get the number of resources that could not be archived
+     * 
+     * @return The number of resources failed
+     */
+    public long getNbFailed( )
+    {
+        return _nNbFailed.get( );
+    }
+
+    /**
+     * Get the last error of the archival
+     * 
+     * @return The last error, or null if no error occurred
+     */
+    public String getLastError( )
+    {
+        return _strLastError;
+    }
+}
@@ -1,8 +1,17 @@
 package fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.commons.lang3.StringUtils;
+import javax.inject.Inject;
+import javax.inject.Named;
 
 import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
 import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentResponseHome;
@@ -14,31 +23,65 @@ import fr.paris.lutece.plugins.appointment.service.AppointmentService;
 import fr.paris.lutece.plugins.appointment.service.FormService;
 import fr.paris.lutece.plugins.appointment.service.SlotService;
 import fr.paris.lutece.plugins.appointment.service.UserService;
-import fr.paris.lutece.plugins.genericattributes.business.Entry;
-import fr.paris.lutece.plugins.genericattributes.business.EntryHome;
 import fr.paris.lutece.plugins.genericattributes.business.Response;
 import fr.paris.lutece.plugins.genericattributes.business.ResponseHome;
-import fr.paris.lutece.plugins.genericattributes.service.anonymization.IEntryAnonymizationType;
-import fr.paris.lutece.plugins.genericattributes.service.entrytype.EntryTypeServiceManager;
-import fr.paris.lutece.plugins.genericattributes.service.entrytype.IEntryTypeService;
-import fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver.anonymization.IAnonymizationService;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.AnonymizableAppointment;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.BulkAnonymizationHome;
+import fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver.anonymization.AnonymizationPattern;
+import fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver.anonymization.AnonymizationServiceRegistry;
+import fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver.anonymization.EntryAnonymizationCache;
 import fr.paris.lutece.plugins.workflow.modules.archive.service.AbstractArchiveProcessingService;
 import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceWorkflow;
-import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.TransactionManager;
 
 public class WorkflowAppointmentAnonymizeArchiveProcessingService extends AbstractArchiveProcessingService
 {
 	
 	public static final String BEAN_NAME = "workflow-appointment.workflowAppointmentAnonymizeArchiveProcessingService";
 
+	private static final String PROPERTY_BULK_CHUNK_SIZE = "workflow-appointment.archive.bulk.chunkSize";
+	private static final int DEFAULT_BULK_CHUNK_SIZE = 500;
+
+	@Inject
+	@Named( AnonymizationServiceRegistry.BEAN_NAME )
+	private AnonymizationServiceRegistry _anonymizationServiceRegistry;
+
+	private final AtomicLong _nNbRequested = new AtomicLong( );
+	private final AtomicLong _nNbProcessed = new AtomicLong( );
+	private final AtomicLong _nNbAnonymized = new AtomicLong( );
+	private final AtomicLong _nNbSkipped = new AtomicLong( );
+	private final AtomicLong _nNbFailed = new AtomicLong( );
+
 	@Override
 	public void archiveResource(ResourceWorkflow resourceWorkflow)
 	{
+		archiveResource( resourceWorkflow, new EntryAnonymizationCache( ) );
+	}
+
+	/**
+	 * Anonymize an appointment, with the entries of an archival. The appointment is skipped if it was already anonymized.
+	 * 
+	 * @param resourceWorkflow
+	 *            The resource of the appointment
+	 * @param entryCache
+	 *            The entries of the archival, shared by the appointments of the archival
+	 */
+	public void archiveResource( ResourceWorkflow resourceWorkflow, EntryAnonymizationCache entryCache )
+	{
+		List<Integer> listIdAppointment = Collections.singletonList( resourceWorkflow.getIdResource( ) );
+		if ( !BulkAnonymizationHome.findAnonymizedAppointments( listIdAppointment ).isEmpty( ) )
+		{
+			return;
+		}
 		Appointment appointment = AppointmentService.findAppointmentById( resourceWorkflow.getIdResource() );
 		if (appointment != null)
 		{
 			anonymizeUserInfos(appointment);
-			anonymizeGenericAttributesEntries(appointment);
+			anonymizeGenericAttributesEntries(appointment, entryCache);
+			BulkAnonymizationHome.createAnonymizedAppointments( listIdAppointment, new Timestamp( System.currentTimeMillis( ) ) );
 		}
 	}
 	
@@ -49,44 +92,236 @@ public class WorkflowAppointmentAnonymizeArchiveProcessingService extends Abstra
 		User user = UserService.findUserById( appointment.getIdUser( ) );
 		if (user != null && form != null && form.isAnonymizable())
 		{
-			 IAnonymizationService anonymizationService = getAnonymizationServiceByPattern(form.getAnonymizationPattern());
-			 if (anonymizationService != null)
+			 AnonymizationPattern anonymizationPattern = getAnonymizationPattern(form.getAnonymizationPattern());
+			 if (anonymizationPattern != null)
 			 {
-				 user.setFirstName(anonymizationService.getAnonymisedValue(form));
-				 user.setLastName(anonymizationService.getAnonymisedValue(form));
-				 user.setEmail(anonymizationService.getAnonymisedValue(form));
+				 anonymizationPattern.anonymizeUser(user, form);
 				 UserHome.update(user);
 			 }
 		}
 	}
 	
-	private IAnonymizationService getAnonymizationServiceByPattern(String pattern)
+	private AnonymizationPattern getAnonymizationPattern(String pattern)
+	{
+		return _anonymizationServiceRegistry.getCompiledPattern( pattern );
+	}
+	
+	private void anonymizeGenericAttributesEntries(Appointment appointment, EntryAnonymizationCache entryCache)
 	{
-		List<IAnonymizationService> anonymizationServiceList = SpringContextService.getBeansOfType(IAnonymizationService.class);
-		for(IAnonymizationService anonymizationService : anonymizationServiceList)
+		List<Response> listResponses = AppointmentResponseHome.findListResponse(appointment.getIdAppointment());
+		for (Response response : listResponses)
 		{
-			if (StringUtils.equals(pattern, anonymizationService.getPattern()))
+			if ( entryCache.anonymizeResponse( response ) )
 			{
-				return anonymizationService;
+				ResponseHome.update( response );
 			}
 		}
-		return null;
 	}
-	
-	private void anonymizeGenericAttributesEntries(Appointment appointment)
+
+	/**
+	 * Anonymize a batch of appointments. Appointments are anonymized by chunks, each chunk in its own transaction : appointments are grouped by form, so that
+	 * the form and its anonymization service are loaded once, and the users and the responses of the chunk are updated with JDBC batches. The entries of the
+	 * responses are loaded once for the whole batch. Appointments already anonymized are skipped. If a chunk fails, its transaction is rolled back and the
+	 * following chunks are still processed.
+	 * 
+	 * @param listResourceWorkflow
+	 *            The resources of the appointments
+	 * @return The progress of the anonymization
+	 */
+	public ArchivalProgress archiveResources( List<ResourceWorkflow> listResourceWorkflow )
 	{
-		List<Response> listResponses = AppointmentResponseHome.findListResponse(appointment.getIdAppointment());
-		for (Response response : listResponses)
+		ArchivalProgress progress = new ArchivalProgress( );
+		progress.addResources( listResourceWorkflow.size( ) );
+		archiveResources( listResourceWorkflow, new EntryAnonymizationCache( ), progress );
+
+		return progress;
+	}
+
+	/**
+	 * Anonymize a batch of appointments, with the entries and the progress of an archival
+	 * 
+	 * @param listResourceWorkflow
+	 *            The resources of the appointments
+	 * @param entryCache
+	 *            The entries of the archival, shared by the batches of the archival
+	 * @param progress
+	 *            The progress of the archival
+	 */
+	public void archiveResources( List<ResourceWorkflow> listResourceWorkflow, EntryAnonymizationCache entryCache, ArchivalProgress progress )
+	{
+		Set<Integer> setIdAppointments = new LinkedHashSet<>( );
+		for ( ResourceWorkflow resourceWorkflow : listResourceWorkflow )
+		{
+			setIdAppointments.add( resourceWorkflow.getIdResource( ) );
+		}
+		_nNbRequested.addAndGet( setIdAppointments.size( ) );
+		// Duplicated resources are processed once
+		progress.addProcessed( listResourceWorkflow.size( ) - setIdAppointments.size( ), 0 );
+
+		List<Integer> listIdAppointments = new ArrayList<>( setIdAppointments );
+		int nChunkSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_BULK_CHUNK_SIZE, DEFAULT_BULK_CHUNK_SIZE ) );
+		Plugin plugin = BulkAnonymizationHome.getPlugin( );
+		for ( int nStart = 0; nStart < listIdAppointments.size( ); nStart += nChunkSize )
+		{
+			List<Integer> listChunk = new ArrayList<>( listIdAppointments.subList( nStart, Math.min( nStart + nChunkSize, listIdAppointments.size( ) ) ) );
+			int nNbAppointments = listChunk.size( );
+			TransactionManager.beginTransaction( plugin );
+			try
+			{
+				listChunk.removeAll( BulkAnonymizationHome.findAnonymizedAppointments( listChunk ) );
+				int nNbSkipped = nNbAppointments - listChunk.size( );
+				int nNbAnonymized = anonymizeChunk( listChunk, entryCache );
+				TransactionManager.commitTransaction( plugin );
+				_nNbAnonymized.addAndGet( nNbAnonymized );
+				_nNbSkipped.addAndGet( nNbSkipped );
+				progress.addSkipped( nNbSkipped );
+				progress.addProcessed( nNbAppointments, 0 );
+			}
+			catch( RuntimeException e )
+			{
+				TransactionManager.rollBack( plugin, e );
+				_nNbFailed.addAndGet( nNbAppointments );
+				progress.addProcessed( nNbAppointments, nNbAppointments );
+				progress.setLastError( e.getMessage( ) );
+				AppLogService.error( "Error while anonymizing the appointments " + listChunk, e );
+			}
+			_nNbProcessed.addAndGet( nNbAppointments );
+		}
+	}
+
+	/**
+	 * Get the number of appointments given to the bulk anonymization
+	 * 
+	 * @return The number of appointments requested
+	 */
+	public long getNbRequested( )
+	{
+		return _nNbRequested.get( );
+	}
+
+	/**
+	 * Get the number of appointments processed by the bulk anonymization, anonymized or failed
+	 * 
+	 * @return The number of appointments processed
+	 */
+	public long getNbProcessed( )
+	{
+		return _nNbProcessed.get( );
+	}
+
+	/**
+	 * Get the number of appointments anonymized by the bulk anonymization
+	 * 
+	 * @return The number of appointments anonymized
+	 */
+	public long getNbAnonymized( )
+	{
+		return _nNbAnonymized.get( );
+	}
+
+	/**
+	 * Get the number of appointments skipped by the bulk anonymization because they were already anonymized
+	 * 
+	 * @return The number of appointments skipped
+	 */
+	public long getNbSkipped( )
+	{
+		return _nNbSkipped.get( );
+	}
+
+	/**
+	 * Get the number of appointments of the chunks that failed
+	 * 
+	 * @return The number of appointments that could not be anonymized
+	 */
+	public long getNbFailed( )
+	{
+		return _nNbFailed.get( );
+	}
+
+	/**
+	 * Anonymize a chunk of appointments in the current transaction
+	 * 
+	 * @param listIdAppointments
+	 *            The ids of the appointments
+	 * @param entryCache
+	 *            The entries of the archival
+	 * @return The number of appointments anonymized
+	 */
+	private int anonymizeChunk( List<Integer> listIdAppointments, EntryAnonymizationCache entryCache )
+	{
+		List<AnonymizableAppointment> listAppointments = BulkAnonymizationHome.findAppointments( listIdAppointments );
+		Map<Integer, List<AnonymizableAppointment>> mapAppointmentsByForm = new LinkedHashMap<>( );
+		for ( AnonymizableAppointment appointment : listAppointments )
+		{
+			mapAppointmentsByForm.computeIfAbsent( appointment.getIdForm( ), nIdForm -> new ArrayList<>( ) ).add( appointment );
+		}
+
+		Map<Integer, List<Response>> mapResponses = BulkAnonymizationHome.findResponses( listIdAppointments );
+		List<User> listUsers = new ArrayList<>( listAppointments.size( ) );
+		List<Response> listResponses = new ArrayList<>( );
+
+		for ( Map.Entry<Integer, List<AnonymizableAppointment>> formAppointments : mapAppointmentsByForm.entrySet( ) )
+		{
+			Form form = FormService.findFormLightByPrimaryKey( formAppointments.getKey( ) );
+			AnonymizationPattern anonymizationPattern = ( form != null && form.isAnonymizable( ) ) ? getAnonymizationPattern( form.getAnonymizationPattern( ) )
+					: null;
+
+			for ( AnonymizableAppointment appointment : formAppointments.getValue( ) )
+			{
+				if ( anonymizationPattern != null )
+				{
+					User user = new User( );
+					user.setIdUser( appointment.getIdUser( ) );
+					anonymizationPattern.anonymizeUser( user, form );
+					listUsers.add( user );
+				}
+
+				for ( Response response : mapResponses.getOrDefault( appointment.getIdAppointment( ), Collections.emptyList( ) ) )
+				{
+					anonymizeResponse( response, entryCache, listResponses );
+				}
+			}
+		}
+
+		BulkAnonymizationHome.updateUsers( listUsers );
+		BulkAnonymizationHome.updateResponseValues( listResponses );
+
+		List<Integer> listIdAnonymized = new ArrayList<>( listAppointments.size( ) );
+		for ( AnonymizableAppointment appointment : listAppointments )
+		{
+			listIdAnonymized.add( appointment.getIdAppointment( ) );
+		}
+		BulkAnonymizationHome.createAnonymizedAppointments( listIdAnonymized, new Timestamp( System.currentTimeMillis( ) ) );
+
+		return listAppointments.size( );
+	}
+
+	/**
+	 * Anonymize a response of a bulk anonymization. Responses holding a file are loaded and updated one by one, the others are added to the batch.
+	 * 
+	 * @param response
+	 *            The response, with the id of its entry
+	 * @param entryCache
+	 *            The entries of the archival
+	 * @param listResponses
+	 *            The batch of responses to update
+	 */
+	private void anonymizeResponse( Response response, EntryAnonymizationCache entryCache, List<Response> listResponses )
+	{
+		if ( response.getFile( ) == null )
+		{
+			if ( entryCache.anonymizeResponse( response ) )
+			{
+				listResponses.add( response );
+			}
+			return;
+		}
+
+		Response responseWithFile = ResponseHome.findByPrimaryKey( response.getIdResponse( ) );
+		if ( responseWithFile != null && entryCache.anonymizeResponse( responseWithFile ) )
 		{
-			Entry entry = EntryHome.findByPrimaryKey(response.getEntry().getIdEntry());
-			IEntryTypeService entryTypeService = EntryTypeServiceManager.getEntryTypeService( entry );
-			boolean first = true;
-			for ( IEntryAnonymizationType wildcard : entryTypeService.getValidWildcards( ) )
-		    {
-		        wildcard.getAnonymisationTypeService( ).anonymizeResponse( entry, response, first );
-		        first = false;
-		    }
-		    ResponseHome.update( response );
+			ResponseHome.update( responseWithFile );
 		}
 	}
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.ArchivalJob;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.BulkAnonymizationHome;
+import fr.paris.lutece.plugins.workflow.modules.archive.ArchivalType;
+import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceWorkflow;
+import fr.paris.lutece.portal.service.daemon.Daemon;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Daemon that archives the appointments ended for a given number of days. The daemon only archives the appointments of the forms of the workflows listed in
+ * its configuration, each workflow with its own archival type and delay, so that no appointment is archived or deleted unless its workflow was explicitly
+ * configured for it. The appointments are selected by batches and archived in bulk through the archival job of the archiver of the module.
+ */
+public class WorkflowAppointmentArchivalDaemon extends Daemon
+{
+    // properties
+    private static final String PROPERTY_WORKFLOWS = "workflow-appointment.archive.daemon.workflows";
+    private static final String PROPERTY_PREFIX_WORKFLOW = "workflow-appointment.archive.daemon.workflow.";
+    private static final String PROPERTY_SUFFIX_ARCHIVAL_TYPE = ".archivalType";
+    private static final String PROPERTY_SUFFIX_DELAY = ".delay";
+    private static final String PROPERTY_MAX_RESOURCES = "workflow-appointment.archive.daemon.maxResources";
+
+    // constants
+    private static final String SEPARATOR_WORKFLOWS = ",";
+    private static final int DEFAULT_DELAY = -1;
+    private static final int DEFAULT_MAX_RESOURCES = 10000;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run( )
+    {
+        String strWorkflows = AppPropertiesService.getProperty( PROPERTY_WORKFLOWS );
+        if ( StringUtils.isBlank( strWorkflows ) )
+        {
+            setLastRunLogs( "No workflow is configured for the archival, no appointment archived" );
+
+            return;
+        }
+
+        int nMaxResources = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_MAX_RESOURCES, DEFAULT_MAX_RESOURCES ) );
+        StringBuilder sbLogs = new StringBuilder( );
+        for ( String strIdWorkflow : strWorkflows.split( SEPARATOR_WORKFLOWS ) )
+        {
+            if ( StringUtils.isNumeric( strIdWorkflow.trim( ) ) && StringUtils.isNotBlank( strIdWorkflow ) )
+            {
+                sbLogs.append( archiveWorkflow( Integer.parseInt( strIdWorkflow.trim( ) ), nMaxResources ) );
+            }
+            else
+            {
+                sbLogs.append( "Invalid workflow id : " ).append( strIdWorkflow );
+            }
+            sbLogs.append( '\n' );
+        }
+
+        setLastRunLogs( sbLogs.toString( ) );
+    }
+
+    /**
+     * Archive the ended appointments of the forms of a workflow, with the archival type and the delay configured for the workflow
+     * 
+     * @param nIdWorkflow
+     *            The id of the workflow
+     * @param nMaxResources
+     *            The maximum number of appointments to archive
+     * @return The logs of the archival
+     */
+    private String archiveWorkflow( int nIdWorkflow, int nMaxResources )
+    {
+        String strPrefix = PROPERTY_PREFIX_WORKFLOW + nIdWorkflow;
+        int nDelay = AppPropertiesService.getPropertyInt( strPrefix + PROPERTY_SUFFIX_DELAY, DEFAULT_DELAY );
+        if ( nDelay < 0 )
+        {
+            return "Workflow " + nIdWorkflow + " : no archival delay is set, no appointment archived";
+        }
+
+        String strArchivalType = AppPropertiesService.getProperty( strPrefix + PROPERTY_SUFFIX_ARCHIVAL_TYPE );
+        ArchivalType archivalType;
+        try
+        {
+            archivalType = ArchivalType.valueOf( StringUtils.trimToEmpty( strArchivalType ) );
+        }
+        catch( IllegalArgumentException e )
+        {
+            return "Workflow " + nIdWorkflow + " : unknown archival type : " + strArchivalType;
+        }
+
+        Timestamp dateEnd = Timestamp.valueOf( LocalDateTime.now( ).minusDays( nDelay ) );
+        List<Integer> listIdAppointments = BulkAnonymizationHome.findEndedAppointments( nIdWorkflow, dateEnd, archivalType == ArchivalType.ANONYMIZE,
+                nMaxResources );
+
+        List<ResourceWorkflow> listResourceWorkflow = new ArrayList<>( listIdAppointments.size( ) );
+        for ( Integer nIdAppointment : listIdAppointments )
+        {
+            ResourceWorkflow resourceWorkflow = new ResourceWorkflow( );
+            resourceWorkflow.setIdResource( nIdAppointment );
+            resourceWorkflow.setResourceType( Appointment.APPOINTMENT_RESOURCE_TYPE );
+            listResourceWorkflow.add( resourceWorkflow );
+        }
+
+        WorkflowAppointmentResourceArchiver archiver = SpringContextService.getBean( WorkflowAppointmentResourceArchiver.BEAN_NAME );
+        ArchivalJob job = archiver.archiveResources( nIdWorkflow, archivalType, listResourceWorkflow );
+        if ( job == null )
+        {
+            return "Workflow " + nIdWorkflow + " : the archival job is already running";
+        }
+
+        return "Workflow " + nIdWorkflow + " : " + listResourceWorkflow.size( ) + " appointment(s) selected for " + archivalType.name( ) + ", job "
+                + job.getIdJob( ) + " : " + job.getNbProcessed( ) + " appointment(s) processed, " + job.getNbSkipped( ) + " skipped, " + job.getNbFailed( )
+                + " failed";
+    }
+}
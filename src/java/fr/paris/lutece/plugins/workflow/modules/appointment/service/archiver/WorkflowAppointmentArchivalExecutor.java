@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.AnonymizableAppointment;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.BulkAnonymizationHome;
+import fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver.anonymization.EntryAnonymizationCache;
+import fr.paris.lutece.plugins.workflow.modules.archive.ArchivalType;
+import fr.paris.lutece.plugins.workflow.modules.archive.service.IArchiveProcessingService;
+import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceWorkflow;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+/**
+ * Parallel executor of the archival of appointments. Resources are partitioned by form, and the partitions are split into batches processed by a pool of
+ * threads. Each batch manages its own transactions on the pool of the appointment plugin : anonymizations are done in bulk by chunks of appointments,
+ * and each deletion is done in its own transaction, so that an appointment is always archived or left untouched. The number of batches in progress is
+ * bounded by the number of database connections the archival may use : the caller waits for a batch to complete before submitting the next one.
+ */
+public class WorkflowAppointmentArchivalExecutor
+{
+    /**
+     * The name of the bean of the executor
+     */
+    public static final String BEAN_NAME = "workflow-appointment.workflowAppointmentArchivalExecutor";
+
+    // properties
+    private static final String PROPERTY_NB_THREADS = "workflow-appointment.archive.nbThreads";
+    private static final String PROPERTY_MAX_CONNECTIONS = "workflow-appointment.archive.maxConnections";
+    private static final String PROPERTY_BATCH_SIZE = "workflow-appointment.archive.bulk.chunkSize";
+
+    // constants
+    private static final int DEFAULT_NB_THREADS = 4;
+    private static final int DEFAULT_MAX_CONNECTIONS = 4;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int CONSTANT_NO_FORM = 0;
+    private static final String CONSTANT_THREAD_NAME = "workflow-appointment-archival-";
+
+    @Inject
+    @Named( WorkflowAppointmentAnonymizeArchiveProcessingService.BEAN_NAME )
+    private IArchiveProcessingService _anonymizeArchiveProcessingService;
+
+    @Inject
+    @Named( WorkflowAppointmentDeleteArchiveProcessingService.BEAN_NAME )
+    private IArchiveProcessingService _deleteArchiveProcessingService;
+
+    private ExecutorService _executor;
+    private Semaphore _connections;
+
+    /**
+     * Archive resources and wait for the end of the archival
+     * 
+     * @param archivalType
+     *            The archival type
+     * @param listResourceWorkflow
+     *            The resources
+     * @return The progress of the archival
+     */
+    public ArchivalProgress archive( ArchivalType archivalType, List<ResourceWorkflow> listResourceWorkflow )
+    {
+        ArchivalProgress progress = new ArchivalProgress( );
+        archive( archivalType, listResourceWorkflow, progress );
+
+        return progress;
+    }
+
+    /**
+     * Archive resources and wait for the end of the archival. The progress can be read by other threads while the archival runs.
+     * 
+     * @param archivalType
+     *            The archival type
+     * @param listResourceWorkflow
+     *            The resources
+     * @param progress
+     *            The progress of the archival
+     */
+    public void archive( ArchivalType archivalType, List<ResourceWorkflow> listResourceWorkflow, ArchivalProgress progress )
+    {
+        progress.addResources( listResourceWorkflow.size( ) );
+
+        int nBatchSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE ) );
+        EntryAnonymizationCache entryCache = new EntryAnonymizationCache( );
+        Phaser phaser = new Phaser( 1 );
+
+        for ( Map.Entry<Integer, List<ResourceWorkflow>> partition : partitionByForm( listResourceWorkflow, nBatchSize ).entrySet( ) )
+        {
+            List<ResourceWorkflow> listPartition = partition.getValue( );
+            if ( archivalType == ArchivalType.DELETE && partition.getKey( ) == CONSTANT_NO_FORM )
+            {
+                // The appointments were already deleted
+                progress.addSkipped( listPartition.size( ) );
+                progress.addProcessed( listPartition.size( ), 0 );
+
+                continue;
+            }
+
+            for ( int nStart = 0; nStart < listPartition.size( ); nStart += nBatchSize )
+            {
+                List<ResourceWorkflow> listBatch = listPartition.subList( nStart, Math.min( nStart + nBatchSize, listPartition.size( ) ) );
+                submit( ( ) -> processBatch( archivalType, listBatch, entryCache, progress ), phaser );
+            }
+        }
+
+        phaser.arriveAndAwaitAdvance( );
+    }
+
+    /**
+     * Submit a batch to the pool. The caller waits until a database connection is available for the batch. If the pool can not accept the batch, it is
+     * processed by the caller.
+     * 
+     * @param batch
+     *            The batch
+     * @param phaser
+     *            The phaser of the archival
+     */
+    private void submit( Runnable batch, Phaser phaser )
+    {
+        Semaphore connections = getConnections( );
+        connections.acquireUninterruptibly( );
+        phaser.register( );
+
+        Runnable task = ( ) -> {
+            try
+            {
+                batch.run( );
+            }
+            finally
+            {
+                connections.release( );
+                phaser.arriveAndDeregister( );
+            }
+        };
+
+        try
+        {
+            getExecutor( ).execute( task );
+        }
+        catch( RejectedExecutionException e )
+        {
+            task.run( );
+        }
+    }
+
+    /**
+     * Archive a batch of resources of the same form
+     * 
+     * @param archivalType
+     *            The archival type
+     * @param listBatch
+     *            The resources
+     * @param entryCache
+     *            The entries of the archival
+     * @param progress
+     *            The progress of the archival
+     */
+    private void processBatch( ArchivalType archivalType, List<ResourceWorkflow> listBatch, EntryAnonymizationCache entryCache, ArchivalProgress progress )
+    {
+        if ( archivalType == ArchivalType.ANONYMIZE && _anonymizeArchiveProcessingService instanceof WorkflowAppointmentAnonymizeArchiveProcessingService )
+        {
+            ( (WorkflowAppointmentAnonymizeArchiveProcessingService) _anonymizeArchiveProcessingService ).archiveResources( listBatch, entryCache, progress );
+
+            return;
+        }
+
+        IArchiveProcessingService processingService = ( archivalType == ArchivalType.DELETE ) ? _deleteArchiveProcessingService
+                : _anonymizeArchiveProcessingService;
+        Plugin plugin = BulkAnonymizationHome.getPlugin( );
+        for ( ResourceWorkflow resourceWorkflow : listBatch )
+        {
+            TransactionManager.beginTransaction( plugin );
+            try
+            {
+                processingService.archiveResource( resourceWorkflow );
+                TransactionManager.commitTransaction( plugin );
+                progress.addProcessed( 1, 0 );
+            }
+            catch( RuntimeException e )
+            {
+                TransactionManager.rollBack( plugin, e );
+                AppLogService.error( "Error while archiving the appointment " + resourceWorkflow.getIdResource( ), e );
+                progress.setLastError( "Appointment " + resourceWorkflow.getIdResource( ) + " : " + e.getMessage( ) );
+                progress.addProcessed( 1, 1 );
+            }
+        }
+    }
+
+    /**
+     * Partition resources by form
+     * 
+     * @param listResourceWorkflow
+     *            The resources
+     * @param nLookupSize
+     *            The number of appointments whose form is looked up by each query
+     * @return The resources by id of form. Resources whose appointment was not found are in the partition of id 0.
+     */
+    private static Map<Integer, List<ResourceWorkflow>> partitionByForm( List<ResourceWorkflow> listResourceWorkflow, int nLookupSize )
+    {
+        Map<Integer, Integer> mapIdForms = new HashMap<>( );
+        for ( int nStart = 0; nStart < listResourceWorkflow.size( ); nStart += nLookupSize )
+        {
+            List<Integer> listIdAppointments = new ArrayList<>( );
+            for ( ResourceWorkflow resourceWorkflow : listResourceWorkflow.subList( nStart, Math.min( nStart + nLookupSize, listResourceWorkflow.size( ) ) ) )
+            {
+                listIdAppointments.add( resourceWorkflow.getIdResource( ) );
+            }
+            for ( AnonymizableAppointment appointment : BulkAnonymizationHome.findAppointments( listIdAppointments ) )
+            {
+                mapIdForms.put( appointment.getIdAppointment( ), appointment.getIdForm( ) );
+            }
+        }
+
+        Map<Integer, List<ResourceWorkflow>> mapPartitions = new LinkedHashMap<>( );
+        for ( ResourceWorkflow resourceWorkflow : listResourceWorkflow )
+        {
+            int nIdForm = mapIdForms.getOrDefault( resourceWorkflow.getIdResource( ), CONSTANT_NO_FORM );
+            mapPartitions.computeIfAbsent( nIdForm, nId -> new ArrayList<>( ) ).add( resourceWorkflow );
+        }
+
+        return mapPartitions;
+    }
+
+    /**
+     * Get the semaphore bounding the number of batches in progress
+     * 
+     * @return The semaphore
+     */
+    private synchronized Semaphore getConnections( )
+    {
+        if ( _connections == null )
+        {
+            int nNbThreads = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_NB_THREADS, DEFAULT_NB_THREADS ) );
+            int nMaxConnections = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS ) );
+            _connections = new Semaphore( Math.min( nNbThreads, nMaxConnections ) );
+        }
+
+        return _connections;
+    }
+
+    /**
+     * Get the pool of threads of the archival
+     * 
+     * @return The pool
+     */
+    private synchronized ExecutorService getExecutor( )
+    {
+        if ( _executor == null )
+        {
+            int nNbThreads = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_NB_THREADS, DEFAULT_NB_THREADS ) );
+            AtomicInteger nThreadNumber = new AtomicInteger( );
+            ThreadPoolExecutor executor = new ThreadPoolExecutor( nNbThreads, nNbThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>( ), runnable -> {
+                Thread thread = new Thread( runnable, CONSTANT_THREAD_NAME + nThreadNumber.incrementAndGet( ) );
+                thread.setDaemon( true );
+                return thread;
+            } );
+            executor.allowCoreThreadTimeOut( true );
+            _executor = executor;
+        }
+
+        return _executor;
+    }
+}
@@ -1,8 +1,11 @@
 package fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver;
 
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.ArchivalJob;
 import fr.paris.lutece.plugins.workflow.modules.archive.ArchivalType;
 import fr.paris.lutece.plugins.workflow.modules.archive.IResourceArchiver;
 import fr.paris.lutece.plugins.workflow.modules.archive.service.IArchiveProcessingService;
@@ -12,6 +15,8 @@ public class WorkflowAppointmentResourceArchiver implements IResourceArchiver {
 	
 	public static final String BEAN_NAME = "workflow-appointment.workflowAppointmentResourceArchiver";
 	
+	private static final String JOB_CODE_WORKFLOW = ".workflow.";
+	
 	@Inject
     @Named( WorkflowAppointmentAnonymizeArchiveProcessingService.BEAN_NAME )
     private IArchiveProcessingService _anonymizeArchiveProcessingService;
@@ -19,6 +24,10 @@ public class WorkflowAppointmentResourceArchiver implements IResourceArchiver {
 	@Inject
     @Named( WorkflowAppointmentDeleteArchiveProcessingService.BEAN_NAME )
     private IArchiveProcessingService _deleteArchiveProcessingService;
+	
+	@Inject
+    @Named( ArchivalJobService.BEAN_NAME )
+    private ArchivalJobService _archivalJobService;
 
 	@Override
 	public void archiveResource(ArchivalType archivalType, ResourceWorkflow resourceWorkflow) {
@@ -35,6 +44,25 @@ public class WorkflowAppointmentResourceArchiver implements IResourceArchiver {
         }
 	}
 
+	/**
+	 * Archive a batch of resources in the archival job of the archiver. The resources are partitioned by form and archived in parallel, and the job resumes
+	 * from its last checkpoint if its previous run was interrupted. This bulk entry point is not part of IResourceArchiver : the archive daemon of the
+	 * workflow archives resources one at a time, and the bulk archival is run by WorkflowAppointmentArchivalDaemon. Each workflow has its own job, so that the
+	 * checkpoint of a workflow never skips the resources of another one.
+	 * 
+	 * @param nIdWorkflow
+	 *            The id of the workflow of the resources
+	 * @param archivalType
+	 *            The archival type
+	 * @param listResourceWorkflow
+	 *            The resources
+	 * @return The job, or null if the job is already running
+	 */
+	public ArchivalJob archiveResources( int nIdWorkflow, ArchivalType archivalType, List<ResourceWorkflow> listResourceWorkflow )
+	{
+		return _archivalJobService.run( BEAN_NAME + JOB_CODE_WORKFLOW + nIdWorkflow, archivalType, listResourceWorkflow );
+	}
+
 	@Override
 	public String getBeanName()
 	{
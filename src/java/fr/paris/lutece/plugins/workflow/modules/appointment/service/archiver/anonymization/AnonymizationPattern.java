@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver.anonymization;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.user.User;
+
+/**
+ * Compiled anonymization pattern of a form. A pattern is made of literal text and of the patterns of the anonymization services, for instance
+ * <code>anon-%f-%n</code>. The pattern is parsed once into literal and generator segments, and each anonymized value is generated in a single pass over the
+ * segments.
+ */
+public final class AnonymizationPattern
+{
+    private final String _strPattern;
+    private final Segment [ ] _segments;
+
+    /**
+     * Constructor
+     * 
+     * @param strPattern
+     *            The pattern
+     * @param listSegments
+     *            The segments of the pattern
+     */
+    private AnonymizationPattern( String strPattern, List<Segment> listSegments )
+    {
+        _strPattern = strPattern;
+        _segments = listSegments.toArray( new Segment [ listSegments.size( )] );
+    }
+
+    /**
+     * Compile a pattern. When several service patterns start at the same position, the longest one is used.
+     * 
+     * @param strPattern
+     *            The pattern
+     * @param collectionServices
+     *            The anonymization services
+     * @return The compiled pattern, or null if the pattern does not use any anonymization service
+     */
+    public static AnonymizationPattern compile( String strPattern, Collection<IAnonymizationService> collectionServices )
+    {
+        if ( strPattern == null )
+        {
+            return null;
+        }
+
+        List<IAnonymizationService> listServices = new ArrayList<>( collectionServices.size( ) );
+        for ( IAnonymizationService service : collectionServices )
+        {
+            if ( service.getPattern( ) != null && !service.getPattern( ).isEmpty( ) )
+            {
+                listServices.add( service );
+            }
+        }
+        listServices.sort( Comparator.comparingInt( ( IAnonymizationService service ) -> service.getPattern( ).length( ) ).reversed( ) );
+
+        List<Segment> listSegments = new ArrayList<>( );
+        StringBuilder sbLiteral = new StringBuilder( );
+        boolean bGenerator = false;
+        int nIndex = 0;
+
+        while ( nIndex < strPattern.length( ) )
+        {
+            IAnonymizationService service = findService( strPattern, nIndex, listServices );
+
+            if ( service == null )
+            {
+                sbLiteral.append( strPattern.charAt( nIndex ) );
+                nIndex++;
+            }
+            else
+            {
+                addLiteral( listSegments, sbLiteral );
+                listSegments.add( ( sb, form ) -> sb.append( service.getAnonymisedValue( form ) ) );
+                bGenerator = true;
+                nIndex += service.getPattern( ).length( );
+            }
+        }
+        addLiteral( listSegments, sbLiteral );
+
+        return bGenerator ? new AnonymizationPattern( strPattern, listSegments ) : null;
+    }
+
+    /**
+     * Get the source of the pattern
+     * 
+     * @return The pattern
+     */
+    public String getPattern( )
+    {
+        return _strPattern;
+    }
+
+    /**
+     * Generate an anonymized value
+     * 
+     * @param form
+     *            The form of the anonymized appointment
+     * @return The anonymized value
+     */
+    public String generate( Form form )
+    {
+        return generate( new StringBuilder( ), form );
+    }
+
+    /**
+     * Anonymize the first name, the last name and the email of a user
+     * 
+     * @param user
+     *            The user
+     * @param form
+     *            The form of the anonymized appointment
+     */
+    public void anonymizeUser( User user, Form form )
+    {
+        StringBuilder sb = new StringBuilder( );
+        user.setFirstName( generate( sb, form ) );
+        user.setLastName( generate( sb, form ) );
+        user.setEmail( generate( sb, form ) );
+    }
+
+    /**
+     * Generate an anonymized value in a buffer
+     * 
+     * @param sb
+     *            The buffer, emptied by this method
+     * @param form
+     *            The form of the anonymized appointment
+     * @return The anonymized value
+     */
+    private String generate( StringBuilder sb, Form form )
+    {
+        sb.setLength( 0 );
+        for ( Segment segment : _segments )
+        {
+            segment.append( sb, form );
+        }
+
+        return sb.toString( );
+    }
+
+    /**
+     * Find the anonymization service whose pattern starts at a position
+     * 
+     * @param strPattern
+     *            The pattern
+     * @param nIndex
+     *            The position
+     * @param listServices
+     *            The anonymization services with a pattern, from the longest pattern to the shortest
+     * @return The anonymization service, or null if no service pattern starts at this position
+     */
+    private static IAnonymizationService findService( String strPattern, int nIndex, List<IAnonymizationService> listServices )
+    {
+        for ( IAnonymizationService service : listServices )
+        {
+            if ( strPattern.startsWith( service.getPattern( ), nIndex ) )
+            {
+                return service;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Add the pending literal text as a segment
+     * 
+     * @param listSegments
+     *            The segments
+     * @param sbLiteral
+     *            The pending literal text, emptied by this method
+     */
+    private static void addLiteral( List<Segment> listSegments, StringBuilder sbLiteral )
+    {
+        if ( sbLiteral.length( ) > 0 )
+        {
+            String strLiteral = sbLiteral.toString( );
+            listSegments.add( ( sb, form ) -> sb.append( strLiteral ) );
+            sbLiteral.setLength( 0 );
+        }
+    }
+
+    /**
+     * Segment of a compiled pattern
+     */
+    @FunctionalInterface
+    private interface Segment
+    {
+        /**
+         * Append the segment to the generated value
+         * 
+         * @param sb
+         *            The generated value
+         * @param form
+         *            The form of the anonymized appointment
+         */
+        void append( StringBuilder sb, Form form );
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver.anonymization;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppException;
+
+/**
+ * Registry of the anonymization services, by pattern. The registry is built once when the Spring context is refreshed, instead of looking up the beans for
+ * each anonymized appointment. Two anonymization services can not have the same pattern. The registry also keeps the compiled anonymization patterns of the
+ * forms.
+ */
+public class AnonymizationServiceRegistry implements ApplicationListener<ContextRefreshedEvent>
+{
+    /**
+     * The name of the bean of the registry
+     */
+    public static final String BEAN_NAME = "workflow-appointment.anonymizationServiceRegistry";
+
+    // messages
+    private static final String MSG_DUPLICATE_PATTERN = "The anonymization services %s and %s have the same pattern %s";
+
+    private volatile Map<String, IAnonymizationService> _mapServices;
+    private volatile Map<String, Optional<AnonymizationPattern>> _mapCompiledPatterns = new ConcurrentHashMap<>( );
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onApplicationEvent( ContextRefreshedEvent event )
+    {
+        _mapServices = buildRegistry( event.getApplicationContext( ).getBeansOfType( IAnonymizationService.class ).values( ) );
+        _mapCompiledPatterns = new ConcurrentHashMap<>( );
+    }
+
+    /**
+     * Get the anonymization service of a pattern
+     * 
+     * @param strPattern
+     *            The pattern
+     * @return The anonymization service, or null if no service has this pattern
+     */
+    public IAnonymizationService getService( String strPattern )
+    {
+        if ( strPattern == null )
+        {
+            return null;
+        }
+
+        return getServices( ).get( strPattern );
+    }
+
+    /**
+     * Get the compiled anonymization pattern of a form. Patterns are compiled once, and kept until the context is refreshed.
+     * 
+     * @param strPattern
+     *            The anonymization pattern of the form
+     * @return The compiled pattern, or null if the pattern does not use any anonymization service
+     */
+    public AnonymizationPattern getCompiledPattern( String strPattern )
+    {
+        if ( strPattern == null )
+        {
+            return null;
+        }
+
+        return _mapCompiledPatterns
+                .computeIfAbsent( strPattern, strKey -> Optional.ofNullable( AnonymizationPattern.compile( strKey, getServices( ).values( ) ) ) )
+                .orElse( null );
+    }
+
+    /**
+     * Get the anonymization services by pattern
+     * 
+     * @return The anonymization services by pattern
+     */
+    public Map<String, IAnonymizationService> getServices( )
+    {
+        Map<String, IAnonymizationService> mapServices = _mapServices;
+
+        if ( mapServices == null )
+        {
+            // The context was not refreshed since the registry was created
+            mapServices = buildRegistry( SpringContextService.getBeansOfType( IAnonymizationService.class ) );
+            _mapServices = mapServices;
+        }
+
+        return mapServices;
+    }
+
+    /**
+     * Build the registry
+     * 
+     * @param collectionServices
+     *            The anonymization services
+     * @return The anonymization services by pattern
+     * @throws AppException
+     *             If two services have the same pattern
+     */
+    private static Map<String, IAnonymizationService> buildRegistry( Collection<IAnonymizationService> collectionServices )
+    {
+        Map<String, IAnonymizationService> mapServices = new HashMap<>( );
+
+        for ( IAnonymizationService service : collectionServices )
+        {
+            IAnonymizationService previousService = mapServices.putIfAbsent( service.getPattern( ), service );
+
+            if ( previousService != null )
+            {
+                throw new AppException( String.format( MSG_DUPLICATE_PATTERN, previousService.getBeanName( ), service.getBeanName( ), service.getPattern( ) ) );
+            }
+        }
+
+        return Collections.unmodifiableMap( mapServices );
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver.anonymization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.paris.lutece.plugins.genericattributes.business.Entry;
+import fr.paris.lutece.plugins.genericattributes.business.EntryHome;
+import fr.paris.lutece.plugins.genericattributes.business.Response;
+import fr.paris.lutece.plugins.genericattributes.service.anonymization.IEntryAnonymizationType;
+import fr.paris.lutece.plugins.genericattributes.service.entrytype.EntryTypeServiceManager;
+import fr.paris.lutece.plugins.genericattributes.service.entrytype.IEntryTypeService;
+
+/**
+ * Cache of the entries used to anonymize responses, by id of entry. Each entry is kept with its type service and its anonymization wildcards, so that they
+ * are loaded once per archival instead of once per response. A cache must only live as long as an archival : it does not see the changes made to the
+ * entries afterwards. It can be shared by the threads of an archival.
+ */
+public class EntryAnonymizationCache
+{
+    private final Map<Integer, Optional<EntryAnonymization>> _mapEntries = new ConcurrentHashMap<>( );
+
+    /**
+     * Get an entry with its type service and its anonymization wildcards
+     * 
+     * @param nIdEntry
+     *            The id of the entry
+     * @return The entry, or null if it was not found
+     */
+    public EntryAnonymization getEntry( int nIdEntry )
+    {
+        return _mapEntries.computeIfAbsent( nIdEntry, nId -> Optional.ofNullable( loadEntry( nId ) ) ).orElse( null );
+    }
+
+    /**
+     * Anonymize a response with the wildcards of its entry. The entry of the response is replaced by the cached entry.
+     * 
+     * @param response
+     *            The response, whose entry holds at least its id
+     * @return True if the response was anonymized, false if its entry was not found
+     */
+    public boolean anonymizeResponse( Response response )
+    {
+        EntryAnonymization entryAnonymization = getEntry( response.getEntry( ).getIdEntry( ) );
+        if ( entryAnonymization == null )
+        {
+            return false;
+        }
+
+        Entry entry = entryAnonymization.getEntry( );
+        response.setEntry( entry );
+        boolean bFirst = true;
+        for ( IEntryAnonymizationType wildcard : entryAnonymization.getWildcards( ) )
+        {
+            wildcard.getAnonymisationTypeService( ).anonymizeResponse( entry, response, bFirst );
+            bFirst = false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the number of entries in the cache
+     * 
+     * @return The number of entries
+     */
+    public int size( )
+    {
+        return _mapEntries.size( );
+    }
+
+    /**
+     * Load an entry with its type service and its anonymization wildcards
+     * 
+     * @param nIdEntry
+     *            The id of the entry
+     * @return The entry, or null if it was not found
+     */
+    private static EntryAnonymization loadEntry( int nIdEntry )
+    {
+        Entry entry = EntryHome.findByPrimaryKey( nIdEntry );
+        if ( entry == null )
+        {
+            return null;
+        }
+
+        IEntryTypeService entryTypeService = EntryTypeServiceManager.getEntryTypeService( entry );
+        List<IEntryAnonymizationType> listWildcards = ( entryTypeService != null ) ? entryTypeService.getValidWildcards( ) : null;
+
+        return new EntryAnonymization( entry, entryTypeService,
+                ( listWildcards != null ) ? Collections.unmodifiableList( new ArrayList<>( listWildcards ) ) : Collections.emptyList( ) );
+    }
+
+    /**
+     * Entry with its type service and its anonymization wildcards
+     */
+    public static final class EntryAnonymization
+    {
+        private final Entry _entry;
+        private final IEntryTypeService _entryTypeService;
+        private final List<IEntryAnonymizationType> _listWildcards;
+
+        /**
+         * Constructor
+         * 
+         * @param entry
+         *            The entry
+         * @param entryTypeService
+         *            The type service of the entry
+         * @param listWildcards
+         *            The anonymization wildcards of the entry
+         */
+        EntryAnonymization( Entry entry, IEntryTypeService entryTypeService, List<IEntryAnonymizationType> listWildcards )
+        {
+            _entry = entry;
+            _entryTypeService = entryTypeService;
+            _listWildcards = listWildcards;
+        }
+
+        /**
+         * Get the entry
+         * 
+         * @return The entry
+         */
+        public Entry getEntry( )
+        {
+            return _entry;
+        }
+
+        /**
+         * Get the type service of the entry
+         * 
+         * @return The type service
+         */
+        public IEntryTypeService getEntryTypeService( )
+        {
+            return _entryTypeService;
+        }
+
+        /**
+         * Get the anonymization wildcards of the entry
+         * 
+         * @return The wildcards
+         */
+        public List<IEntryAnonymizationType> getWildcards( )
+        {
+            return _listWildcards;
+        }
+    }
+}
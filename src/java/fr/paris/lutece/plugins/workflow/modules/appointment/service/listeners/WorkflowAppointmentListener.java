@@ -34,8 +34,11 @@
 package fr.paris.lutece.plugins.workflow.modules.appointment.service.listeners;
 
 import fr.paris.lutece.plugins.appointment.service.listeners.IAppointmentListener;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.BulkAnonymizationHome;
 import fr.paris.lutece.plugins.workflow.modules.appointment.business.ManualAppointmentNotificationHistoryHome;
 import fr.paris.lutece.plugins.workflow.modules.appointment.business.UpdateAdminAppointmentHistoryHome;
+import fr.paris.lutece.plugins.workflow.modules.appointment.service.AgentCalendarFeedService;
+import fr.paris.lutece.plugins.workflow.modules.appointment.service.CrmDemandCacheService;
 
 import java.util.List;
 import java.util.Locale;
@@ -53,6 +56,9 @@ public class WorkflowAppointmentListener implements IAppointmentListener
     {
         ManualAppointmentNotificationHistoryHome.deleteByIdAppointment( nIdAppointment );
         UpdateAdminAppointmentHistoryHome.deleteByIdAppointment( nIdAppointment );
+        AgentCalendarFeedService.getInstance( ).appointmentRemoved( nIdAppointment );
+        CrmDemandCacheService.getInstance( ).removeByIdAppointment( nIdAppointment );
+        BulkAnonymizationHome.removeAnonymizedAppointment( nIdAppointment );
     }
 
     /**
@@ -61,19 +67,19 @@ public class WorkflowAppointmentListener implements IAppointmentListener
     @Override
     public String appointmentDateChanged( int nIdAppointment, List<Integer> listIdSlot, Locale locale )
     {
-        // Do nothing
+        AgentCalendarFeedService.getInstance( ).appointmentChanged( nIdAppointment );
         return null;
     }
 
     @Override
     public void notifyAppointmentCreated( int nIdAppointment )
     {
-        // Do nothing
+        AgentCalendarFeedService.getInstance( ).appointmentChanged( nIdAppointment );
     }
 
     @Override
     public void notifyAppointmentUpdated( int nIdAppointment )
     {
-        // Do nothing
+        AgentCalendarFeedService.getInstance( ).appointmentChanged( nIdAppointment );
     }
 }
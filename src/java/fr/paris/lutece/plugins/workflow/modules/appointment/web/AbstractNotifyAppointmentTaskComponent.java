@@ -48,6 +48,7 @@ import org.apache.commons.lang3.StringUtils;
 import fr.paris.lutece.plugins.workflow.modules.appointment.business.NotifyAppointmentDTO;
 import fr.paris.lutece.plugins.workflow.modules.appointment.business.TaskNotifyAdminAppointmentConfig;
 import fr.paris.lutece.plugins.workflow.modules.appointment.business.TaskNotifyAppointmentConfig;
+import fr.paris.lutece.plugins.workflow.modules.appointment.service.TimeZoneCacheService;
 import fr.paris.lutece.plugins.workflow.utils.WorkflowUtils;
 import fr.paris.lutece.plugins.workflow.web.task.NoFormTaskComponent;
 import fr.paris.lutece.plugins.workflowcore.business.action.Action;
@@ -83,12 +84,14 @@ public abstract class AbstractNotifyAppointmentTaskComponent extends NoFormTaskC
     private static final String MARK_NOTIFY_ADMIN = "notify_admin";
     private static final String MARK_LIST_ADMIN_USERS = "list_admin_users";
     private static final String MARK_DEFAULT_SENDER_NAME = "default_sender_name";
+    private static final String MARK_LIST_TIME_ZONES = "list_time_zones";
 
     // PARAMETERS
     private static final String PARAMETER_SUBJECT = "subject";
     private static final String PARAMETER_MESSAGE = "message";
     private static final String PARAMETER_SEND_SMS = "send_sms";
     private static final String PARAMETER_LOCATION = "location";
+    private static final String PARAMETER_TIME_ZONE_ID = "time_zone_id";
     private static final String PARAMETER_SENDER_NAME = "sender_name";
     private static final String PARAMETER_SENDER_EMAIL = "sender_email";
     private static final String PARAMETER_CREATE_NOTIF = "create_notif";
@@ -191,6 +194,7 @@ public abstract class AbstractNotifyAppointmentTaskComponent extends NoFormTaskC
         model.put( MARK_WEBAPP_URL, AppPathService.getBaseUrl( request ) );
         model.put( MARK_LOCALE, locale );
         model.put( MARK_LIST_ACTIONS, refListActions );
+        model.put( MARK_LIST_TIME_ZONES, getTimeZonesList( ) );
 
         HtmlTemplate template = AppTemplateService.getTemplate( TEMPLATE_TASK_NOTIFY_APPOINTMENT_CONFIG, locale, model );
 
@@ -222,6 +226,7 @@ public abstract class AbstractNotifyAppointmentTaskComponent extends NoFormTaskC
         String strRecipientsBcc = request.getParameter( PARAMETER_RECIPIENTS_BCC );
         boolean bSendICalNotif = Boolean.parseBoolean( request.getParameter( PARAMETER_SEND_ICAL_NOTIF ) );
         String strLocation = request.getParameter( PARAMETER_LOCATION );
+        String strTimeZoneId = request.getParameter( PARAMETER_TIME_ZONE_ID );
         String strError = StringUtils.EMPTY;
 
         if ( StringUtils.isBlank( strSenderName ) )
@@ -275,6 +280,10 @@ public abstract class AbstractNotifyAppointmentTaskComponent extends NoFormTaskC
             config.setIdTask( task.getId( ) );
             bCreate = true;
         }
+        else
+        {
+            config = config.mutableCopy( );
+        }
 
         config.setMessage( strMessage );
         config.setSenderEmail( strSenderEmail );
@@ -284,6 +293,9 @@ public abstract class AbstractNotifyAppointmentTaskComponent extends NoFormTaskC
         config.setRecipientsBcc( StringUtils.isNotEmpty( strRecipientsBcc ) ? strRecipientsBcc : StringUtils.EMPTY );
         config.setSendICalNotif( bSendICalNotif );
         config.setLocation( strLocation );
+        config.setTimeZoneId( StringUtils.isNotBlank( strTimeZoneId ) && TimeZoneCacheService.getInstance( ).getTimeZoneIds( ).contains( strTimeZoneId )
+                ? strTimeZoneId
+                : null );
 
         if ( bSendICalNotif )
         {
@@ -349,4 +361,22 @@ public abstract class AbstractNotifyAppointmentTaskComponent extends NoFormTaskC
 
         return null;
     }
+
+    /**
+     * Get the list of the available time zones
+     * 
+     * @return The list of the available time zones, starting with an empty item for the time zone of the server
+     */
+    private static ReferenceList getTimeZonesList( )
+    {
+        ReferenceList refListTimeZones = new ReferenceList( );
+        refListTimeZones.addItem( StringUtils.EMPTY, StringUtils.EMPTY );
+
+        for ( String strTimeZoneId : TimeZoneCacheService.getInstance( ).getTimeZoneIds( ) )
+        {
+            refListTimeZones.addItem( strTimeZoneId, strTimeZoneId );
+        }
+
+        return refListTimeZones;
+    }
 }
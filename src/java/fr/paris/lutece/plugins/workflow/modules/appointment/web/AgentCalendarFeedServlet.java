@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.workflow.modules.appointment.service.AgentCalendarFeed;
+import fr.paris.lutece.plugins.workflow.modules.appointment.service.AgentCalendarFeedService;
+import fr.paris.lutece.portal.service.util.CryptoService;
+import fr.paris.lutece.util.url.UrlItem;
+
+/**
+ * Servlet serving the iCalendar feed of the upcoming appointments of an agent. Links to the feed are signed, and conditional requests are answered with the
+ * entity tag of the feed in cache, so that calendar clients polling the feed do not regenerate it.
+ */
+public class AgentCalendarFeedServlet extends HttpServlet
+{
+    private static final long serialVersionUID = -3170457327893152618L;
+
+    // Parameters
+    private static final String PARAMETER_ID_ADMIN_USER = "id_admin_user";
+    private static final String PARAMETER_KEY = "key";
+
+    // Servlet URL
+    private static final String SERVLET_URL_AGENT_CALENDAR_FEED = "servlet/plugins/workflow/appointment/agentCalendar";
+
+    // Headers
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+
+    // Constants
+    private static final String DEFAULT_ENCRYPTION_ALGO = "SHA-256";
+    private static final String CONSTANT_KEY_PREFIX = "agentCalendar";
+    private static final String CONSTANT_CONTENT_TYPE = "text/calendar; charset=UTF-8";
+    private static final String CONSTANT_CACHE_CONTROL = "private, no-cache";
+    private static final String CONSTANT_ANY_ETAG = "*";
+    private static final String CONSTANT_ETAG_SEPARATOR = ",";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doGet( HttpServletRequest request, HttpServletResponse response ) throws IOException
+    {
+        String strIdAdminUser = request.getParameter( PARAMETER_ID_ADMIN_USER );
+        String strKey = request.getParameter( PARAMETER_KEY );
+
+        if ( StringUtils.isEmpty( strIdAdminUser ) || !StringUtils.isNumeric( strIdAdminUser ) || StringUtils.isEmpty( strKey )
+                || strIdAdminUser.length( ) > 9 )
+        {
+            response.sendError( HttpServletResponse.SC_FORBIDDEN );
+
+            return;
+        }
+
+        int nIdAdminUser = Integer.parseInt( strIdAdminUser );
+        if ( !MessageDigest.isEqual( computeAuthenticationKey( nIdAdminUser ).getBytes( StandardCharsets.UTF_8 ), strKey.getBytes( StandardCharsets.UTF_8 ) ) )
+        {
+            response.sendError( HttpServletResponse.SC_FORBIDDEN );
+
+            return;
+        }
+
+        AgentCalendarFeed feed = AgentCalendarFeedService.getInstance( ).getFeed( nIdAdminUser );
+        response.setHeader( HEADER_ETAG, feed.getETag( ) );
+        response.setHeader( HEADER_CACHE_CONTROL, CONSTANT_CACHE_CONTROL );
+
+        if ( matchesETag( request.getHeader( HEADER_IF_NONE_MATCH ), feed.getETag( ) ) )
+        {
+            response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+
+            return;
+        }
+
+        byte [ ] content = feed.getContent( );
+        response.setContentType( CONSTANT_CONTENT_TYPE );
+        response.setContentLength( content.length );
+        try ( OutputStream outputStream = response.getOutputStream( ) )
+        {
+            outputStream.write( content );
+        }
+    }
+
+    /**
+     * Get the URL of the iCalendar feed of an agent
+     * 
+     * @param strBaseURL
+     *            The base URL to use
+     * @param nIdAdminUser
+     *            The id of the admin user of the agent
+     * @return The URL
+     */
+    public static String getAgentCalendarFeedUrl( String strBaseURL, int nIdAdminUser )
+    {
+        UrlItem urlItem = new UrlItem( strBaseURL + SERVLET_URL_AGENT_CALENDAR_FEED );
+        urlItem.addParameter( PARAMETER_ID_ADMIN_USER, nIdAdminUser );
+        urlItem.addParameter( PARAMETER_KEY, computeAuthenticationKey( nIdAdminUser ) );
+
+        return urlItem.getUrl( );
+    }
+
+    /**
+     * Check if an If-None-Match header matches the entity tag of the feed
+     * 
+     * @param strIfNoneMatch
+     *            The value of the header
+     * @param strETag
+     *            The entity tag of the feed
+     * @return True if the client already has the feed
+     */
+    private static boolean matchesETag( String strIfNoneMatch, String strETag )
+    {
+        if ( strIfNoneMatch == null )
+        {
+            return false;
+        }
+
+        for ( String strClientETag : strIfNoneMatch.split( CONSTANT_ETAG_SEPARATOR ) )
+        {
+            String strTrimmedETag = strClientETag.trim( );
+            if ( CONSTANT_ANY_ETAG.equals( strTrimmedETag ) || strETag.equals( strTrimmedETag ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Compute the authentication key of the feed of an agent. The key does not expire, since calendar clients keep polling the same URL.
+     * 
+     * @param nIdAdminUser
+     *            The id of the admin user of the agent
+     * @return The authentication key
+     */
+    private static String computeAuthenticationKey( int nIdAdminUser )
+    {
+        return CryptoService.encrypt( CONSTANT_KEY_PREFIX + nIdAdminUser + CryptoService.getCryptoKey( ), DEFAULT_ENCRYPTION_ALGO );
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.web;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.ArchivalJob;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.ArchivalJobHome;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.portal.util.mvc.admin.MVCAdminJspBean;
+import fr.paris.lutece.portal.util.mvc.admin.annotations.Controller;
+import fr.paris.lutece.portal.util.mvc.commons.annotations.View;
+
+/**
+ * Back office page displaying the progress of the archival jobs : throughput, estimated time remaining and errors
+ */
+@Controller( controllerJsp = "ManageArchivalJobs.jsp", controllerPath = "jsp/admin/plugins/workflow/modules/appointment/", right = ArchivalJobJspBean.RIGHT_MANAGE_ARCHIVAL_JOBS )
+public class ArchivalJobJspBean extends MVCAdminJspBean
+{
+    /**
+     * Right to manage the archival jobs
+     */
+    public static final String RIGHT_MANAGE_ARCHIVAL_JOBS = "WORKFLOW_APPOINTMENT_ARCHIVAL_JOBS";
+
+    private static final long serialVersionUID = 1L;
+
+    // templates
+    private static final String TEMPLATE_MANAGE_ARCHIVAL_JOBS = "admin/plugins/workflow/modules/appointment/manage_archival_jobs.html";
+
+    // views
+    private static final String VIEW_MANAGE_ARCHIVAL_JOBS = "manageArchivalJobs";
+
+    // properties
+    private static final String PROPERTY_PAGE_TITLE_MANAGE_ARCHIVAL_JOBS = "module.workflow.appointment.manage_archival_jobs.pageTitle";
+    private static final String PROPERTY_NB_JOBS_DISPLAYED = "workflow-appointment.archive.nbJobsDisplayed";
+
+    // marks
+    private static final String MARK_JOBS_LIST = "jobs_list";
+    private static final String MARK_STATUS_COMPLETED = "status_completed";
+
+    // constants
+    private static final int DEFAULT_NB_JOBS_DISPLAYED = 50;
+
+    /**
+     * Get the page listing the last archival jobs
+     * 
+     * @param request
+     *            The request
+     * @return The page
+     */
+    @View( value = VIEW_MANAGE_ARCHIVAL_JOBS, defaultView = true )
+    public String getManageArchivalJobs( HttpServletRequest request )
+    {
+        Map<String, Object> model = getModel( );
+        model.put( MARK_JOBS_LIST, ArchivalJobHome.findLastJobs( AppPropertiesService.getPropertyInt( PROPERTY_NB_JOBS_DISPLAYED, DEFAULT_NB_JOBS_DISPLAYED ) ) );
+        model.put( MARK_STATUS_COMPLETED, ArchivalJob.STATUS_COMPLETED );
+
+        return getPage( PROPERTY_PAGE_TITLE_MANAGE_ARCHIVAL_JOBS, TEMPLATE_MANAGE_ARCHIVAL_JOBS, model );
+    }
+}
@@ -134,6 +134,10 @@ public class ChangeAppointmentStatusTaskComponent extends NoFormTaskComponent
             config.setIdTask( task.getId( ) );
             bCreate = true;
         }
+        else
+        {
+            config = config.mutableCopy( );
+        }
 
         config.setAppointmentStatus( nAppointmentStatus );
 
@@ -117,6 +117,10 @@ public class NotifyCrmTaskComponent extends NoFormTaskComponent
             config.setIdTask( task.getId( ) );
             bCreate = true;
         }
+        else
+        {
+            config = config.mutableCopy( );
+        }
 
         config.setDemandeType( strDemandeType );
         config.setData( strData );
@@ -154,6 +154,10 @@ public class UpdateAppointmentCancelActionTaskComponent extends NoFormTaskCompon
             config = new TaskUpdateAppointmentCancelActionConfig( );
             config.setIdTask( task.getId( ) );
         }
+        else
+        {
+            config = config.mutableCopy( );
+        }
 
         String strIdActionCancel = request.getParameter( PARAMETER_ID_ACTION_CANCEL );
         String strIdActionReport = request.getParameter( PARAMETER_ID_ACTION_REPORT );
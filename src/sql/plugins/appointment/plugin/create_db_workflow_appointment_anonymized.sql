@@ -0,0 +1,10 @@
+--
+-- Anonymization marks of the module workflow-appointment.
+-- The table is written in the transactions of the appointment plugin, so it is created
+-- on the connection pool of the appointment plugin rather than on the pool of the module.
+--
+CREATE TABLE IF NOT EXISTS workflow_appointment_anonymized(
+  id_appointment INT NOT NULL,
+  date_anonymized TIMESTAMP NULL,
+  PRIMARY KEY  (id_appointment)
+);
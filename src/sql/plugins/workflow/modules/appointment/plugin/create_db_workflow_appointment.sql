@@ -5,6 +5,12 @@ DROP TABLE IF EXISTS workflow_task_notify_admin_appointment_cf;
 DROP TABLE IF EXISTS workflow_task_update_appointment_cancel_cf;
 DROP TABLE IF EXISTS workflow_task_update_admin_appointment;
 DROP TABLE IF EXISTS workflow_task_notify_appointment_crm;
+DROP TABLE IF EXISTS workflow_appointment_notify_outbox;
+DROP TABLE IF EXISTS workflow_appointment_key_block;
+DROP TABLE IF EXISTS workflow_appointment_key_base;
+DROP TABLE IF EXISTS workflow_appointment_crm_queue;
+DROP TABLE IF EXISTS workflow_appointment_crm_demand;
+DROP TABLE IF EXISTS workflow_appointment_archival_job;
 
 
 CREATE TABLE workflow_task_notify_appointment_cf(
@@ -20,6 +26,7 @@ CREATE TABLE workflow_task_notify_appointment_cf(
   create_notif SMALLINT DEFAULT 0,
   location VARCHAR(255) DEFAULT '' NOT NULL,
   is_sms SMALLINT DEFAULT 0,
+  time_zone_id VARCHAR(100) DEFAULT NULL,
   PRIMARY KEY  (id_task)
 );
   
@@ -55,6 +62,7 @@ CREATE TABLE workflow_task_notify_admin_appointment_cf(
   ical_notification SMALLINT DEFAULT 0,
   create_notif SMALLINT DEFAULT 0,
   location VARCHAR(255) DEFAULT '' NOT NULL,
+  time_zone_id VARCHAR(100) DEFAULT NULL,
   PRIMARY KEY  (id_task)
 );
 
@@ -88,3 +96,90 @@ CREATE TABLE workflow_task_notify_appointment_crm(
 );
 
 CREATE INDEX idx_wf_task_update_admin_app ON workflow_task_update_admin_appointment (id_appointment);
+
+CREATE TABLE workflow_appointment_notify_outbox(
+  id_notification INT AUTO_INCREMENT,
+  id_appointment INT DEFAULT NULL,
+  recipient_to VARCHAR(255) DEFAULT NULL,
+  recipients_cc VARCHAR(255) DEFAULT NULL,
+  recipients_bcc VARCHAR(255) DEFAULT NULL,
+  sender_name VARCHAR(255) DEFAULT NULL,
+  sender_email VARCHAR(255) DEFAULT NULL,
+  subject long VARCHAR DEFAULT NULL,
+  content long VARCHAR DEFAULT NULL,
+  ical_notification SMALLINT DEFAULT 0,
+  create_notif SMALLINT DEFAULT 0,
+  ical_content long VARCHAR DEFAULT NULL,
+  status SMALLINT DEFAULT 0 NOT NULL,
+  nb_attempts INT DEFAULT 0 NOT NULL,
+  date_creation TIMESTAMP NULL,
+  date_next_attempt TIMESTAMP NULL,
+  claim_token VARCHAR(50) DEFAULT NULL,
+  date_claim TIMESTAMP NULL,
+  PRIMARY KEY  (id_notification)
+);
+
+CREATE INDEX idx_wf_app_notify_outbox ON workflow_appointment_notify_outbox (status, date_next_attempt);
+
+CREATE TABLE workflow_appointment_key_block(
+  id_block INT AUTO_INCREMENT,
+  sequence_name VARCHAR(100) NOT NULL,
+  PRIMARY KEY  (id_block)
+);
+
+CREATE TABLE workflow_appointment_key_base(
+  sequence_name VARCHAR(100) NOT NULL,
+  base_key INT DEFAULT 0 NOT NULL,
+  PRIMARY KEY  (sequence_name)
+);
+
+CREATE TABLE workflow_appointment_crm_queue(
+  id_call INT AUTO_INCREMENT,
+  id_appointment INT DEFAULT NULL,
+  user_guid VARCHAR(255) DEFAULT NULL,
+  demand_type VARCHAR(255) DEFAULT NULL,
+  id_status_crm VARCHAR(255) DEFAULT NULL,
+  status_text VARCHAR(255) DEFAULT NULL,
+  data long VARCHAR DEFAULT NULL,
+  id_demand VARCHAR(255) DEFAULT NULL,
+  notify_object VARCHAR(255) DEFAULT NULL,
+  notify_message long VARCHAR DEFAULT NULL,
+  notify_sender VARCHAR(255) DEFAULT NULL,
+  status SMALLINT DEFAULT 0 NOT NULL,
+  nb_attempts INT DEFAULT 0 NOT NULL,
+  date_creation TIMESTAMP NULL,
+  date_next_attempt TIMESTAMP NULL,
+  claim_token VARCHAR(50) DEFAULT NULL,
+  date_claim TIMESTAMP NULL,
+  PRIMARY KEY  (id_call)
+);
+
+CREATE INDEX idx_wf_app_crm_queue ON workflow_appointment_crm_queue (status, date_next_attempt);
+CREATE INDEX idx_wf_app_crm_queue_user ON workflow_appointment_crm_queue (user_guid, id_call);
+
+CREATE TABLE workflow_appointment_crm_demand(
+  id_appointment INT NOT NULL,
+  demand_type VARCHAR(255) NOT NULL,
+  id_demand VARCHAR(255) NOT NULL,
+  PRIMARY KEY  (id_appointment, demand_type)
+);
+
+CREATE TABLE workflow_appointment_archival_job(
+  id_job INT AUTO_INCREMENT,
+  job_code VARCHAR(255) NOT NULL,
+  archival_type VARCHAR(50) NOT NULL,
+  status SMALLINT DEFAULT 0 NOT NULL,
+  last_id_resource INT DEFAULT 0 NOT NULL,
+  nb_resources INT DEFAULT 0 NOT NULL,
+  nb_processed INT DEFAULT 0 NOT NULL,
+  nb_skipped INT DEFAULT 0 NOT NULL,
+  nb_failed INT DEFAULT 0 NOT NULL,
+  processing_time BIGINT DEFAULT 0 NOT NULL,
+  date_start TIMESTAMP NULL,
+  date_checkpoint TIMESTAMP NULL,
+  date_end TIMESTAMP NULL,
+  last_error VARCHAR(1024) DEFAULT NULL,
+  PRIMARY KEY  (id_job)
+);
+
+CREATE INDEX idx_wf_app_archival_job ON workflow_appointment_archival_job (job_code, archival_type, status);
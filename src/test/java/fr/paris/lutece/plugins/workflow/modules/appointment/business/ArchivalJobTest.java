@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class ArchivalJobTest extends LuteceTestCase
+{
+    public void testThroughputAndRemainingTime( )
+    {
+        ArchivalJob job = new ArchivalJob( );
+        job.setStatus( ArchivalJob.STATUS_RUNNING );
+        job.setNbResources( 1000 );
+
+        assertEquals( 0d, job.getThroughput( ), 0d );
+        assertEquals( -1, job.getRemainingTime( ) );
+
+        job.setNbProcessed( 400 );
+        job.setProcessingTime( 2000 );
+
+        assertEquals( 200d, job.getThroughput( ), 0.001d );
+        assertEquals( 3, job.getRemainingTime( ) );
+    }
+
+    public void testCompletedJobHasNoRemainingTime( )
+    {
+        ArchivalJob job = new ArchivalJob( );
+        job.setStatus( ArchivalJob.STATUS_COMPLETED );
+        job.setNbResources( 1000 );
+        job.setNbProcessed( 900 );
+        job.setProcessingTime( 1000 );
+
+        assertEquals( 0, job.getRemainingTime( ) );
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.business;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class CrmCallBusinessTest extends LuteceTestCase
+{
+    private static final long ONE_HOUR = 3600000L;
+    private static final int MAX_RESULTS = 1000;
+
+    public void testLaterCallsOfUserWaitForRetry( )
+    {
+        String strUserGuid = "crm-call-test-" + System.nanoTime( );
+        CrmCall first = createCall( strUserGuid );
+        CrmCall second = createCall( strUserGuid );
+
+        try
+        {
+            assertTrue( isToProcess( first ) );
+            assertFalse( isToProcess( second ) );
+            assertFalse( CrmCallHome.hasEarlierCall( first.getIdCall( ) ) );
+            assertTrue( CrmCallHome.hasEarlierCall( second.getIdCall( ) ) );
+
+            // The first call failed and waits for its retry
+            first.setNbAttempts( 1 );
+            first.setDateNextAttempt( new Timestamp( System.currentTimeMillis( ) + ONE_HOUR ) );
+            CrmCallHome.storeAttempt( first );
+            assertFalse( isToProcess( first ) );
+            assertFalse( isToProcess( second ) );
+
+            // The first call reached the maximum number of attempts
+            first.setStatus( CrmCall.STATUS_FAILED );
+            CrmCallHome.storeAttempt( first );
+            assertTrue( isToProcess( second ) );
+            assertFalse( CrmCallHome.hasEarlierCall( second.getIdCall( ) ) );
+        }
+        finally
+        {
+            CrmCallHome.remove( first.getIdCall( ) );
+            CrmCallHome.remove( second.getIdCall( ) );
+        }
+    }
+
+    public void testCallWaitingForRetryIsNotClaimed( )
+    {
+        CrmCall call = createCall( "crm-call-test-" + System.nanoTime( ) );
+
+        try
+        {
+            // The call failed and waits for its retry, while another copy of it is still in a lane
+            call.setNbAttempts( 1 );
+            call.setDateNextAttempt( new Timestamp( System.currentTimeMillis( ) + ONE_HOUR ) );
+            CrmCallHome.storeAttempt( call );
+
+            CrmCallHome.claim( call.getIdCall( ), "token", new Timestamp( System.currentTimeMillis( ) ) );
+            CrmCall callStored = CrmCallHome.findByPrimaryKey( call.getIdCall( ) );
+            assertNull( callStored.getClaimToken( ) );
+            assertEquals( CrmCall.STATUS_PENDING, callStored.getStatus( ) );
+        }
+        finally
+        {
+            CrmCallHome.remove( call.getIdCall( ) );
+        }
+    }
+
+    public void testBatchIsLimited( )
+    {
+        CrmCall first = createCall( "crm-call-test-" + System.nanoTime( ) );
+        CrmCall second = createCall( "crm-call-test-" + System.nanoTime( ) );
+
+        try
+        {
+            assertEquals( 1, CrmCallHome.findCallsToProcess( 1 ).size( ) );
+        }
+        finally
+        {
+            CrmCallHome.remove( first.getIdCall( ) );
+            CrmCallHome.remove( second.getIdCall( ) );
+        }
+    }
+
+    private static CrmCall createCall( String strUserGuid )
+    {
+        Timestamp dateNow = new Timestamp( System.currentTimeMillis( ) - 1000L );
+        CrmCall call = new CrmCall( );
+        call.setUserGuid( strUserGuid );
+        call.setStatus( CrmCall.STATUS_PENDING );
+        call.setDateCreation( dateNow );
+        call.setDateNextAttempt( dateNow );
+        CrmCallHome.create( call );
+
+        return call;
+    }
+
+    private static boolean isToProcess( CrmCall call )
+    {
+        List<CrmCall> listCalls = CrmCallHome.findCallsToProcess( MAX_RESULTS );
+
+        return listCalls.stream( ).anyMatch( callToProcess -> callToProcess.getIdCall( ) == call.getIdCall( ) );
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class AgentCalendarFeedTest extends LuteceTestCase
+{
+    private static final String PRODID = "-//test//EN";
+    private static final long NOW = 1700000000000L;
+    private static final long ONE_HOUR = 3600000L;
+
+    public void testPastEventsAreDropped( )
+    {
+        Map<Integer, AgentCalendarEvent> mapEvents = new HashMap<>( );
+        mapEvents.put( 1, new AgentCalendarEvent( "EVENT-1\r\n", NOW - ONE_HOUR ) );
+        mapEvents.put( 2, new AgentCalendarEvent( "EVENT-2\r\n", NOW + ONE_HOUR ) );
+        AgentCalendarFeed feed = new AgentCalendarFeed( PRODID, mapEvents, NOW );
+
+        assertTrue( feed.hasEventsEndedBefore( NOW ) );
+        AgentCalendarFeed upcomingFeed = feed.withoutEventsEndedBefore( NOW );
+
+        assertEquals( 1, upcomingFeed.getEvents( ).size( ) );
+        assertTrue( upcomingFeed.getEvents( ).containsKey( 2 ) );
+        String strContent = new String( upcomingFeed.getContent( ), StandardCharsets.UTF_8 );
+        assertFalse( strContent.contains( "EVENT-1" ) );
+        assertTrue( strContent.contains( "EVENT-2" ) );
+        assertFalse( feed.getETag( ).equals( upcomingFeed.getETag( ) ) );
+    }
+
+    public void testFeedWithoutPastEventsIsKept( )
+    {
+        Map<Integer, AgentCalendarEvent> mapEvents = new HashMap<>( );
+        mapEvents.put( 1, new AgentCalendarEvent( "EVENT-1\r\n", NOW + ONE_HOUR ) );
+        AgentCalendarFeed feed = new AgentCalendarFeed( PRODID, mapEvents, NOW );
+
+        assertFalse( feed.hasEventsEndedBefore( NOW ) );
+        assertSame( feed, feed.withoutEventsEndedBefore( NOW ) );
+
+        AgentCalendarFeed emptyFeed = new AgentCalendarFeed( PRODID, new HashMap<>( ), NOW );
+        assertSame( emptyFeed, emptyFeed.withoutEventsEndedBefore( NOW ) );
+    }
+
+    public void testETagIgnoresDtstamp( )
+    {
+        Map<Integer, AgentCalendarEvent> mapEvents = new HashMap<>( );
+        mapEvents.put( 1, new AgentCalendarEvent( "BEGIN:VEVENT\r\nDTSTAMP:20231114T221320Z\r\nUID:appointment1\r\nEND:VEVENT\r\n", NOW + ONE_HOUR ) );
+        AgentCalendarFeed feed = new AgentCalendarFeed( PRODID, mapEvents, NOW );
+
+        mapEvents.put( 1, new AgentCalendarEvent( "BEGIN:VEVENT\r\nDTSTAMP:20231114T231320Z\r\nUID:appointment1\r\nEND:VEVENT\r\n", NOW + ONE_HOUR ) );
+        AgentCalendarFeed rebuiltFeed = new AgentCalendarFeed( PRODID, mapEvents, NOW + ONE_HOUR );
+
+        assertFalse( new String( feed.getContent( ), StandardCharsets.UTF_8 ).equals( new String( rebuiltFeed.getContent( ), StandardCharsets.UTF_8 ) ) );
+        assertEquals( feed.getETag( ), rebuiltFeed.getETag( ) );
+
+        mapEvents.put( 1, new AgentCalendarEvent( "BEGIN:VEVENT\r\nDTSTAMP:20231114T231320Z\r\nUID:appointment2\r\nEND:VEVENT\r\n", NOW + ONE_HOUR ) );
+        assertFalse( feed.getETag( ).equals( new AgentCalendarFeed( PRODID, mapEvents, NOW ).getETag( ) ) );
+    }
+
+    public void testFeedExpires( )
+    {
+        Map<Integer, AgentCalendarEvent> mapEvents = new HashMap<>( );
+        mapEvents.put( 1, new AgentCalendarEvent( "EVENT-1\r\n", NOW - ONE_HOUR ) );
+        mapEvents.put( 2, new AgentCalendarEvent( "EVENT-2\r\n", NOW + ONE_HOUR ) );
+        AgentCalendarFeed feed = new AgentCalendarFeed( PRODID, mapEvents, NOW );
+
+        assertFalse( feed.isExpired( NOW + ONE_HOUR, ONE_HOUR ) );
+        assertTrue( feed.isExpired( NOW + ONE_HOUR + 1, ONE_HOUR ) );
+        // Dropping the past events does not make the feed fresher
+        assertEquals( NOW, feed.withoutEventsEndedBefore( NOW ).getDateLoad( ) );
+    }
+}
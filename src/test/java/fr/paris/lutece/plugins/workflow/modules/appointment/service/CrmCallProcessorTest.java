@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.crmclient.service.ICRMClientService;
+import fr.paris.lutece.plugins.crmclient.util.CRMException;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.CrmCall;
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class CrmCallProcessorTest extends LuteceTestCase
+{
+    private static final String METHOD_CREATE_DEMAND = "sendCreateDemandByUserGuid";
+    private static final String METHOD_UPDATE_DEMAND = "sendUpdateDemand";
+    private static final String METHOD_NOTIFY = "notify";
+    private static final String ID_DEMAND = "42";
+
+    public void testProcessCreatesThenNotifiesDemand( ) throws Exception
+    {
+        List<String> listInvocations = new ArrayList<>( );
+        CrmCall call = getCall( );
+
+        new CrmCallProcessor( getStubCrmClientService( listInvocations, false ) ).process( call );
+
+        assertEquals( 2, listInvocations.size( ) );
+        assertEquals( METHOD_CREATE_DEMAND + " user-1", listInvocations.get( 0 ) );
+        assertEquals( METHOD_NOTIFY + " " + ID_DEMAND, listInvocations.get( 1 ) );
+        assertEquals( ID_DEMAND, call.getIdDemand( ) );
+    }
+
+    public void testExistingDemandIsUpdated( ) throws Exception
+    {
+        List<String> listInvocations = new ArrayList<>( );
+        CrmCall call = getCall( );
+        call.setIdDemand( ID_DEMAND );
+
+        new CrmCallProcessor( getStubCrmClientService( listInvocations, false ) ).process( call );
+
+        assertEquals( 2, listInvocations.size( ) );
+        assertEquals( METHOD_UPDATE_DEMAND + " " + ID_DEMAND, listInvocations.get( 0 ) );
+        assertEquals( METHOD_NOTIFY + " " + ID_DEMAND, listInvocations.get( 1 ) );
+    }
+
+    public void testFailedCreationIsNotNotified( )
+    {
+        List<String> listInvocations = new ArrayList<>( );
+        CrmCall call = getCall( );
+
+        try
+        {
+            new CrmCallProcessor( getStubCrmClientService( listInvocations, true ) ).process( call );
+            fail( "The creation of the demand should have failed" );
+        }
+        catch( CRMException e )
+        {
+            assertEquals( 1, listInvocations.size( ) );
+            assertNull( call.getIdDemand( ) );
+        }
+    }
+
+    private static CrmCall getCall( )
+    {
+        CrmCall call = new CrmCall( );
+        call.setUserGuid( "user-1" );
+        call.setDemandType( "1" );
+        call.setIdStatusCrm( "0" );
+        call.setStatusText( "Rendez-vous" );
+        call.setData( "" );
+        call.setNotifyObject( "Votre rendez-vous" );
+        call.setNotifyMessage( "Bonjour" );
+        call.setNotifySender( "Mairie de Paris" );
+
+        return call;
+    }
+
+    /**
+     * Get a local stub of the CRM client service, that records the calls to the CRM
+     */
+    private static ICRMClientService getStubCrmClientService( List<String> listInvocations, boolean bFailCreation )
+    {
+        return (ICRMClientService) Proxy.newProxyInstance( CrmCallProcessorTest.class.getClassLoader( ), new Class<?> [ ] {
+                ICRMClientService.class
+        }, ( proxy, method, args ) -> {
+            if ( METHOD_CREATE_DEMAND.equals( method.getName( ) ) )
+            {
+                listInvocations.add( METHOD_CREATE_DEMAND + " " + args [1] );
+                if ( bFailCreation )
+                {
+                    throw new CRMException( "CRM unavailable" );
+                }
+                return ID_DEMAND;
+            }
+            if ( METHOD_UPDATE_DEMAND.equals( method.getName( ) ) || METHOD_NOTIFY.equals( method.getName( ) ) )
+            {
+                listInvocations.add( method.getName( ) + " " + args [0] );
+            }
+            return null;
+        } );
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import fr.paris.lutece.plugins.workflow.modules.appointment.service.CrmCircuitBreaker.State;
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class CrmCircuitBreakerTest extends LuteceTestCase
+{
+    private static final long ONE_HOUR = 3600000L;
+
+    public void testOpensAfterFailureThreshold( )
+    {
+        CrmCircuitBreaker circuitBreaker = new CrmCircuitBreaker( 2, ONE_HOUR, 4 );
+
+        assertTrue( circuitBreaker.tryAcquire( ) );
+        circuitBreaker.onFailure( );
+        assertEquals( State.CLOSED, circuitBreaker.getState( ) );
+
+        assertTrue( circuitBreaker.tryAcquire( ) );
+        circuitBreaker.onFailure( );
+        assertEquals( State.OPEN, circuitBreaker.getState( ) );
+        assertEquals( 1, circuitBreaker.getNbTrips( ) );
+
+        assertFalse( circuitBreaker.isCallPermitted( ) );
+        assertFalse( circuitBreaker.tryAcquire( ) );
+        assertEquals( 1, circuitBreaker.getNbRejectedCalls( ) );
+        assertEquals( 4, circuitBreaker.getAvailablePermits( ) );
+    }
+
+    public void testSuccessResetsFailures( )
+    {
+        CrmCircuitBreaker circuitBreaker = new CrmCircuitBreaker( 2, ONE_HOUR, 4 );
+
+        assertTrue( circuitBreaker.tryAcquire( ) );
+        circuitBreaker.onFailure( );
+        assertTrue( circuitBreaker.tryAcquire( ) );
+        circuitBreaker.onSuccess( );
+        assertTrue( circuitBreaker.tryAcquire( ) );
+        circuitBreaker.onFailure( );
+
+        assertEquals( State.CLOSED, circuitBreaker.getState( ) );
+        assertEquals( 1, circuitBreaker.getNbConsecutiveFailures( ) );
+    }
+
+    public void testHalfOpenLetsSingleProbeThrough( )
+    {
+        CrmCircuitBreaker circuitBreaker = new CrmCircuitBreaker( 1, 0L, 4 );
+
+        assertTrue( circuitBreaker.tryAcquire( ) );
+        circuitBreaker.onFailure( );
+        assertEquals( State.HALF_OPEN, circuitBreaker.getState( ) );
+
+        assertTrue( circuitBreaker.tryAcquire( ) );
+        assertFalse( circuitBreaker.tryAcquire( ) );
+        circuitBreaker.onSuccess( );
+
+        assertEquals( State.CLOSED, circuitBreaker.getState( ) );
+        assertTrue( circuitBreaker.tryAcquire( ) );
+        assertTrue( circuitBreaker.tryAcquire( ) );
+    }
+
+    public void testProbeIsOnlyEndedByItsCall( ) throws InterruptedException
+    {
+        CrmCircuitBreaker circuitBreaker = new CrmCircuitBreaker( 1, 0L, 4 );
+
+        assertTrue( circuitBreaker.tryAcquire( ) );
+        assertTrue( circuitBreaker.tryAcquire( ) );
+        circuitBreaker.onFailure( );
+        assertEquals( State.HALF_OPEN, circuitBreaker.getState( ) );
+        assertTrue( circuitBreaker.tryAcquire( ) );
+
+        // The call acquired before the circuit opened completes on another lane
+        Thread lane = new Thread( circuitBreaker::release );
+        lane.start( );
+        lane.join( );
+
+        assertFalse( circuitBreaker.isCallPermitted( ) );
+        assertFalse( circuitBreaker.tryAcquire( ) );
+
+        circuitBreaker.onFailure( );
+        assertEquals( 2, circuitBreaker.getNbTrips( ) );
+        assertEquals( 4, circuitBreaker.getAvailablePermits( ) );
+    }
+
+    public void testPermitIsGivenBackWhenCallThrows( )
+    {
+        CrmCircuitBreaker circuitBreaker = new CrmCircuitBreaker( 1, 0L, 1 );
+
+        assertTrue( circuitBreaker.tryAcquire( ) );
+        circuitBreaker.onFailure( );
+        assertEquals( State.HALF_OPEN, circuitBreaker.getState( ) );
+
+        // The probe fails on the queue before reaching the CRM
+        assertTrue( circuitBreaker.tryAcquire( ) );
+        try
+        {
+            try
+            {
+                throw new IllegalStateException( "Database unavailable" );
+            }
+            finally
+            {
+                circuitBreaker.release( );
+            }
+        }
+        catch( IllegalStateException e )
+        {
+            assertEquals( "Database unavailable", e.getMessage( ) );
+        }
+
+        assertEquals( 1, circuitBreaker.getAvailablePermits( ) );
+        assertTrue( circuitBreaker.isCallPermitted( ) );
+        assertTrue( circuitBreaker.tryAcquire( ) );
+        circuitBreaker.onSuccess( );
+        assertEquals( State.CLOSED, circuitBreaker.getState( ) );
+    }
+
+    public void testOpenCircuitHasRetryDate( )
+    {
+        CrmCircuitBreaker circuitBreaker = new CrmCircuitBreaker( 1, ONE_HOUR, 4 );
+
+        assertTrue( circuitBreaker.tryAcquire( ) );
+        circuitBreaker.onFailure( );
+        assertEquals( 1, circuitBreaker.getNbTrips( ) );
+        assertTrue( circuitBreaker.getDateRetry( ) > System.currentTimeMillis( ) );
+    }
+
+    public void testBulkheadRejectsCallsOverLimit( )
+    {
+        CrmCircuitBreaker circuitBreaker = new CrmCircuitBreaker( 5, ONE_HOUR, 2 );
+
+        assertTrue( circuitBreaker.tryAcquire( ) );
+        assertTrue( circuitBreaker.tryAcquire( ) );
+        assertFalse( circuitBreaker.tryAcquire( ) );
+        assertEquals( 0, circuitBreaker.getAvailablePermits( ) );
+
+        circuitBreaker.release( );
+        assertTrue( circuitBreaker.tryAcquire( ) );
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import fr.paris.lutece.plugins.appointment.business.user.User;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class CrmMessageTemplateTest extends LuteceTestCase
+{
+    public void testRenderVariables( )
+    {
+        CrmMessageTemplate template = CrmMessageTemplate.compile( "Bonjour ${firstName} ${lastName}, rendez-vous ${reference} (${id_appointment})" );
+
+        assertEquals( "Bonjour Jean Dupont, rendez-vous REF-1 (12)", template.render( getAppointment( "Jean", "Dupont" ) ) );
+    }
+
+    public void testRenderNullValuesAsEmpty( )
+    {
+        CrmMessageTemplate template = CrmMessageTemplate.compile( "Bonjour ${firstName} ${lastName}" );
+
+        assertEquals( "Bonjour  Dupont", template.render( getAppointment( null, "Dupont" ) ) );
+    }
+
+    public void testKeepUnknownMarks( )
+    {
+        CrmMessageTemplate template = CrmMessageTemplate.compile( "${unknown} ${response_abc} ${ ${lastName} ${firstName" );
+
+        assertEquals( "${unknown} ${response_abc} ${ Dupont ${firstName", template.render( getAppointment( "Jean", "Dupont" ) ) );
+    }
+
+    public void testRenderWithoutVariables( )
+    {
+        assertEquals( "Bonjour", CrmMessageTemplate.compile( "Bonjour" ).render( getAppointment( "Jean", "Dupont" ) ) );
+        assertEquals( "", CrmMessageTemplate.compile( null ).render( getAppointment( "Jean", "Dupont" ) ) );
+    }
+
+    private static AppointmentDTO getAppointment( String strFirstName, String strLastName )
+    {
+        User user = new User( );
+        user.setFirstName( strFirstName );
+        user.setLastName( strLastName );
+
+        AppointmentDTO appointment = new AppointmentDTO( );
+        appointment.setIdAppointment( 12 );
+        appointment.setReference( "REF-1" );
+        appointment.setUser( user );
+
+        return appointment;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import fr.paris.lutece.test.LuteceTestCase;
+import net.fortuna.ical4j.data.CalendarBuilder;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Component;
+import net.fortuna.ical4j.model.component.VTimeZone;
+
+public class ICalInvitationWriterTest extends LuteceTestCase
+{
+    private static final String TIME_ZONE_ID = "Europe/Paris";
+    private static final String TIME_ZONE_FILE = "webapp/WEB-INF/conf/zoneinfo/Europe/Paris.ics";
+    private static final String PATTERN_DTSTAMP = "(?m)^DTSTAMP:.*$";
+
+    public void testWriteSameAsModel( ) throws Exception
+    {
+        ICalInvitation invitation = getInvitation( );
+        invitation.setDescription( ICalService.formatICalendarDescription( "Bonjour,\nvotre rendez-vous à la mairie du 4e arrondissement ; "
+                + "merci de vous munir d'une pièce d'identité, et de votre convocation." ) );
+
+        assertSameAsModel( invitation );
+    }
+
+    public void testWriteHtmlSameAsModel( ) throws Exception
+    {
+        ICalInvitation invitation = getInvitation( );
+        invitation.setCreate( false );
+        invitation.setOrganizerName( "Mairie de Paris : état civil" );
+        invitation.setDescription( "<p>Rendez-vous <b>annulé</b></p>" );
+        invitation.setHtmlDescription( true );
+
+        assertSameAsModel( invitation );
+    }
+
+    public void testWriteSummerTimeSameAsModel( ) throws Exception
+    {
+        ICalInvitation invitation = getInvitation( );
+        invitation.setStartTime( 1719820800000L );
+        invitation.setEndTime( 1719822600000L );
+
+        assertSameAsModel( invitation );
+    }
+
+    public void testWriteUnsupported( ) throws Exception
+    {
+        ICalInvitation invitation = getInvitation( );
+        invitation.setSummary( "Rendez-vous \"urgent\"" );
+
+        assertNull( ICalInvitationWriter.write( invitation ) );
+
+        invitation = getInvitation( );
+        invitation.setOptionalAttendees( Collections.singletonList( " agent@paris.fr" ) );
+
+        assertNull( ICalInvitationWriter.write( invitation ) );
+    }
+
+    private void assertSameAsModel( ICalInvitation invitation )
+    {
+        String strCalendar = ICalInvitationWriter.write( invitation );
+        String strModelCalendar = new ICalService( ).buildCalendar( invitation );
+
+        assertNotNull( strCalendar );
+        assertEquals( strModelCalendar.replaceAll( PATTERN_DTSTAMP, "DTSTAMP" ), strCalendar.replaceAll( PATTERN_DTSTAMP, "DTSTAMP" ) );
+    }
+
+    private ICalInvitation getInvitation( ) throws Exception
+    {
+        CalendarBuilder builder = new CalendarBuilder( );
+        Calendar calendar;
+        try ( InputStream inputStream = new FileInputStream( TIME_ZONE_FILE ) )
+        {
+            calendar = builder.build( inputStream );
+        }
+        VTimeZone vTimeZone = (VTimeZone) calendar.getComponent( Component.VTIMEZONE );
+
+        ICalInvitation invitation = new ICalInvitation( );
+        invitation.setCreate( true );
+        invitation.setProdId( "-//Lutece//Appointment//FR" );
+        invitation.setICalTimeZone( new ICalTimeZone( TIME_ZONE_ID, TIME_ZONE_FILE, 0L, vTimeZone, builder.getRegistry( ).getTimeZone( TIME_ZONE_ID ) ) );
+        invitation.setStartTime( 1704099600000L );
+        invitation.setEndTime( 1704101400000L );
+        invitation.setSummary( "Rendez-vous, mairie" );
+        invitation.setUid( "appointment42" );
+        invitation.setRequiredAttendees( Arrays.asList( "usager@example.com", "proche@example.com" ) );
+        invitation.setOptionalAttendees( Collections.singletonList( "agent@paris.fr" ) );
+        invitation.setOrganizerName( "Mairie de Paris" );
+        invitation.setOrganizerEmail( "no-reply@paris.fr" );
+        invitation.setLocation( "4 place de l'Hôtel de Ville; Paris" );
+        invitation.setDescription( "Bonjour" );
+
+        return invitation;
+    }
+}
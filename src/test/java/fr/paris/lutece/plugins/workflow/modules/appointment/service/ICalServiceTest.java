@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.nio.charset.StandardCharsets;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class ICalServiceTest extends LuteceTestCase
+{
+    private static final String FOLDING_SYMBOL = "\r ";
+
+    public void testFormatShortDescription( )
+    {
+        String strDescription = "Rendez-vous\nà la mairie";
+
+        assertSame( strDescription, ICalService.formatICalendarDescription( strDescription ) );
+    }
+
+    public void testFormatLongDescription( )
+    {
+        StringBuilder sbDescription = new StringBuilder( "Votre rendez-vous à la mairie € 😀\n" );
+        for ( int i = 0; i < 500; i++ )
+        {
+            sbDescription.append( i % 2 == 0 ? "é" : "a" );
+        }
+        String strDescription = sbDescription.toString( );
+
+        String strFormatted = ICalService.formatICalendarDescription( strDescription );
+
+        for ( String strLine : strFormatted.split( "\r" ) )
+        {
+            assertTrue( strLine.getBytes( StandardCharsets.UTF_8 ).length <= 75 );
+        }
+        assertEquals( strDescription.replace( "\n", "" ), strFormatted.replace( FOLDING_SYMBOL, "" ) );
+    }
+
+    public void testContainsHtml( )
+    {
+        assertTrue( ICalService.containsHtml( "<p>Bonjour</p>" ) );
+        assertTrue( ICalService.containsHtml( "Bonjour,\n<b>demain</b> à 10h" ) );
+        assertFalse( ICalService.containsHtml( "Bonjour" ) );
+        assertFalse( ICalService.containsHtml( "1 < 2 > 0" ) );
+        assertFalse( ICalService.containsHtml( "<1>rendez-vous</1>" ) );
+        assertFalse( ICalService.containsHtml( "<p>Bonjour" ) );
+    }
+
+    public void testContainsHtmlLongDescription( )
+    {
+        StringBuilder sbDescription = new StringBuilder( );
+        for ( int i = 0; i < 100000; i++ )
+        {
+            sbDescription.append( "<a" );
+        }
+
+        assertFalse( ICalService.containsHtml( sbDescription.toString( ) ) );
+        assertTrue( ICalService.containsHtml( sbDescription.append( "></a>" ).toString( ) ) );
+    }
+}
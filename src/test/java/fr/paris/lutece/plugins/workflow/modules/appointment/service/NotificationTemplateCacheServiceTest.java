@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service;
+
+import java.util.Locale;
+
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.service.template.AppTemplateService;
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class NotificationTemplateCacheServiceTest extends LuteceTestCase
+{
+    private static final String I18N_KEY = "module.workflow.appointment.task_notify_appointment_config.title";
+    private static final int ID_TASK = 1;
+
+    public void testRenderLocalizesI18nKeys( )
+    {
+        NotificationTemplateCacheService templateCacheService = NotificationTemplateCacheService.getInstance( );
+        templateCacheService.invalidate( ID_TASK );
+        NotificationModel model = new NotificationModel( );
+        model.put( "firstName", "John" );
+
+        String strResult = templateCacheService.render( ID_TASK, "subject", "#i18n{" + I18N_KEY + "} ${firstName}", Locale.FRENCH, model );
+
+        assertEquals( I18nService.getLocalizedString( I18N_KEY, Locale.FRENCH ) + " John", strResult );
+        assertFalse( strResult.contains( "#i18n{" ) );
+
+        // The compiled template is served from the cache and still localized
+        assertEquals( strResult, templateCacheService.render( ID_TASK, "subject", "#i18n{" + I18N_KEY + "} ${firstName}", Locale.FRENCH, model ) );
+    }
+
+    public void testTemplateWithUnknownVariableIsRenderedByLutece( )
+    {
+        NotificationTemplateCacheService templateCacheService = NotificationTemplateCacheService.getInstance( );
+        templateCacheService.invalidate( ID_TASK );
+        NotificationModel model = new NotificationModel( );
+        model.put( "firstName", "John" );
+        String strSource = "${firstName} ${unknownVariable}";
+
+        String strExpected = null;
+        try
+        {
+            strExpected = AppTemplateService.getTemplateFromStringFtl( strSource, Locale.FRENCH, model ).getHtml( );
+        }
+        catch( RuntimeException e )
+        {
+            // Without such a shared variable, the template service of Lutece fails as well
+        }
+
+        for ( int i = 0; i < 2; i++ )
+        {
+            try
+            {
+                assertEquals( strExpected, templateCacheService.render( ID_TASK, "message", strSource, Locale.FRENCH, model ) );
+            }
+            catch( RuntimeException e )
+            {
+                assertNull( strExpected );
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
+import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentHome;
+import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentResponseHome;
+import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentSlot;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.form.FormHome;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.plugins.appointment.business.user.User;
+import fr.paris.lutece.plugins.appointment.business.user.UserHome;
+import fr.paris.lutece.plugins.genericattributes.business.Entry;
+import fr.paris.lutece.plugins.genericattributes.business.Response;
+import fr.paris.lutece.plugins.genericattributes.business.ResponseHome;
+import fr.paris.lutece.plugins.workflow.modules.appointment.business.BulkAnonymizationHome;
+import fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver.anonymization.AppointmentFormIdAnonymizationService;
+import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceWorkflow;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class WorkflowAppointmentAnonymizeArchiveProcessingServiceTest extends LuteceTestCase
+{
+    private static final String RESPONSE_VALUE = "0601020304";
+    private static final String ANONYMIZED_VALUE = "anonymized";
+
+    public void testArchiveResourcesAnonymizesStoredAppointment( )
+    {
+        Form form = new Form( );
+        form.setTitle( "Bulk anonymization test" );
+        form.setAnonymizable( true );
+        form.setAnonymizationPattern( "anon-" + AppointmentFormIdAnonymizationService.PATTERN );
+        FormHome.create( form );
+
+        Slot slot = new Slot( );
+        slot.setIdForm( form.getIdForm( ) );
+        slot.setStartingDateTime( LocalDateTime.now( ).minusDays( 2 ) );
+        slot.setEndingDateTime( LocalDateTime.now( ).minusDays( 2 ).plusHours( 1 ) );
+        slot.setIsOpen( true );
+        slot.setMaxCapacity( 1 );
+        SlotHome.create( slot );
+
+        User user = new User( );
+        user.setFirstName( "Jean" );
+        user.setLastName( "Dupont" );
+        user.setEmail( "jean.dupont@example.com" );
+        UserHome.create( user );
+
+        AppointmentSlot appointmentSlot = new AppointmentSlot( );
+        appointmentSlot.setIdSlot( slot.getIdSlot( ) );
+        appointmentSlot.setNbPlaces( 1 );
+        Appointment appointment = new Appointment( );
+        appointment.setIdUser( user.getIdUser( ) );
+        appointment.setNbPlaces( 1 );
+        appointment.setListAppointmentSlot( Collections.singletonList( appointmentSlot ) );
+        AppointmentHome.create( appointment );
+
+        Entry entry = new Entry( );
+        entry.setIdEntry( 0 );
+        Response response = new Response( );
+        response.setEntry( entry );
+        response.setResponseValue( RESPONSE_VALUE );
+        ResponseHome.create( response );
+        AppointmentResponseHome.insertAppointmentResponse( appointment.getIdAppointment( ), response.getIdResponse( ) );
+
+        try
+        {
+            List<Integer> listIdAppointments = Collections.singletonList( appointment.getIdAppointment( ) );
+            Map<Integer, List<Response>> mapResponses = BulkAnonymizationHome.findResponses( listIdAppointments );
+            assertEquals( 1, mapResponses.get( appointment.getIdAppointment( ) ).size( ) );
+            assertEquals( RESPONSE_VALUE, mapResponses.get( appointment.getIdAppointment( ) ).get( 0 ).getResponseValue( ) );
+
+            ResourceWorkflow resourceWorkflow = new ResourceWorkflow( );
+            resourceWorkflow.setIdResource( appointment.getIdAppointment( ) );
+            resourceWorkflow.setResourceType( Appointment.APPOINTMENT_RESOURCE_TYPE );
+            WorkflowAppointmentAnonymizeArchiveProcessingService processingService = SpringContextService
+                    .getBean( WorkflowAppointmentAnonymizeArchiveProcessingService.BEAN_NAME );
+            ArchivalProgress progress = processingService.archiveResources( Collections.singletonList( resourceWorkflow ) );
+
+            assertEquals( 1, progress.getNbProcessed( ) );
+            assertEquals( 0, progress.getNbFailed( ) );
+            String strAnonymized = "anon-" + form.getIdForm( );
+            User userStored = UserHome.findByPrimaryKey( user.getIdUser( ) );
+            assertEquals( strAnonymized, userStored.getFirstName( ) );
+            assertEquals( strAnonymized, userStored.getLastName( ) );
+            assertEquals( strAnonymized, userStored.getEmail( ) );
+            assertEquals( listIdAppointments.size( ), BulkAnonymizationHome.findAnonymizedAppointments( listIdAppointments ).size( ) );
+
+            // An appointment already anonymized is skipped
+            progress = processingService.archiveResources( Collections.singletonList( resourceWorkflow ) );
+            assertEquals( 1, progress.getNbSkipped( ) );
+
+            // The values of the responses are written in bulk
+            Response responseAnonymized = mapResponses.get( appointment.getIdAppointment( ) ).get( 0 );
+            responseAnonymized.setResponseValue( ANONYMIZED_VALUE );
+            BulkAnonymizationHome.updateResponseValues( Collections.singletonList( responseAnonymized ) );
+            assertEquals( ANONYMIZED_VALUE, ResponseHome.findByPrimaryKey( response.getIdResponse( ) ).getResponseValue( ) );
+        }
+        finally
+        {
+            BulkAnonymizationHome.removeAnonymizedAppointment( appointment.getIdAppointment( ) );
+            AppointmentResponseHome.removeResponsesByIdAppointment( appointment.getIdAppointment( ) );
+            ResponseHome.remove( response.getIdResponse( ) );
+            AppointmentHome.delete( appointment.getIdAppointment( ) );
+            UserHome.delete( user.getIdUser( ) );
+            SlotHome.delete( slot.getIdSlot( ) );
+            FormHome.delete( form.getIdForm( ) );
+        }
+    }
+}
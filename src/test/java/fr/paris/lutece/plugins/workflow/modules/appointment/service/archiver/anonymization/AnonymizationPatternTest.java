@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver.anonymization;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.user.User;
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class AnonymizationPatternTest extends LuteceTestCase
+{
+    public void testCompositePattern( )
+    {
+        AnonymizationPattern pattern = AnonymizationPattern.compile( "anon-%f-%n", getServices( ) );
+
+        assertEquals( "anon-7-42", pattern.generate( getForm( ) ) );
+    }
+
+    public void testLongestServicePattern( )
+    {
+        AnonymizationPattern pattern = AnonymizationPattern.compile( "%f%ff%", getServices( ) );
+
+        assertEquals( "7long%", pattern.generate( getForm( ) ) );
+    }
+
+    public void testPatternWithoutService( )
+    {
+        assertNull( AnonymizationPattern.compile( "anonymous", getServices( ) ) );
+        assertNull( AnonymizationPattern.compile( null, getServices( ) ) );
+        assertNull( AnonymizationPattern.compile( "%f", Collections.emptyList( ) ) );
+    }
+
+    public void testAnonymizeUser( )
+    {
+        User user = new User( );
+        user.setFirstName( "Jean" );
+        user.setLastName( "Dupont" );
+        user.setEmail( "jean.dupont@example.com" );
+
+        AnonymizationPattern.compile( "%n@%f", getServices( ) ).anonymizeUser( user, getForm( ) );
+
+        assertEquals( "42@7", user.getFirstName( ) );
+        assertEquals( "42@7", user.getLastName( ) );
+        assertEquals( "42@7", user.getEmail( ) );
+    }
+
+    private static Form getForm( )
+    {
+        Form form = new Form( );
+        form.setIdForm( 7 );
+
+        return form;
+    }
+
+    private static List<IAnonymizationService> getServices( )
+    {
+        return Arrays.asList( new AppointmentFormIdAnonymizationService( ), getService( "%n", "42" ), getService( "%ff", "long" ) );
+    }
+
+    private static IAnonymizationService getService( String strPattern, String strValue )
+    {
+        return new IAnonymizationService( )
+        {
+            @Override
+            public String getAnonymisedValue( Form form )
+            {
+                return strValue;
+            }
+
+            @Override
+            public String getBeanName( )
+            {
+                return "workflow-appointment.test" + strValue;
+            }
+
+            @Override
+            public String getPattern( )
+            {
+                return strPattern;
+            }
+        };
+    }
+}
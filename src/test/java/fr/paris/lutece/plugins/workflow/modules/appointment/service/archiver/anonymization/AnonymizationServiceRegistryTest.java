@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.workflow.modules.appointment.service.archiver.anonymization;
+
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.StaticApplicationContext;
+
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class AnonymizationServiceRegistryTest extends LuteceTestCase
+{
+    public void testGetServiceByPattern( )
+    {
+        StaticApplicationContext context = new StaticApplicationContext( );
+        context.getBeanFactory( ).registerSingleton( RandomGuidAnonymizationService.BEAN_NAME, new RandomGuidAnonymizationService( ) );
+        context.getBeanFactory( ).registerSingleton( RandomNumberAnonymizationService.BEAN_NAME, new RandomNumberAnonymizationService( ) );
+
+        AnonymizationServiceRegistry registry = new AnonymizationServiceRegistry( );
+        registry.onApplicationEvent( new ContextRefreshedEvent( context ) );
+
+        assertEquals( 2, registry.getServices( ).size( ) );
+        assertTrue( registry.getService( RandomGuidAnonymizationService.PATTERN ) instanceof RandomGuidAnonymizationService );
+        assertTrue( registry.getService( RandomNumberAnonymizationService.PATTERN ) instanceof RandomNumberAnonymizationService );
+        assertNull( registry.getService( "%unknown" ) );
+        assertNull( registry.getService( null ) );
+    }
+
+    public void testRejectDuplicatePatterns( )
+    {
+        StaticApplicationContext context = new StaticApplicationContext( );
+        context.getBeanFactory( ).registerSingleton( RandomGuidAnonymizationService.BEAN_NAME, new RandomGuidAnonymizationService( ) );
+        context.getBeanFactory( ).registerSingleton( "workflow-appointment.otherRandomGuidAnonymizationService", new RandomGuidAnonymizationService( ) );
+
+        try
+        {
+            new AnonymizationServiceRegistry( ).onApplicationEvent( new ContextRefreshedEvent( context ) );
+            fail( "Duplicate patterns should be rejected" );
+        }
+        catch( AppException e )
+        {
+            assertTrue( e.getMessage( ).contains( RandomGuidAnonymizationService.PATTERN ) );
+        }
+    }
+}
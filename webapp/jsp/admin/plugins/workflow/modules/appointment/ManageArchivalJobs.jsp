@@ -0,0 +1,9 @@
+<jsp:useBean id="manageArchivalJobs" scope="session" class="fr.paris.lutece.plugins.workflow.modules.appointment.web.ArchivalJobJspBean" />
+<% String strContent = manageArchivalJobs.processController( request , response ); %>
+
+<%@ page errorPage="../../../../ErrorPage.jsp" %>
+<jsp:include page="../../../../AdminHeader.jsp" />
+
+<%= strContent %>
+
+<%@ include file="../../../../AdminFooter.jsp" %>